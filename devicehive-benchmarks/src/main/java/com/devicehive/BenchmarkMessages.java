@@ -0,0 +1,43 @@
+package com.devicehive;
+
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.JsonStringWrapper;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Messages shared by the benchmarks: a sensor reading and a command with its result, sized like typical device
+ * traffic. Every call returns a new message with a new device guid.
+ */
+public final class BenchmarkMessages {
+
+    private BenchmarkMessages() {
+    }
+
+    public static DeviceNotification notification() {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(1234567890123L);
+        notification.setNotification("temperature");
+        notification.setDeviceGuid(UUID.randomUUID().toString());
+        notification.setTimestamp(new Date());
+        notification.setParameters(new JsonStringWrapper("{\"value\":21.5,\"unit\":\"C\",\"sensor\":\"kitchen\"}"));
+        return notification;
+    }
+
+    public static DeviceCommand command() {
+        DeviceCommand command = new DeviceCommand();
+        command.setId(1234567890124L);
+        command.setCommand("switch");
+        command.setDeviceGuid(UUID.randomUUID().toString());
+        command.setTimestamp(new Date());
+        command.setUserId(42L);
+        command.setLifetime(30);
+        command.setParameters(new JsonStringWrapper("{\"state\":\"on\",\"channel\":2}"));
+        command.setStatus("done");
+        command.setResult(new JsonStringWrapper("{\"ok\":true}"));
+        command.setIsUpdated(true);
+        return command;
+    }
+}
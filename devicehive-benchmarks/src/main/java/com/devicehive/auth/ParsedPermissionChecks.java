@@ -0,0 +1,74 @@
+package com.devicehive.auth;
+
+import com.devicehive.model.Subnet;
+import com.devicehive.vo.AccessKeyPermissionVO;
+import com.devicehive.vo.DeviceVO;
+
+import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Permission checks as {@link CheckPermissionsHelper} did them before permissions were compiled: every check parses
+ * the JSON of the permission fields again. Kept as the baseline of {@link PermissionCheckBenchmark}, for keys of
+ * admin users and without domain restrictions.
+ */
+class ParsedPermissionChecks {
+
+    static boolean checkFilteredPermissions(Set<AccessKeyPermissionVO> permissions, DeviceVO device) {
+        for (AccessKeyPermissionVO permission : permissions) {
+            Set<Long> networks = permission.getNetworkIdsAsSet();
+            if (networks != null && !networks.contains(device.getNetwork().getId())) {
+                continue;
+            }
+            Set<String> deviceGuids = permission.getDeviceGuidsAsSet();
+            if (deviceGuids != null && !deviceGuids.contains(device.getGuid())) {
+                continue;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    static Set<AccessKeyPermissionVO> filterPermissions(Set<AccessKeyPermissionVO> permissions,
+                                                        AccessKeyAction action, InetAddress clientIP) {
+        Set<AccessKeyPermissionVO> filtered = new HashSet<>();
+        for (AccessKeyPermissionVO permission : permissions) {
+            if (hasAction(permission, action) && isAddressAllowed(permission, clientIP)
+                    && !isEmpty(permission.getNetworkIdsAsSet()) && !isEmpty(permission.getDeviceGuidsAsSet())) {
+                filtered.add(permission);
+            }
+        }
+        return filtered;
+    }
+
+    private static boolean hasAction(AccessKeyPermissionVO permission, AccessKeyAction action) {
+        Set<String> actions = permission.getActionsAsSet();
+        if (actions == null) {
+            return true;
+        }
+        for (String allowed : actions) {
+            if (allowed.equalsIgnoreCase(action.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAddressAllowed(AccessKeyPermissionVO permission, InetAddress clientIP) {
+        Set<Subnet> subnets = permission.getSubnetsAsSet();
+        if (subnets == null) {
+            return true;
+        }
+        for (Subnet subnet : subnets) {
+            if (subnet.isAddressFromSubnet(clientIP)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEmpty(Set<?> set) {
+        return set != null && set.isEmpty();
+    }
+}
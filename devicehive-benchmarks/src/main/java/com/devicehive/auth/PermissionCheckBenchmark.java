@@ -0,0 +1,89 @@
+package com.devicehive.auth;
+
+import com.devicehive.model.AvailableActions;
+import com.devicehive.vo.AccessKeyPermissionVO;
+import com.devicehive.vo.DeviceVO;
+import com.devicehive.vo.NetworkVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access key permission checks done per request and per delivered message, with permissions compiled once per key
+ * ({@link CheckPermissionsHelper}) and parsed on every check as before ({@link ParsedPermissionChecks}). The key has
+ * a few permissions restricted by actions, subnets, networks and devices; only the last one matches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionCheckBenchmark {
+
+    private static final int PERMISSIONS = 4;
+    private static final int NETWORKS_PER_PERMISSION = 20;
+    private static final int DEVICES_PER_PERMISSION = 20;
+
+    private Set<AccessKeyPermissionVO> permissions;
+    private DeviceVO device;
+    private InetAddress clientIP;
+
+    @Setup
+    public void setUp() throws UnknownHostException {
+        permissions = new HashSet<>();
+        String lastGuid = null;
+        long lastNetwork = 0;
+        for (int i = 0; i < PERMISSIONS; i++) {
+            AccessKeyPermissionVO permission = new AccessKeyPermissionVO();
+            permission.setActionsArray(AvailableActions.GET_NETWORK, AvailableActions.GET_DEVICE,
+                    AvailableActions.GET_DEVICE_STATE, AvailableActions.GET_DEVICE_NOTIFICATION,
+                    AvailableActions.GET_DEVICE_COMMAND);
+            permission.setSubnetsArray("10." + i + ".0.0/16", "192.168." + i + ".0/24");
+            List<Long> networkIds = new ArrayList<>();
+            for (int j = 0; j < NETWORKS_PER_PERMISSION; j++) {
+                lastNetwork = i * 1000L + j;
+                networkIds.add(lastNetwork);
+            }
+            permission.setNetworkIdsCollection(networkIds);
+            List<String> deviceGuids = new ArrayList<>();
+            for (int j = 0; j < DEVICES_PER_PERMISSION; j++) {
+                lastGuid = UUID.randomUUID().toString();
+                deviceGuids.add(lastGuid);
+            }
+            permission.setDeviceGuidsCollection(deviceGuids);
+            permissions.add(permission);
+        }
+        NetworkVO network = new NetworkVO();
+        network.setId(lastNetwork);
+        device = new DeviceVO();
+        device.setGuid(lastGuid);
+        device.setNetwork(network);
+        clientIP = InetAddress.getByName("10." + (PERMISSIONS - 1) + ".1.2");
+    }
+
+    @Benchmark
+    public Set<AccessKeyPermissionVO> filterParsed() {
+        return ParsedPermissionChecks.filterPermissions(permissions, AccessKeyAction.GET_DEVICE_NOTIFICATION,
+                clientIP);
+    }
+
+    @Benchmark
+    public Set<AccessKeyPermissionVO> filterCompiled() {
+        return CheckPermissionsHelper.filterPermissions(null, permissions, AccessKeyAction.GET_DEVICE_NOTIFICATION,
+                clientIP, null);
+    }
+
+    @Benchmark
+    public boolean deviceParsed() {
+        return ParsedPermissionChecks.checkFilteredPermissions(permissions, device);
+    }
+
+    @Benchmark
+    public boolean deviceCompiled() {
+        return CheckPermissionsHelper.checkFilteredPermissions(permissions, device);
+    }
+}
@@ -0,0 +1,117 @@
+package com.devicehive.dao.riak;
+
+import com.basho.riak.client.api.cap.Quorum;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.StoreValue;
+import com.basho.riak.client.core.query.Location;
+import com.devicehive.dao.filter.DeviceListCursor;
+import com.devicehive.dao.riak.model.RiakDevice;
+import com.devicehive.dao.riak.model.RiakDeviceClass;
+import com.devicehive.dao.riak.model.RiakNetwork;
+import com.devicehive.vo.DeviceVO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the last page of a device listing sorted by name, with 10k, 100k and 1M devices, through
+ * {@link DeviceDaoRiakImpl#getList} over a {@link RiakClientStub}. {@code mapReduce} is the full bucket MapReduce
+ * listing used without search, {@code searchOffset} reads the page from the search index at its offset,
+ * {@code searchContinued} reads it after the continuation token of the previous page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DeviceListBenchmark {
+
+    private static final int SHARDS = 8;
+    private static final int ROWS = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int devices;
+
+    private int start;
+    private DeviceListCursor previousPageEnd;
+    private DeviceDaoRiakImpl mapReduceDao;
+    private DeviceDaoRiakImpl offsetDao;
+    private DeviceDaoRiakImpl continuedDao;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<RiakDevice> all = new ArrayList<>(devices);
+        for (long id = 1; id <= devices; id++) {
+            all.add(device(id));
+        }
+        Map<Location, byte[]> bucket = RiakClientStub.bucket(all);
+        SearchIndexStub index = new SearchIndexStub(all, SHARDS);
+
+        start = devices - ROWS;
+        all.sort(Comparator.comparing(RiakDevice::getName).thenComparing(RiakDevice::getGuid));
+        RiakDevice last = all.get(start - 1);
+        previousPageEnd = new DeviceListCursor(last.getName(), last.getGuid());
+
+        mapReduceDao = dao(new RiakClientStub(bucket, () -> index.page(start, ROWS), start, ROWS), false);
+        offsetDao = dao(new RiakClientStub(bucket, () -> index.page(start, ROWS), start, ROWS), true);
+        continuedDao = dao(new RiakClientStub(bucket, () -> index.pageAfter(last, ROWS), start, ROWS), true);
+    }
+
+    @Benchmark
+    public List<DeviceVO> mapReduce() {
+        return mapReduceDao.getList(null, null, null, null, null, null, null, "name", true, ROWS, start, null, null);
+    }
+
+    @Benchmark
+    public List<DeviceVO> searchOffset() {
+        return offsetDao.getList(null, null, null, null, null, null, null, "name", true, ROWS, start, null, null);
+    }
+
+    @Benchmark
+    public List<DeviceVO> searchContinued() {
+        return continuedDao.getList(null, null, null, null, null, null, null, "name", true, ROWS, null,
+                previousPageEnd, null);
+    }
+
+    private static DeviceDaoRiakImpl dao(RiakClientStub stub, boolean searchEnabled) {
+        DeviceDaoRiakImpl dao = new DeviceDaoRiakImpl();
+        dao.client = stub.getClient();
+        dao.quorum = new RiakQuorum(FetchValue.Option.R, Quorum.oneQuorum(), StoreValue.Option.W, Quorum.oneQuorum());
+        set(dao, "searchEnabled", searchEnabled);
+        set(dao, "legacyKeys", false);
+        return dao;
+    }
+
+    private static void set(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    private static RiakDevice device(long id) {
+        RiakNetwork network = new RiakNetwork();
+        network.setId(id % 100);
+        network.setName("network-" + id % 100);
+        RiakDeviceClass deviceClass = new RiakDeviceClass();
+        deviceClass.setId(id % 10);
+        deviceClass.setName("class-" + id % 10);
+        deviceClass.setPermanent(false);
+        deviceClass.setOfflineTimeout(600);
+        RiakDevice device = new RiakDevice();
+        device.setId(id);
+        device.setGuid(UUID.randomUUID().toString());
+        device.setName("device-" + Long.toHexString(id * 0x9E3779B97F4A7C15L));
+        device.setStatus("Online");
+        device.setNetwork(network);
+        device.setDeviceClass(deviceClass);
+        return device;
+    }
+}
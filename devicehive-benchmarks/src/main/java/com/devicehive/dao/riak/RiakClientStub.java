@@ -0,0 +1,113 @@
+package com.devicehive.dao.riak;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.MultiFetch;
+import com.basho.riak.client.api.commands.mapreduce.BucketMapReduce;
+import com.basho.riak.client.api.commands.mapreduce.MapReduce;
+import com.basho.riak.client.api.commands.search.Search;
+import com.basho.riak.client.core.RiakFuture;
+import com.basho.riak.client.core.operations.SearchOperation;
+import com.basho.riak.client.core.query.Location;
+import com.basho.riak.client.core.query.Namespace;
+import com.devicehive.dao.riak.model.RiakDevice;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mocked {@link RiakClient} over a device bucket held in memory as JSON, as Riak stores it. Fetches decode the stored
+ * JSON of each device of the page. MapReduce reads and decodes every device of the bucket, sorts them and cuts the
+ * page, like the {@code map_values}, {@code reduce_sort} and {@code reduce_pagination_filter} phases. Solr is not
+ * embedded: search answers with the page given by {@code searchPage}, read from a {@link SearchIndexStub}.
+ */
+class RiakClientStub {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Namespace DEVICE_NS = new Namespace("device");
+
+    private final RiakClient client = mock(RiakClient.class);
+    private final Map<Location, byte[]> bucket;
+
+    /**
+     * @param bucket stored devices, see {@link #bucket(List)}
+     */
+    RiakClientStub(Map<Location, byte[]> bucket, Supplier<List<String>> searchPage, int mapReduceStart,
+                   int mapReduceRows) throws Exception {
+        this.bucket = bucket;
+        SearchOperation.Response searchResponse = mock(SearchOperation.Response.class);
+        when(searchResponse.getAllResults()).thenAnswer(invocation -> searchPage.get().stream()
+                .map(guid -> Collections.singletonMap("_yz_rk", Collections.singletonList(location(guid).getKeyAsString())))
+                .collect(Collectors.toList()));
+        when(client.execute(isA(Search.class))).thenReturn(searchResponse);
+
+        // fetches are issued for the devices the search answered
+        List<RiakFuture<FetchValue.Response, Location>> fetches = new ArrayList<>();
+        for (String guid : searchPage.get()) {
+            fetches.add(fetch(location(guid)));
+        }
+        MultiFetch.Response multiFetchResponse = mock(MultiFetch.Response.class);
+        when(multiFetchResponse.getResponses()).thenReturn(fetches);
+        when(client.execute(isA(MultiFetch.class))).thenReturn(multiFetchResponse);
+
+        MapReduce.Response mapReduceResponse = mock(MapReduce.Response.class);
+        when(mapReduceResponse.getResultsFromAllPhases(RiakDevice.class)).thenAnswer(invocation -> {
+            List<RiakDevice> all = new ArrayList<>(bucket.size());
+            for (byte[] value : bucket.values()) {
+                all.add(decode(value));
+            }
+            all.sort(Comparator.comparing(RiakDevice::getName).thenComparing(RiakDevice::getGuid));
+            return new ArrayList<>(all.subList(mapReduceStart, Math.min(all.size(), mapReduceStart + mapReduceRows)));
+        });
+        when(client.execute(isA(BucketMapReduce.class))).thenReturn(mapReduceResponse);
+    }
+
+    static Map<Location, byte[]> bucket(List<RiakDevice> devices) throws IOException {
+        Map<Location, byte[]> bucket = new HashMap<>();
+        for (RiakDevice device : devices) {
+            bucket.put(location(device.getGuid()), MAPPER.writeValueAsBytes(device));
+        }
+        return bucket;
+    }
+
+    RiakClient getClient() {
+        return client;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RiakFuture<FetchValue.Response, Location> fetch(Location location) throws Exception {
+        byte[] value = bucket.get(location);
+        FetchValue.Response response = mock(FetchValue.Response.class);
+        when(response.hasValues()).thenReturn(value != null);
+        when(response.getValue(RiakDevice.class)).thenAnswer(invocation -> decode(value));
+        RiakFuture<FetchValue.Response, Location> future = mock(RiakFuture.class);
+        when(future.get()).thenReturn(response);
+        when(future.getQueryInfo()).thenReturn(location);
+        return future;
+    }
+
+    private static RiakDevice decode(byte[] value) {
+        try {
+            return MAPPER.readValue(value, RiakDevice.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Location location(String guid) {
+        return new Location(DEVICE_NS, "guid:" + guid);
+    }
+}
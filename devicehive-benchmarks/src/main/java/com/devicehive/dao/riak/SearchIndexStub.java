@@ -0,0 +1,65 @@
+package com.devicehive.dao.riak;
+
+import com.devicehive.dao.riak.model.RiakDevice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * In-memory stand-in for the Riak Search index of devices, sorted by name and guid. Like Yokozuna, devices are spread
+ * over shards and a query is answered by every shard, then merged by the coordinator: for a page at offset each
+ * shard has to return its first {@code start + rows} devices, for a page after a position only the {@code rows}
+ * devices following it, found by binary search.
+ */
+class SearchIndexStub {
+
+    private static final Comparator<RiakDevice> ORDER = Comparator.comparing(RiakDevice::getName)
+            .thenComparing(RiakDevice::getGuid);
+
+    private final List<List<RiakDevice>> shards = new ArrayList<>();
+
+    SearchIndexStub(List<RiakDevice> devices, int shardCount) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards.add(new ArrayList<>());
+        }
+        for (int i = 0; i < devices.size(); i++) {
+            shards.get(i % shardCount).add(devices.get(i));
+        }
+        shards.forEach(shard -> shard.sort(ORDER));
+    }
+
+    /**
+     * @return guids of the page at given offset
+     */
+    List<String> page(int start, int rows) {
+        List<RiakDevice> hits = new ArrayList<>();
+        for (List<RiakDevice> shard : shards) {
+            hits.addAll(shard.subList(0, Math.min(shard.size(), start + rows)));
+        }
+        return merge(hits, start, rows);
+    }
+
+    /**
+     * @return guids of the page following given device
+     */
+    List<String> pageAfter(RiakDevice after, int rows) {
+        List<RiakDevice> hits = new ArrayList<>();
+        for (List<RiakDevice> shard : shards) {
+            int found = Collections.binarySearch(shard, after, ORDER);
+            int from = found >= 0 ? found + 1 : -found - 1;
+            hits.addAll(shard.subList(from, Math.min(shard.size(), from + rows)));
+        }
+        return merge(hits, 0, rows);
+    }
+
+    private static List<String> merge(List<RiakDevice> hits, int start, int rows) {
+        hits.sort(ORDER);
+        List<String> page = new ArrayList<>(rows);
+        for (int i = start; i < Math.min(hits.size(), start + rows); i++) {
+            page.add(hits.get(i).getGuid());
+        }
+        return page;
+    }
+}
@@ -0,0 +1,106 @@
+package com.devicehive.json;
+
+import com.devicehive.BenchmarkMessages;
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.JsonStringWrapper;
+import com.devicehive.vo.DeviceClassVO;
+import com.devicehive.vo.DeviceVO;
+import com.devicehive.vo.NetworkVO;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.devicehive.json.strategies.JsonPolicyDef.Policy;
+
+/**
+ * Serialization of {@link DeviceNotification}, {@link DeviceCommand} and {@link DeviceVO} with {@link GsonFactory}
+ * under each policy listed on their fields.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPolicyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Notifications {
+        @Param({"NOTIFICATION_FROM_DEVICE", "NOTIFICATION_TO_DEVICE", "NOTIFICATION_TO_CLIENT"})
+        public Policy policy;
+
+        Gson gson;
+        DeviceNotification notification;
+
+        @Setup
+        public void setUp() {
+            gson = GsonFactory.createGson(policy);
+            notification = BenchmarkMessages.notification();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Commands {
+        @Param({"COMMAND_TO_CLIENT", "COMMAND_TO_DEVICE", "COMMAND_LISTED", "POST_COMMAND_TO_DEVICE",
+                "COMMAND_UPDATE_TO_CLIENT"})
+        public Policy policy;
+
+        Gson gson;
+        DeviceCommand command;
+
+        @Setup
+        public void setUp() {
+            gson = GsonFactory.createGson(policy);
+            command = BenchmarkMessages.command();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Devices {
+        @Param({"DEVICE_PUBLISHED", "DEVICE_SUBMITTED", "NETWORK_PUBLISHED"})
+        public Policy policy;
+
+        Gson gson;
+        DeviceVO device;
+
+        @Setup
+        public void setUp() {
+            gson = GsonFactory.createGson(policy);
+            NetworkVO network = new NetworkVO();
+            network.setId(7L);
+            network.setName("home");
+            network.setDescription("home sensors");
+            DeviceClassVO deviceClass = new DeviceClassVO();
+            deviceClass.setId(3L);
+            deviceClass.setName("thermometer");
+            deviceClass.setIsPermanent(false);
+            deviceClass.setOfflineTimeout(600);
+            device = new DeviceVO();
+            device.setId(11L);
+            device.setGuid(UUID.randomUUID().toString());
+            device.setName("kitchen thermometer");
+            device.setStatus("online");
+            device.setData(new JsonStringWrapper("{\"floor\":1}"));
+            device.setNetwork(network);
+            device.setDeviceClass(deviceClass);
+            device.setBlocked(false);
+        }
+    }
+
+    @Benchmark
+    public String notification(Notifications state) {
+        return state.gson.toJson(state.notification);
+    }
+
+    @Benchmark
+    public String command(Commands state) {
+        return state.gson.toJson(state.command);
+    }
+
+    @Benchmark
+    public String device(Devices state) {
+        return state.gson.toJson(state.device);
+    }
+}
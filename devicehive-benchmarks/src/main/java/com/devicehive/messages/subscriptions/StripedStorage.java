@@ -0,0 +1,32 @@
+package com.devicehive.messages.subscriptions;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * {@link SubscriptionStore} view of {@link AbstractStorage}, the storage with striped locks.
+ */
+public class StripedStorage<E, T extends Subscription<E, ?>> implements SubscriptionStore<E, T> {
+
+    private final AbstractStorage<E, T> storage = new AbstractStorage<>();
+
+    @Override
+    public boolean insert(T subscription) {
+        return storage.insert(subscription);
+    }
+
+    @Override
+    public Set<T> get(E eventPoint) {
+        return storage.get(eventPoint);
+    }
+
+    @Override
+    public Iterable<T> get(E eventPoint, String name) {
+        return storage.get(eventPoint, name);
+    }
+
+    @Override
+    public void remove(E eventSource, UUID subscriberId) {
+        storage.remove(eventSource, subscriberId);
+    }
+}
@@ -0,0 +1,104 @@
+package com.devicehive.messages.subscriptions;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the subscription storage under REST long-poll load: every poll subscribes, looks up subscriptions
+ * of its device and unsubscribes. Compares {@link AbstractStorage} with {@link SynchronizedStorage}, the storage-wide
+ * monitor it replaced, at 1, 8 and 64 threads. Half of the subscriptions are limited to message names, so the name
+ * indexes are maintained and read as in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionStorageBenchmark {
+
+    private static final int DEVICES = 1000;
+    private static final int SUBSCRIPTIONS_PER_DEVICE = 10;
+    private static final String NAME = "temperature";
+
+    @Param({"striped", "synchronized"})
+    public String storage;
+
+    private SubscriptionStore<String, NotificationSubscription> store;
+    private String[] devices;
+
+    @Setup
+    public void setUp() {
+        store = "striped".equals(storage) ? new StripedStorage<>() : new SynchronizedStorage<>();
+        devices = new String[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            devices[i] = UUID.randomUUID().toString();
+            for (int j = 0; j < SUBSCRIPTIONS_PER_DEVICE; j++) {
+                store.insert(subscription(devices[i], j % 2 == 0 ? NAME + ",humidity" : null));
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int subscribeLookupUnsubscribe_1() {
+        return subscribeLookupUnsubscribe();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int subscribeLookupUnsubscribe_8() {
+        return subscribeLookupUnsubscribe();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int subscribeLookupUnsubscribe_64() {
+        return subscribeLookupUnsubscribe();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int lookup_1() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int lookup_8() {
+        return lookup();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int lookup_64() {
+        return lookup();
+    }
+
+    private int subscribeLookupUnsubscribe() {
+        NotificationSubscription subscription = subscription(randomDevice(), NAME);
+        store.insert(subscription);
+        int found = store.get(subscription.getEventSource()).size();
+        store.remove(subscription.getEventSource(), subscription.getSubscriptionId());
+        return found;
+    }
+
+    private int lookup() {
+        int found = 0;
+        for (NotificationSubscription ignored : store.get(randomDevice(), NAME)) {
+            found++;
+        }
+        return found;
+    }
+
+    private String randomDevice() {
+        return devices[ThreadLocalRandom.current().nextInt(DEVICES)];
+    }
+
+    private static NotificationSubscription subscription(String device, String names) {
+        return new NotificationSubscription(null, device, UUID.randomUUID(), names, null);
+    }
+}
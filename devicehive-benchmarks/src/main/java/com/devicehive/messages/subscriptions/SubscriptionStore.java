@@ -0,0 +1,19 @@
+package com.devicehive.messages.subscriptions;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Operations of a subscription storage exercised by {@link SubscriptionStorageBenchmark}, so the benchmark picks the
+ * implementation once and measures only the storage.
+ */
+public interface SubscriptionStore<E, T extends Subscription<E, ?>> {
+
+    boolean insert(T subscription);
+
+    Set<T> get(E eventPoint);
+
+    Iterable<T> get(E eventPoint, String name);
+
+    void remove(E eventSource, UUID subscriberId);
+}
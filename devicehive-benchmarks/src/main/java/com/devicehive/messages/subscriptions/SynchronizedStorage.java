@@ -0,0 +1,97 @@
+package com.devicehive.messages.subscriptions;
+
+
+import com.google.common.collect.Iterables;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link AbstractStorage} as it was before it moved to striped locks: the same indexes, including the ones by message
+ * name, but every update holds the monitor of the whole storage. Kept as the baseline of
+ * {@link SubscriptionStorageBenchmark}.
+ */
+public class SynchronizedStorage<E, T extends Subscription<E, ?>> implements SubscriptionStore<E, T> {
+
+    private ConcurrentMap<E, Set<T>> byEventSource = new ConcurrentHashMap<>();
+    private ConcurrentMap<UUID, Set<T>> bySubscriptionId = new ConcurrentHashMap<>();
+    private ConcurrentMap<Pair<E, UUID>, T> byPair = new ConcurrentHashMap<>();
+    private ConcurrentMap<Pair<E, String>, Set<T>> byEventSourceAndName = new ConcurrentHashMap<>();
+    private ConcurrentMap<E, Set<T>> anyNameByEventSource = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized boolean insert(T subscription) {
+        if (byPair.containsKey(ImmutablePair.of(subscription.getEventSource(), subscription.getSubscriptionId()))) {
+            return false;
+        }
+        addTo(byEventSource, subscription.getEventSource(), subscription);
+        addTo(bySubscriptionId, subscription.getSubscriptionId(), subscription);
+        if (subscription.getNames() == null) {
+            addTo(anyNameByEventSource, subscription.getEventSource(), subscription);
+        } else {
+            for (String name : subscription.getNames()) {
+                addTo(byEventSourceAndName, ImmutablePair.of(subscription.getEventSource(), name), subscription);
+            }
+        }
+
+        byPair.put(ImmutablePair.of(subscription.getEventSource(), subscription.getSubscriptionId()), subscription);
+        return true;
+    }
+
+    @Override
+    public Set<T> get(E eventPoint) {
+        Set<T> set = byEventSource.get(eventPoint);
+        return set != null ? set : Collections.<T>emptySet();
+    }
+
+    @Override
+    public Iterable<T> get(E eventPoint, String name) {
+        Set<T> anyName = anyNameByEventSource.get(eventPoint);
+        Set<T> byName = name != null ? byEventSourceAndName.get(ImmutablePair.of(eventPoint, name)) : null;
+        if (byName == null) {
+            return anyName != null ? anyName : Collections.<T>emptySet();
+        }
+        return anyName != null ? Iterables.concat(byName, anyName) : byName;
+    }
+
+    @Override
+    public synchronized void remove(E eventSource, UUID subscriberId) {
+        T sub = byPair.remove(ImmutablePair.of(eventSource, subscriberId));
+        if (sub == null) {
+            return;
+        }
+
+        removeFrom(byEventSource, sub.getEventSource(), sub);
+        removeFrom(bySubscriptionId, sub.getSubscriptionId(), sub);
+        if (sub.getNames() == null) {
+            removeFrom(anyNameByEventSource, sub.getEventSource(), sub);
+        } else {
+            for (String name : sub.getNames()) {
+                removeFrom(byEventSourceAndName, ImmutablePair.of(sub.getEventSource(), name), sub);
+            }
+        }
+    }
+
+    private static <K, T> void addTo(ConcurrentMap<K, Set<T>> map, K key, T subscription) {
+        Set<T> set = map.get(key);
+        if (set == null) {
+            set = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+            map.put(key, set);
+        }
+        set.add(subscription);
+    }
+
+    private static <K, T> void removeFrom(ConcurrentMap<K, Set<T>> map, K key, T subscription) {
+        Set<T> set = map.get(key);
+        if (set == null) {
+            return;
+        }
+        set.remove(subscription);
+        if (set.isEmpty()) {
+            map.remove(key);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.devicehive.websockets;
+
+import com.devicehive.BenchmarkMessages;
+import com.devicehive.json.GsonFactory;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.util.ServerResponsesFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivery of one notification to 1, 100 and 10,000 websocket subscribers, up to the frame bytes handed to the
+ * session. {@code perSubscriber} builds and serializes the message for every subscriber, {@code template} serializes
+ * it once and splices subscription ids in. Time is per notification, divide by {@code subscribers} for the cost of
+ * one delivered message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int subscribers;
+
+    private DeviceNotification notification;
+    private UUID[] subscriptionIds;
+
+    @Setup
+    public void setUp() {
+        notification = BenchmarkMessages.notification();
+        subscriptionIds = new UUID[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            subscriptionIds[i] = UUID.randomUUID();
+        }
+    }
+
+    @Benchmark
+    public void perSubscriber(Blackhole blackhole) {
+        for (UUID subscriptionId : subscriptionIds) {
+            String payload = GsonFactory.createGson().toJson(
+                    ServerResponsesFactory.createNotificationInsertMessage(notification, subscriptionId));
+            blackhole.consume(payload.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public void template(Blackhole blackhole) {
+        OutboundMessageTemplate template = OutboundMessageTemplate.withSubscriptionId(
+                ServerResponsesFactory.createNotificationInsertMessage(notification));
+        for (UUID subscriptionId : subscriptionIds) {
+            blackhole.consume(template.render(subscriptionId).getPayload().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
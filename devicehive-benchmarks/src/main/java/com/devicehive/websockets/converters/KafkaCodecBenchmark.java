@@ -0,0 +1,83 @@
+package com.devicehive.websockets.converters;
+
+import com.devicehive.BenchmarkMessages;
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of kafka messages with the Gson converters and the binary ones. Message sizes of the two
+ * codecs are compared by {@code BinaryConvertersTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KafkaCodecBenchmark {
+
+    private static final String TOPIC = "device_notification";
+
+    @Param({"gson", "binary"})
+    public String codec;
+
+    private Serializer<DeviceNotification> notificationSerializer;
+    private Deserializer<DeviceNotification> notificationDeserializer;
+    private Serializer<DeviceCommand> commandSerializer;
+    private Deserializer<DeviceCommand> commandDeserializer;
+
+    private DeviceNotification notification;
+    private DeviceCommand command;
+    private byte[] notificationBytes;
+    private byte[] commandBytes;
+
+    @Setup
+    public void setUp() {
+        if ("binary".equals(codec)) {
+            BinaryDeviceNotificationConverter notificationConverter = new BinaryDeviceNotificationConverter();
+            BinaryDeviceCommandConverter commandConverter = new BinaryDeviceCommandConverter();
+            notificationSerializer = notificationConverter;
+            notificationDeserializer = notificationConverter;
+            commandSerializer = commandConverter;
+            commandDeserializer = commandConverter;
+        } else {
+            DeviceNotificationConverter notificationConverter = new DeviceNotificationConverter();
+            DeviceCommandConverter commandConverter = new DeviceCommandConverter();
+            notificationSerializer = notificationConverter;
+            notificationDeserializer = notificationConverter;
+            commandSerializer = commandConverter;
+            commandDeserializer = commandConverter;
+        }
+
+        notification = BenchmarkMessages.notification();
+        command = BenchmarkMessages.command();
+
+        notificationBytes = notificationSerializer.serialize(TOPIC, notification);
+        commandBytes = commandSerializer.serialize(TOPIC, command);
+    }
+
+    @Benchmark
+    public byte[] encodeNotification() {
+        return notificationSerializer.serialize(TOPIC, notification);
+    }
+
+    @Benchmark
+    public DeviceNotification decodeNotification() {
+        return notificationDeserializer.deserialize(TOPIC, notificationBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeCommand() {
+        return commandSerializer.serialize(TOPIC, command);
+    }
+
+    @Benchmark
+    public DeviceCommand decodeCommand() {
+        return commandDeserializer.deserialize(TOPIC, commandBytes);
+    }
+}
@@ -0,0 +1,155 @@
+package com.devicehive.auth;
+
+import com.devicehive.model.AvailableActions;
+import com.devicehive.model.Subnet;
+import com.devicehive.vo.AccessKeyPermissionVO;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable form of {@link AccessKeyPermissionVO} for permission checks: JSON fields are parsed once into an action
+ * bit set, sorted network ids, a set of device guids and precomputed subnets. Null restriction means that the
+ * permission is not restricted by that field.
+ */
+public final class CompiledPermission {
+
+    private static final Map<String, Integer> ACTION_BITS = actionBits();
+
+    private final BitSet actions;
+    private final Set<String> domains;
+    private final Subnet[] subnets;
+    private final long[] networkIds;
+    private final Set<String> deviceGuids;
+
+    private CompiledPermission(BitSet actions, Set<String> domains, Subnet[] subnets, long[] networkIds,
+                               Set<String> deviceGuids) {
+        this.actions = actions;
+        this.domains = domains;
+        this.subnets = subnets;
+        this.networkIds = networkIds;
+        this.deviceGuids = deviceGuids;
+    }
+
+    public static CompiledPermission compile(AccessKeyPermissionVO permission) {
+        BitSet actions = null;
+        Set<String> actionNames = permission.getActionsAsSet();
+        if (actionNames != null) {
+            actions = new BitSet();
+            for (String action : actionNames) {
+                int bit = actionBit(action);
+                if (bit >= 0) {
+                    actions.set(bit);
+                }
+            }
+        }
+        Set<String> domains = permission.getDomainsAsSet();
+        Set<Subnet> subnets = permission.getSubnetsAsSet();
+        Set<Long> networkIds = permission.getNetworkIdsAsSet();
+        Set<String> deviceGuids = permission.getDeviceGuidsAsSet();
+        return new CompiledPermission(
+                actions,
+                domains != null ? Collections.unmodifiableSet(domains) : null,
+                subnets != null ? subnets.toArray(new Subnet[subnets.size()]) : null,
+                networkIds != null ? networkIds.stream().mapToLong(Long::longValue).sorted().toArray() : null,
+                deviceGuids != null ? Collections.unmodifiableSet(new HashSet<>(deviceGuids)) : null);
+    }
+
+    /**
+     * @return bit of the action in compiled action sets, -1 if the action is not one of {@link AvailableActions};
+     * action names are case insensitive
+     */
+    public static int actionBit(String action) {
+        Integer bit = action != null ? ACTION_BITS.get(action.toLowerCase(Locale.ROOT)) : null;
+        return bit != null ? bit : -1;
+    }
+
+    private static Map<String, Integer> actionBits() {
+        String[] actions = AvailableActions.getAllActions();
+        Arrays.sort(actions);
+        Map<String, Integer> bits = new HashMap<>();
+        for (int i = 0; i < actions.length; i++) {
+            bits.put(actions[i].toLowerCase(Locale.ROOT), i);
+        }
+        return Collections.unmodifiableMap(bits);
+    }
+
+    public boolean isActionRestricted() {
+        return actions != null;
+    }
+
+    /**
+     * @param actionBit bit of the action from {@link #actionBit(String)}, negative bit is in no restricted set
+     */
+    public boolean hasAction(int actionBit) {
+        return actions == null || (actionBit >= 0 && actions.get(actionBit));
+    }
+
+    public boolean allowsAddress(InetAddress address) {
+        if (subnets == null) {
+            return true;
+        }
+        for (Subnet subnet : subnets) {
+            if (subnet != null && subnet.isAddressFromSubnet(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean allowsDomain(String domain) {
+        if (domains == null || domain == null) {
+            return true;
+        }
+        for (String allowed : domains) {
+            if (domain.endsWith(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isNetworkRestricted() {
+        return networkIds != null;
+    }
+
+    public boolean allowsNetwork(long networkId) {
+        return networkIds == null || Arrays.binarySearch(networkIds, networkId) >= 0;
+    }
+
+    /**
+     * @return sorted network ids, null if not restricted
+     */
+    public long[] getNetworkIds() {
+        return networkIds != null ? networkIds.clone() : null;
+    }
+
+    public boolean isDeviceRestricted() {
+        return deviceGuids != null;
+    }
+
+    public boolean allowsDevice(String deviceGuid) {
+        return deviceGuids == null || deviceGuids.contains(deviceGuid);
+    }
+
+    /**
+     * @return device guids, null if not restricted
+     */
+    public Set<String> getDeviceGuids() {
+        return deviceGuids;
+    }
+
+    /**
+     * @return true if the permission lists networks or devices, but none of them
+     */
+    public boolean isEmpty() {
+        return (networkIds != null && networkIds.length == 0) || (deviceGuids != null && deviceGuids.isEmpty());
+    }
+}
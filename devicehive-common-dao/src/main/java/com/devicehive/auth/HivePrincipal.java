@@ -5,9 +5,11 @@ import com.devicehive.vo.DeviceVO;
 import com.devicehive.vo.OAuthClientVO;
 import com.devicehive.vo.UserVO;
 
+import java.io.Serializable;
 import java.security.Principal;
 
-public class HivePrincipal implements Principal {
+public class HivePrincipal implements Principal, Serializable {
+    private static final long serialVersionUID = 3398215601837724918L;
 
     private UserVO user;
     private AccessKeyVO key;
@@ -30,6 +30,7 @@ public class Constants {
     public static final String OAUTH_AUTH_SCEME = "Bearer";
     public static final String AUTH_DEVICE_ID_HEADER = "Auth-DeviceID";
     public static final String AUTH_DEVICE_KEY_HEADER = "Auth-DeviceKey";
+    public static final String CONTINUATION_HEADER = "X-DeviceHive-Continuation";
     public static final ByteBuffer PING = ByteBuffer.wrap("devicehive-ping".getBytes(Charset.forName(UTF8)));
     public static final String DEVICE_OFFLINE_STATUS = "Offline";
     //API constants
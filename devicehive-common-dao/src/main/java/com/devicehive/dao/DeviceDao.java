@@ -1,6 +1,7 @@
 package com.devicehive.dao;
 
 import com.devicehive.auth.HivePrincipal;
+import com.devicehive.dao.filter.DeviceListCursor;
 import com.devicehive.vo.DeviceVO;
 
 import javax.validation.constraints.NotNull;
@@ -24,9 +25,13 @@ public interface DeviceDao {
 
     long getAllowedDeviceCount(HivePrincipal principal, List<String> guids);
 
+    /**
+     * @param after if given, the list continues right after this position and {@code skip} counts from there; the
+     *              list is then ordered by guid within equal values of the sort field
+     */
     List<DeviceVO> getList(String name, String namePattern, String status, Long networkId, String networkName,
                          Long deviceClassId, String deviceClassName, String sortField, @NotNull Boolean sortOrderAsc, Integer take,
-                         Integer skip, HivePrincipal principal);
+                         Integer skip, DeviceListCursor after, HivePrincipal principal);
 
     Map<String, Integer> getOfflineTimeForDevices(List<String> guids);
 
@@ -0,0 +1,85 @@
+package com.devicehive.dao.filter;
+
+import com.devicehive.configuration.Messages;
+import com.devicehive.exceptions.IllegalParametersException;
+import com.devicehive.vo.DeviceVO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a device listing right after a device: its value of the sort field (id if the listing is not sorted)
+ * and its guid, which orders devices with equal values. Clients get it with a page as an opaque token and send it
+ * back to read the next page, so the store reads that page directly instead of skipping all devices before it.
+ */
+public class DeviceListCursor {
+
+    private static final char NUMBER = 'n';
+    private static final char STRING = 's';
+    private static final char NONE = '-';
+
+    private final Object value;
+    private final String guid;
+
+    public DeviceListCursor(Object value, String guid) {
+        this.value = value;
+        this.guid = guid;
+    }
+
+    /**
+     * @return true if listings sorted by given field can be continued with a cursor
+     */
+    public static boolean supports(String sortField) {
+        return sortField == null || "name".equals(sortField) || "status".equals(sortField);
+    }
+
+    public static DeviceListCursor after(DeviceVO device, String sortField) {
+        Object value;
+        if (sortField == null) {
+            value = device.getId();
+        } else if ("name".equals(sortField)) {
+            value = device.getName();
+        } else {
+            value = device.getStatus();
+        }
+        return new DeviceListCursor(value, device.getGuid());
+    }
+
+    /**
+     * @return sort field value, a {@link Long} or a {@link String}, null if the device has none
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    public String getGuid() {
+        return guid;
+    }
+
+    public String encode() {
+        char type = value == null ? NONE : value instanceof Number ? NUMBER : STRING;
+        String text = guid + '\n' + type + (value != null ? value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static DeviceListCursor decode(String token) {
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = text.indexOf('\n');
+            String guid = text.substring(0, separator);
+            String value = text.substring(separator + 2);
+            switch (text.charAt(separator + 1)) {
+                case NUMBER:
+                    return new DeviceListCursor(Long.valueOf(value), guid);
+                case STRING:
+                    return new DeviceListCursor(value, guid);
+                case NONE:
+                    return new DeviceListCursor(null, guid);
+                default:
+                    throw new IllegalParametersException(Messages.INVALID_REQUEST_PARAMETERS);
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalParametersException(Messages.INVALID_REQUEST_PARAMETERS);
+        }
+    }
+}
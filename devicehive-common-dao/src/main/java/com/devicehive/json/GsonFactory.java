@@ -3,43 +3,76 @@ package com.devicehive.json;
 
 import com.devicehive.json.adapters.*;
 import com.devicehive.json.strategies.AnnotatedStrategy;
+import com.devicehive.json.strategies.JsonPolicyDef;
 import com.devicehive.model.enums.*;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static com.devicehive.json.strategies.JsonPolicyDef.Policy;
 
+/**
+ * Shared Gson instances, one per policy. Output is compact, pretty printing is enabled only with
+ * {@code -Djson.pretty=true} for debugging.
+ * <p>
+ * Gson resolves serialized fields of a type once per instance and keeps them as a type adapter, so
+ * {@link AnnotatedStrategy} is consulted when a type is first seen under a policy, not on every serialization.
+ * {@link #prepare(Class[])} builds these field tables ahead for types known to be hot.
+ */
 public class GsonFactory {
 
-    private static Map<Policy, Gson> cache = new ConcurrentHashMap<>();
-    private static Gson gson = createGsonBuilder().create();
+    private static final boolean PRETTY_PRINTING = Boolean.getBoolean("json.pretty");
+
+    private static final Map<Policy, Gson> cache = new ConcurrentHashMap<>();
+    private static final Gson gson = createGsonBuilder().create();
 
     public static Gson createGson() {
         return gson;
     }
 
     public static Gson createGson(Policy policy) {
-        Gson gson = cache.get(policy);
-        if (gson != null) {
-            return gson;
+        return cache.computeIfAbsent(policy, key -> createGsonBuilder()
+            .addDeserializationExclusionStrategy(new AnnotatedStrategy(key))
+            .addSerializationExclusionStrategy(new AnnotatedStrategy(key))
+            .create());
+    }
+
+    /**
+     * Resolves field tables of given types for the default instance and for every policy listed on their fields
+     * (including superclass fields).
+     */
+    public static void prepare(Class<?>... types) {
+        for (Class<?> type : types) {
+            createGson().getAdapter(type);
+            for (Policy policy : policies(type)) {
+                createGson(policy).getAdapter(type);
+            }
         }
-        gson = createGsonBuilder()
-            .addDeserializationExclusionStrategy(new AnnotatedStrategy(policy))
-            .addSerializationExclusionStrategy(new AnnotatedStrategy(policy))
-            .create();
-        cache.put(policy, gson);
-        return gson;
     }
 
+    private static Set<Policy> policies(Class<?> type) {
+        Set<Policy> policies = EnumSet.noneOf(Policy.class);
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                JsonPolicyDef policyAnnotation = field.getAnnotation(JsonPolicyDef.class);
+                if (policyAnnotation != null) {
+                    policies.addAll(Arrays.asList(policyAnnotation.value()));
+                }
+            }
+        }
+        return policies;
+    }
 
     private static GsonBuilder createGsonBuilder() {
-        return new GsonBuilder()
+        GsonBuilder builder = new GsonBuilder()
             .disableHtmlEscaping()
-            .setPrettyPrinting()
             .serializeNulls()
             .registerTypeAdapterFactory(new OptionalAdapterFactory())
             .registerTypeAdapterFactory(new JsonStringWrapperAdapterFactory())
@@ -49,6 +82,7 @@ public class GsonFactory {
             .registerTypeAdapter(Type.class, new OAuthTypeAdapter())
             .registerTypeAdapter(AccessType.class, new AccessTypeAdapter())
             .registerTypeAdapter(AccessKeyType.class, new AccessKeyStatusAdapter());
+        return PRETTY_PRINTING ? builder.setPrettyPrinting() : builder;
     }
 
 }
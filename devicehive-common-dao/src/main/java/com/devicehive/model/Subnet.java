@@ -2,7 +2,6 @@ package com.devicehive.model;
 
 
 import com.devicehive.exceptions.HiveException;
-import org.apache.commons.net.util.SubnetUtils;
 
 import javax.ws.rs.core.Response;
 import java.net.Inet4Address;
@@ -18,6 +17,12 @@ public class Subnet {
     private int mask;
     private String subnet;
 
+    /**
+     * Network address and netmask of IPv4 subnet, precomputed so that address checks do not parse the subnet.
+     */
+    private transient int network;
+    private transient int netmask;
+
     public Subnet() {
     }
 
@@ -36,23 +41,36 @@ public class Subnet {
             if (inetAddress instanceof Inet4Address && mask > IPv4_MASK_MAX_VALUE) {
                 throw new IllegalArgumentException("Invalid mask value : " + mask);
             }
+            if (inetAddress instanceof Inet4Address) {
+                netmask = mask == 0 ? 0 : -1 << (IPv4_MASK_MAX_VALUE - mask);
+                network = toInt(inetAddress) & netmask;
+            }
         } catch (UnknownHostException e) {
             throw new HiveException("Unable to resolve subnet", Response.Status.BAD_REQUEST.getStatusCode());
         }
     }
 
+    /**
+     * Same as {@code new SubnetUtils(subnet).getInfo().isInRange(ip)}: network and broadcast addresses of subnets
+     * with more than two addresses are not in range.
+     */
     public boolean isAddressFromSubnet(InetAddress ip) {
-        if (ip instanceof Inet6Address) {
+        if (ip instanceof Inet6Address || !(inetAddress instanceof Inet4Address)) {
             return false;
         }
-        if (inetAddress.getHostAddress().equalsIgnoreCase(ip.getHostAddress()) && mask == 32) {
-            return true;
-        }
         if (mask == 0) {
             return true;
         }
-        SubnetUtils utils = new SubnetUtils(subnet);
-        return utils.getInfo().isInRange(ip.getHostAddress());
+        int address = toInt(ip);
+        if ((address & netmask) != network) {
+            return false;
+        }
+        return mask >= IPv4_MASK_MAX_VALUE - 1 || (address != network && address != (network | ~netmask));
+    }
+
+    private static int toInt(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
     }
 
     public InetAddress getInetAddress() {
@@ -1,5 +1,6 @@
 package com.devicehive.vo;
 
+import com.devicehive.auth.CompiledPermission;
 import com.devicehive.exceptions.HiveException;
 import com.devicehive.json.GsonFactory;
 import com.devicehive.json.strategies.JsonPolicyDef;
@@ -34,6 +35,8 @@ public class AccessKeyPermissionVO implements HiveEntity {
     @JsonPolicyDef({ACCESS_KEY_LISTED, ACCESS_KEY_PUBLISHED, OAUTH_GRANT_LISTED_ADMIN, OAUTH_GRANT_LISTED})
     private JsonStringWrapper deviceGuids;
 
+    private transient volatile CompiledPermission compiled;
+
     public Long getId() {
         return id;
     }
@@ -48,6 +51,7 @@ public class AccessKeyPermissionVO implements HiveEntity {
 
     public void setDomains(JsonStringWrapper domains) {
         this.domains = domains;
+        this.compiled = null;
     }
 
     public JsonStringWrapper getSubnets() {
@@ -56,6 +60,7 @@ public class AccessKeyPermissionVO implements HiveEntity {
 
     public void setSubnets(JsonStringWrapper subnets) {
         this.subnets = subnets;
+        this.compiled = null;
     }
 
     public JsonStringWrapper getActions() {
@@ -64,6 +69,7 @@ public class AccessKeyPermissionVO implements HiveEntity {
 
     public void setActions(JsonStringWrapper actions) {
         this.actions = actions;
+        this.compiled = null;
     }
 
     public JsonStringWrapper getNetworkIds() {
@@ -72,6 +78,7 @@ public class AccessKeyPermissionVO implements HiveEntity {
 
     public void setNetworkIds(JsonStringWrapper networkIds) {
         this.networkIds = networkIds;
+        this.compiled = null;
     }
 
     public JsonStringWrapper getDeviceGuids() {
@@ -80,6 +87,19 @@ public class AccessKeyPermissionVO implements HiveEntity {
 
     public void setDeviceGuids(JsonStringWrapper deviceGuids) {
         this.deviceGuids = deviceGuids;
+        this.compiled = null;
+    }
+
+    /**
+     * @return parsed permission, built on first call and kept until any of the permission fields is set
+     */
+    public CompiledPermission compile() {
+        CompiledPermission result = compiled;
+        if (result == null) {
+            result = CompiledPermission.compile(this);
+            compiled = result;
+        }
+        return result;
     }
 
     //// Some nasty helpers.
@@ -87,6 +107,7 @@ public class AccessKeyPermissionVO implements HiveEntity {
     public void setActionsArray(String... actions) {
         Gson gson = GsonFactory.createGson();
         this.actions = new JsonStringWrapper(gson.toJsonTree(actions).toString());
+        this.compiled = null;
     }
 
     public Set<String> getDomainsAsSet() {
@@ -148,21 +169,25 @@ public class AccessKeyPermissionVO implements HiveEntity {
     public void setDomainArray(String... domains) {
         Gson gson = GsonFactory.createGson();
         this.domains = new JsonStringWrapper(gson.toJsonTree(domains).toString());
+        this.compiled = null;
     }
 
     public void setSubnetsArray(String... subnets) {
         Gson gson = GsonFactory.createGson();
         this.subnets = new JsonStringWrapper(gson.toJsonTree(subnets).toString());
+        this.compiled = null;
     }
 
     public void setNetworkIdsCollection(Collection<Long> actions) {
         Gson gson = GsonFactory.createGson();
         this.networkIds = new JsonStringWrapper(gson.toJsonTree(actions).toString());
+        this.compiled = null;
     }
 
     public void setDeviceGuidsCollection(Collection<String> deviceGuids) {
         Gson gson = GsonFactory.createGson();
         this.deviceGuids = new JsonStringWrapper(gson.toJsonTree(deviceGuids).toString());
+        this.compiled = null;
     }
 
     private Set<String> getJsonAsSet(JsonStringWrapper wrapper) {
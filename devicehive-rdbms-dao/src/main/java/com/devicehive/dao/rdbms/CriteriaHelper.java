@@ -2,6 +2,7 @@ package com.devicehive.dao.rdbms;
 
 import com.devicehive.auth.HivePrincipal;
 import com.devicehive.dao.filter.AccessKeyBasedFilterForDevices;
+import com.devicehive.dao.filter.DeviceListCursor;
 import com.devicehive.model.*;
 import com.devicehive.vo.AccessKeyPermissionVO;
 import com.devicehive.vo.UserVO;
@@ -78,6 +79,33 @@ public class CriteriaHelper {
         });
     }
 
+    /**
+     * Orders devices by given field, by id if none, then by guid: the order {@link DeviceListCursor} positions refer
+     * to. Missing values are ordered as empty strings, so the order does not depend on the database.
+     */
+    public static void deviceOrder(CriteriaBuilder cb, CriteriaQuery<?> cq, Root<Device> from, Optional<String> sortFieldOpt, boolean asc) {
+        Expression<?> sortKey = deviceSortKey(cb, from, sortFieldOpt);
+        cq.orderBy(asc ? cb.asc(sortKey) : cb.desc(sortKey), cb.asc(from.get(GUID)));
+    }
+
+    /**
+     * Creates predicate matching devices following given position in {@link #deviceOrder} order.
+     */
+    @SuppressWarnings("unchecked")
+    public static Predicate deviceAfterPredicate(CriteriaBuilder cb, Root<Device> from, Optional<String> sortFieldOpt, boolean asc,
+                                                 DeviceListCursor after) {
+        Expression<Comparable> sortKey = (Expression<Comparable>) deviceSortKey(cb, from, sortFieldOpt);
+        Comparable value = after.getValue() != null ? (Comparable) after.getValue() : "";
+        Predicate following = asc ? cb.greaterThan(sortKey, value) : cb.lessThan(sortKey, value);
+        Predicate sameValue = cb.and(cb.equal(sortKey, value), cb.greaterThan(from.<String>get(GUID), after.getGuid()));
+        return cb.or(following, sameValue);
+    }
+
+    private static Expression<?> deviceSortKey(CriteriaBuilder cb, Root<Device> from, Optional<String> sortFieldOpt) {
+        return sortFieldOpt.<Expression<?>>map(sortField -> cb.coalesce(from.<String>get(sortField), ""))
+                .orElseGet(() -> from.get("id"));
+    }
+
     public static Predicate[] userListPredicates(CriteriaBuilder cb, Root<User> from, Optional<String> loginOpt, Optional<String> loginPattern, Optional<Integer> roleOpt, Optional<Integer> statusOpt) {
         List<Predicate> predicates = new LinkedList<>();
 
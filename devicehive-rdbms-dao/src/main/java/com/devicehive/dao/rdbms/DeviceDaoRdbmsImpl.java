@@ -2,6 +2,7 @@ package com.devicehive.dao.rdbms;
 
 import com.devicehive.auth.HivePrincipal;
 import com.devicehive.dao.DeviceDao;
+import com.devicehive.dao.filter.DeviceListCursor;
 import com.devicehive.model.Device;
 import com.devicehive.model.DeviceClass;
 import com.devicehive.model.Network;
@@ -19,6 +20,8 @@ import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.sql.DataSource;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -138,17 +141,23 @@ public class DeviceDaoRdbmsImpl extends RdbmsGenericDao implements DeviceDao {
     @Override
     public List<DeviceVO> getList(String name, String namePattern, String status, Long networkId, String networkName,
                                 Long deviceClassId, String deviceClassName, String sortField, @NotNull Boolean sortOrderAsc, Integer take,
-                                Integer skip, HivePrincipal principal) {
+                                Integer skip, DeviceListCursor after, HivePrincipal principal) {
         final CriteriaBuilder cb = criteriaBuilder();
         final CriteriaQuery<Device> criteria = cb.createQuery(Device.class);
         final Root<Device> from = criteria.from(Device.class);
 
-        final Predicate [] predicates = CriteriaHelper.deviceListPredicates(cb, from, ofNullable(name), ofNullable(namePattern),
-                ofNullable(status), ofNullable(networkId), ofNullable(networkName),
-                ofNullable(deviceClassId), ofNullable(deviceClassName), ofNullable(principal));
-
-        criteria.where(predicates);
-        CriteriaHelper.order(cb, criteria, from, ofNullable(sortField), sortOrderAsc);
+        final List<Predicate> predicates = new ArrayList<>(Arrays.asList(CriteriaHelper.deviceListPredicates(cb, from,
+                ofNullable(name), ofNullable(namePattern), ofNullable(status), ofNullable(networkId), ofNullable(networkName),
+                ofNullable(deviceClassId), ofNullable(deviceClassName), ofNullable(principal))));
+        ofNullable(after).ifPresent(cursor -> predicates.add(
+                CriteriaHelper.deviceAfterPredicate(cb, from, ofNullable(sortField), sortOrderAsc, cursor)));
+
+        criteria.where(predicates.toArray(new Predicate[predicates.size()]));
+        if (DeviceListCursor.supports(sortField)) {
+            CriteriaHelper.deviceOrder(cb, criteria, from, ofNullable(sortField), sortOrderAsc);
+        } else {
+            CriteriaHelper.order(cb, criteria, from, ofNullable(sortField), sortOrderAsc);
+        }
 
         final TypedQuery<Device> query = createQuery(criteria);
         cacheQuery(query, of(CacheConfig.refresh()));
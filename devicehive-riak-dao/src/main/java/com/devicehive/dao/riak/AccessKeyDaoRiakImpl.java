@@ -5,8 +5,6 @@ import com.basho.riak.client.api.commands.indexes.IntIndexQuery;
 import com.basho.riak.client.api.commands.kv.DeleteValue;
 import com.basho.riak.client.api.commands.kv.FetchValue;
 import com.basho.riak.client.api.commands.kv.StoreValue;
-import com.basho.riak.client.api.commands.mapreduce.BucketMapReduce;
-import com.basho.riak.client.api.commands.mapreduce.MapReduce;
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.Namespace;
 import com.devicehive.dao.AccessKeyDao;
@@ -235,25 +233,22 @@ public class AccessKeyDaoRiakImpl extends RiakGenericDao implements AccessKeyDao
             String labelPattern, Integer type,
             String sortField, Boolean isSortOrderAsc,
             Integer take, Integer skip) {
-        BucketMapReduce.Builder builder = new BucketMapReduce.Builder()
-                .withNamespace(ACCESS_KEY_NS);
-        addMapValues(builder);
-        addReduceFilter(builder, "userId", FilterOperator.EQUAL, userId);
+        RiakQuery query = new RiakQuery(ACCESS_KEY_NS);
+        query.filter("userId", FilterOperator.EQUAL, userId);
         if (label != null) {
-            addReduceFilter(builder, "label", FilterOperator.EQUAL, label);
+            query.filter("label", FilterOperator.EQUAL, label);
         } else if (labelPattern != null) {
             labelPattern = labelPattern.replace("%", "");
-            addReduceFilter(builder, "label", FilterOperator.REGEX, labelPattern);
+            query.filter("label", FilterOperator.REGEX, labelPattern);
         }
         if (type != null) {
             String typeString = AccessKeyType.getValueForIndex(type).toString();
-            addReduceFilter(builder, "type", FilterOperator.EQUAL, typeString);
+            query.filter("type", FilterOperator.EQUAL, typeString);
         }
-        addReduceSort(builder, sortField, isSortOrderAsc);
-        addReducePaging(builder, true, take, skip);
+        query.sort(sortField, isSortOrderAsc);
+        query.page(take, skip);
         try {
-            MapReduce.Response response = client.execute(builder.build());
-            return response.getResultsFromAllPhases(RiakAccessKey.class).stream()
+            return list(query, RiakAccessKey.class).stream()
                     .map(RiakAccessKey::convert).collect(Collectors.toList());
         } catch (InterruptedException | ExecutionException e) {
             throw new HivePersistenceLayerException("Cannot perform search access key.", e);
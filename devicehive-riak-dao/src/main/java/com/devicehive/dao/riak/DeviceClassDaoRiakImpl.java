@@ -4,8 +4,6 @@ import com.basho.riak.client.api.commands.indexes.BinIndexQuery;
 import com.basho.riak.client.api.commands.kv.DeleteValue;
 import com.basho.riak.client.api.commands.kv.FetchValue;
 import com.basho.riak.client.api.commands.kv.StoreValue;
-import com.basho.riak.client.api.commands.mapreduce.BucketMapReduce;
-import com.basho.riak.client.api.commands.mapreduce.MapReduce;
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.Namespace;
 import com.devicehive.dao.DeviceClassDao;
@@ -55,6 +53,16 @@ public class DeviceClassDaoRiakImpl extends RiakGenericDao implements DeviceClas
         }
     }
 
+    /**
+     * Fetches device classes with given ids in one batch.
+     */
+    Map<Long, DeviceClassWithEquipmentVO> find(Collection<Long> ids) {
+        Map<Long, DeviceClassWithEquipmentVO> result = new HashMap<>();
+        findByIds(ids, DEVICE_CLASS_NS, RiakDeviceClass.class)
+                .forEach((id, deviceClass) -> result.put(id, RiakDeviceClass.convertDeviceClassWithEquipment(deviceClass)));
+        return result;
+    }
+
     @Override
     public DeviceClassWithEquipmentVO persist(DeviceClassWithEquipmentVO deviceClass) {
         return merge(deviceClass);
@@ -96,20 +104,17 @@ public class DeviceClassDaoRiakImpl extends RiakGenericDao implements DeviceClas
     @Override
     public List<DeviceClassWithEquipmentVO> getDeviceClassList(String name, String namePattern, String sortField,
             Boolean isSortOrderAsc, Integer take, Integer skip) {
-        BucketMapReduce.Builder builder = new BucketMapReduce.Builder()
-                .withNamespace(DEVICE_CLASS_NS);
-        addMapValues(builder);
+        RiakQuery query = new RiakQuery(DEVICE_CLASS_NS);
         if (name != null) {
-            addReduceFilter(builder, "name", FilterOperator.EQUAL, name);
+            query.filter("name", FilterOperator.EQUAL, name);
         } else if (namePattern != null) {
             namePattern = namePattern.replace("%", "");
-            addReduceFilter(builder, "name", FilterOperator.REGEX, namePattern);
+            query.filter("name", FilterOperator.REGEX, namePattern);
         }
-        addReduceSort(builder, sortField, isSortOrderAsc);
-        addReducePaging(builder, true, take, skip);
+        query.sort(sortField, isSortOrderAsc);
+        query.page(take, skip);
         try {
-            MapReduce.Response response = client.execute(builder.build());
-            return response.getResultsFromAllPhases(RiakDeviceClass.class).stream()
+            return list(query, RiakDeviceClass.class).stream()
                     .map(RiakDeviceClass::convertDeviceClassWithEquipment).collect(Collectors.toList());
         } catch (InterruptedException | ExecutionException e) {
             throw new HivePersistenceLayerException("Cannot get device class list.", e);
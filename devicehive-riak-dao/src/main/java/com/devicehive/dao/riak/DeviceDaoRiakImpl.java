@@ -3,17 +3,16 @@ package com.devicehive.dao.riak;
 import com.basho.riak.client.api.commands.indexes.BinIndexQuery;
 import com.basho.riak.client.api.commands.kv.DeleteValue;
 import com.basho.riak.client.api.commands.kv.FetchValue;
+import com.basho.riak.client.api.commands.kv.ListKeys;
 import com.basho.riak.client.api.commands.kv.StoreValue;
-import com.basho.riak.client.api.commands.mapreduce.BucketMapReduce;
-import com.basho.riak.client.api.commands.mapreduce.MapReduce;
+import com.basho.riak.client.core.netty.RiakResponseException;
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.Namespace;
 import com.devicehive.auth.HivePrincipal;
 import com.devicehive.auth.HiveRoles;
-import com.devicehive.dao.DeviceClassDao;
 import com.devicehive.dao.DeviceDao;
-import com.devicehive.dao.NetworkDao;
 import com.devicehive.dao.filter.AccessKeyBasedFilterForDevices;
+import com.devicehive.dao.filter.DeviceListCursor;
 import com.devicehive.dao.riak.model.NetworkDevice;
 import com.devicehive.dao.riak.model.RiakDevice;
 import com.devicehive.dao.riak.model.RiakNetwork;
@@ -22,6 +21,7 @@ import com.devicehive.vo.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
@@ -30,6 +30,14 @@ import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
+/**
+ * Devices are stored under their guids prefixed with {@value #GUID_KEY_PREFIX}, so lookups by guid are single key
+ * reads. Earlier versions stored devices under numeric ids and looked them up with the guid secondary index; the
+ * prefix keeps the two kinds of keys apart in the same bucket. While {@code riak.device.legacy.keys} is on, a device
+ * missing under its guid key is looked up by the index; reads never write, an update stores the device under its
+ * guid key and the stale numeric-key copy stays until {@link #migrateLegacyKeys()} removes it. Once the migration
+ * has completed the fallback can be turned off.
+ */
 @Profile({"riak"})
 @Repository
 public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
@@ -37,14 +45,15 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
     private static final Logger LOGGER = LoggerFactory.getLogger(DeviceDaoRiakImpl.class);
 
     private static final Namespace DEVICE_NS = new Namespace("device");
+    private static final String GUID_KEY_PREFIX = "guid:";
     private static final Location COUNTERS_LOCATION = new Location(new Namespace("counters", "dh_counters"),
             "deviceCounter");
 
     @Autowired
-    private NetworkDao networkDao;
+    private NetworkDaoRiakImpl networkDao;
 
     @Autowired
-    private DeviceClassDao deviceClassDao;
+    private DeviceClassDaoRiakImpl deviceClassDao;
 
     @Autowired
     private UserNetworkDaoRiakImpl userNetworkDao;
@@ -52,12 +61,15 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
     @Autowired
     private NetworkDeviceDaoRiakImpl networkDeviceDao;
 
+    @Value("${riak.device.legacy.keys:true}")
+    private boolean legacyKeys;
+
     public DeviceDaoRiakImpl() {
     }
 
     @PostConstruct
     public void init() {
-        ((NetworkDaoRiakImpl) networkDao).setDeviceDao(this);
+        networkDao.setDeviceDao(this);
     }
 
     /**
@@ -68,12 +80,9 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
      */
     @Override
     public void changeStatusForDevices(String status, List<String> guids) {
-        for (String guid : guids) {
-            DeviceVO device = findByUUID(guid);
-            if (device != null) {
-                device.setStatus(status);
-                persist(device);
-            }
+        for (DeviceVO device : findByUUIDs(guids).values()) {
+            device.setStatus(status);
+            persist(device);
         }
     }
 
@@ -87,30 +96,24 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
     @Override
     public Map<String, Integer> getOfflineTimeForDevices(List<String> guids) {
         final Map<String, Integer> deviceInfo = new HashMap<>();
-        for (String guid : guids) {
-            DeviceVO device = findByUUID(guid);
-            if (device != null && device.getDeviceClass() != null) {
-                refreshRefs(device);
+        findByUUIDs(guids).forEach((guid, device) -> {
+            if (device.getDeviceClass() != null) {
                 deviceInfo.put(guid, device.getDeviceClass().getOfflineTimeout());
             }
-        }
+        });
         return deviceInfo;
     }
 
     @Override
     public DeviceVO findByUUID(String uuid) {
-        BinIndexQuery biq = new BinIndexQuery.Builder(DEVICE_NS, "guid", uuid).build();
+        if (uuid == null) {
+            return null;
+        }
         try {
-            BinIndexQuery.Response response = client.execute(biq);
-            List<BinIndexQuery.Response.Entry> entries = response.getEntries();
-            if (entries.isEmpty()) {
-                return null;
+            RiakDevice device = fetch(guidLocation(uuid));
+            if (device == null && legacyKeys) {
+                device = findLegacy(uuid);
             }
-            Location location = entries.get(0).getRiakObjectLocation();
-            FetchValue fetchOp = new FetchValue.Builder(location)
-                    .withOption(quorum.getReadQuorumOption(), quorum.getReadQuorum())
-                    .build();
-            RiakDevice device = getOrNull(client.execute(fetchOp), RiakDevice.class);
             //TODO [rafa] refreshRefs
             DeviceVO deviceVO = RiakDevice.convertToVo(device);
 //            deviceVO.setDeviceClass(device.getDeviceClass());
@@ -127,19 +130,18 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
     @Override
     public void persist(DeviceVO vo) {
         RiakDevice device = RiakDevice.convertToEntity(vo);
+        if (device.getGuid() == null) {
+            throw new HivePersistenceLayerException("Cannot persist device without guid.");
+        }
         try {
-            if (device.getId() == null) {
+            boolean isNew = device.getId() == null;
+            if (isNew) {
                 device.setId(getId());
             }
             if (device.getDeviceClass() != null && device.getDeviceClass().getEquipment() != null) {
                 device.getDeviceClass().getEquipment().clear();
             }
-            Location location = new Location(DEVICE_NS, String.valueOf(device.getId()));
-            StoreValue storeOp = new StoreValue.Builder(device)
-                    .withLocation(location)
-                    .withOption(quorum.getWriteQuorumOption(), quorum.getWriteQuorum())
-                    .build();
-            client.execute(storeOp);
+            store(device);
             vo.setId(device.getId());
         } catch (ExecutionException | InterruptedException e) {
             LOGGER.error("Exception accessing Riak Storage.", e);
@@ -163,16 +165,20 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
     @Override
     public int deleteByUUID(String guid) {
         try {
-            BinIndexQuery biq = new BinIndexQuery.Builder(DEVICE_NS, "guid", guid).build();
-            BinIndexQuery.Response response = client.execute(biq);
-            List<BinIndexQuery.Response.Entry> entries = response.getEntries();
-            if (entries.isEmpty()) {
-                return 0;
+            Location location = guidLocation(guid);
+            RiakDevice device = fetch(location);
+            if (device != null) {
+                delete(location);
+            }
+            if (legacyKeys) {
+                // the numeric key is known from the device, the index is queried only for devices never updated
+                Location legacy = device != null ? legacyLocation(device) : findLegacyLocation(guid);
+                if (legacy != null) {
+                    delete(legacy);
+                    return 1;
+                }
             }
-            Location location = entries.get(0).getRiakObjectLocation();
-            DeleteValue deleteOp = new DeleteValue.Builder(location).build();
-            client.execute(deleteOp);
-            return 1;
+            return device != null ? 1 : 0;
         } catch (ExecutionException | InterruptedException e) {
             LOGGER.error("Exception accessing Riak Storage.", e);
             throw new HivePersistenceLayerException("Cannot delete device by UUID.", e);
@@ -181,7 +187,11 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
 
     @Override
     public List<DeviceVO> getDeviceList(List<String> guids, HivePrincipal principal) {
-        List<DeviceVO> deviceList = guids.stream().map(this::findByUUID).collect(Collectors.toList());
+        Map<String, DeviceVO> devices = findByUUIDs(guids);
+        List<DeviceVO> deviceList = guids.stream()
+                .map(devices::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
 
         if (principal != null) {
             UserVO user = principal.getUser();
@@ -231,25 +241,23 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
     public List<DeviceVO> getList(String name, String namePattern, String status, Long networkId, String networkName,
             Long deviceClassId, String deviceClassName, String sortField,
             Boolean isSortOrderAsc, Integer take,
-            Integer skip, HivePrincipal principal) {
+            Integer skip, DeviceListCursor after, HivePrincipal principal) {
         //TODO [rafa] when filtering by device class name we have to instead query DeviceClass bucket for ids, and then use ids.
         // here is what happens, since device class is not embeddable in case of Riak we need to either keep id only and perform the logic above.
         // or we need to update device class embedded data in every device corresponding to the class, which is nighmare.
 
-        BucketMapReduce.Builder builder = new BucketMapReduce.Builder()
-                .withNamespace(DEVICE_NS);
-        addMapValues(builder);
+        RiakQuery query = new RiakQuery(DEVICE_NS);
         if (name != null) {
-            addReduceFilter(builder, "name", FilterOperator.EQUAL, name);
+            query.filter("name", FilterOperator.EQUAL, name);
         } else if (namePattern != null) {
             namePattern = namePattern.replace("%", "");
-            addReduceFilter(builder, "name", FilterOperator.REGEX, namePattern);
+            query.filter("name", FilterOperator.REGEX, namePattern);
         }
-        addReduceFilter(builder, "status", FilterOperator.EQUAL, status);
-        addReduceFilter(builder, "network.id", FilterOperator.EQUAL, networkId);
-        addReduceFilter(builder, "network.name", FilterOperator.EQUAL, networkName);
-        addReduceFilter(builder, "deviceClass.id", FilterOperator.EQUAL, deviceClassId);
-        addReduceFilter(builder, "deviceClass.name", FilterOperator.EQUAL, deviceClassName);
+        query.filter("status", FilterOperator.EQUAL, status);
+        query.filter("network.id", FilterOperator.EQUAL, networkId);
+        query.filter("network.name", FilterOperator.EQUAL, networkName);
+        query.filter("deviceClass.id", FilterOperator.EQUAL, deviceClassId);
+        query.filter("deviceClass.name", FilterOperator.EQUAL, deviceClassName);
 
         if (principal != null && !principal.getRole().equals(HiveRoles.ADMIN)) {
             UserVO user = principal.getUser();
@@ -259,7 +267,7 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
 
             if (user != null && !user.isAdmin()) {
                 Set<Long> networks = userNetworkDao.findNetworksForUser(user.getId());
-                addReduceFilter(builder, "network.id", FilterOperator.IN, networks);
+                query.filter("network.id", FilterOperator.IN, networks);
             }
 
             if (principal.getKey() != null && principal.getKey().getPermissions() != null) {
@@ -270,25 +278,80 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
                         .filter(guid -> (guid != null))
                         .forEach(guid -> deviceGuids.addAll(guid));
                 if (!deviceGuids.isEmpty()) {
-                    addReduceFilter(builder, "guid", FilterOperator.IN, deviceGuids);
+                    query.filter("guid", FilterOperator.IN, deviceGuids);
                 }
             } else if (principal.getDevice() != null) {
-                addReduceFilter(builder, "id", FilterOperator.EQUAL, principal.getDevice().getId());
+                query.filter("id", FilterOperator.EQUAL, principal.getDevice().getId());
             }
         }
-        addReduceSort(builder, sortField, isSortOrderAsc);
-        addReducePaging(builder, true, take, skip);
+        query.sort(sortField, isSortOrderAsc);
+        query.keyField("guid");
+        if (after != null) {
+            query.after(new RiakQuery.Cursor(after.getValue(), after.getGuid()));
+        }
+        query.page(take, skip);
         try {
-            MapReduce.Response response = client.execute(builder.build());
-
-            return response.getResultsFromAllPhases(RiakDevice.class).stream()
-                    .map(RiakDevice::convertToVo).collect(Collectors.toList());
+            Collection<RiakDevice> devices = list(query, RiakDevice.class);
+            if (legacyKeys) {
+                devices = withoutStaleCopies(devices);
+            }
+            return devices.stream().map(RiakDevice::convertToVo).collect(Collectors.toList());
         } catch (InterruptedException | ExecutionException e) {
             LOGGER.error("Exception accessing Riak Storage.", e);
             throw new HivePersistenceLayerException("Cannot get list of devices.", e);
         }
     }
 
+    /**
+     * Batched {@link #findByUUID(String)}: index lookups are issued concurrently, then devices, their networks and
+     * device classes are fetched in one batch each.
+     *
+     * @return found devices by guid
+     */
+    private Map<String, DeviceVO> findByUUIDs(Collection<String> guids) {
+        Map<String, DeviceVO> devices = new HashMap<>();
+        try {
+            Set<Location> locations = guids.stream()
+                    .filter(Objects::nonNull)
+                    .map(DeviceDaoRiakImpl::guidLocation)
+                    .collect(Collectors.toSet());
+            fetchByLocations(locations, RiakDevice.class)
+                    .forEach((location, device) -> devices.put(device.getGuid(), RiakDevice.convertToVo(device)));
+            if (legacyKeys && devices.size() < locations.size()) {
+                List<String> missing = guids.stream()
+                        .filter(guid -> guid != null && !devices.containsKey(guid))
+                        .collect(Collectors.toList());
+                findBySecondaryIndex("guid", missing, DEVICE_NS, RiakDevice.class)
+                        .forEach((guid, device) -> devices.put(guid, RiakDevice.convertToVo(device)));
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            LOGGER.error("Exception accessing Riak Storage.", e);
+            throw new HivePersistenceLayerException("Cannot find devices by UUID.", e);
+        }
+
+        Set<Long> networkIds = new HashSet<>();
+        Set<Long> deviceClassIds = new HashSet<>();
+        for (DeviceVO device : devices.values()) {
+            if (device.getNetwork() != null) {
+                networkIds.add(device.getNetwork().getId());
+            }
+            if (device.getDeviceClass() != null) {
+                deviceClassIds.add(device.getDeviceClass().getId());
+            }
+        }
+        Map<Long, NetworkVO> networks = networkDao.find(networkIds);
+        Map<Long, DeviceClassWithEquipmentVO> deviceClasses = deviceClassDao.find(deviceClassIds);
+        for (DeviceVO device : devices.values()) {
+            if (device.getNetwork() != null) {
+                device.setNetwork(networks.get(device.getNetwork().getId()));
+            }
+            if (device.getDeviceClass() != null) {
+                device.setDeviceClass(deviceClasses.get(device.getDeviceClass().getId()));
+            }
+        }
+        return devices;
+    }
+
     private DeviceVO refreshRefs(DeviceVO device) {
         if (device != null) {
             if (device.getNetwork() != null) {
@@ -306,6 +369,135 @@ public class DeviceDaoRiakImpl extends RiakGenericDao implements DeviceDao {
         return device;
     }
 
+    /**
+     * Moves devices stored under numeric keys to their guid keys. Safe to run while the application serves requests:
+     * numeric-key copies are never written by the application, and the guid key is written only if it does not exist
+     * yet, so a device updated meanwhile keeps its newer copy. The numeric key is deleted only after that.
+     *
+     * @return number of moved devices
+     */
+    public int migrateLegacyKeys() {
+        int migrated = 0;
+        try {
+            for (Location location : client.execute(new ListKeys.Builder(DEVICE_NS).build())) {
+                if (!isLegacy(location)) {
+                    continue;
+                }
+                RiakDevice device = fetch(location);
+                if (device == null || device.getGuid() == null) {
+                    continue;
+                }
+                if (!storeIfAbsent(device)) {
+                    LOGGER.debug("Device {} already stored under guid key, dropping numeric key copy", device.getGuid());
+                }
+                delete(location);
+                migrated++;
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            LOGGER.error("Exception accessing Riak Storage.", e);
+            throw new HivePersistenceLayerException("Cannot migrate device keys.", e);
+        }
+        LOGGER.info("{} devices moved to guid keys", migrated);
+        return migrated;
+    }
+
+    private RiakDevice findLegacy(String guid) throws ExecutionException, InterruptedException {
+        Location location = findLegacyLocation(guid);
+        return location != null ? fetch(location) : null;
+    }
+
+    private Location findLegacyLocation(String guid) throws ExecutionException, InterruptedException {
+        BinIndexQuery biq = new BinIndexQuery.Builder(DEVICE_NS, "guid", guid).build();
+        for (BinIndexQuery.Response.Entry entry : client.execute(biq).getEntries()) {
+            if (isLegacy(entry.getRiakObjectLocation())) {
+                return entry.getRiakObjectLocation();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A device updated before its numeric key was migrated is listed twice, the copy under its guid key is the
+     * current one.
+     */
+    private Collection<RiakDevice> withoutStaleCopies(Collection<RiakDevice> devices)
+            throws ExecutionException, InterruptedException {
+        Set<String> seen = new HashSet<>();
+        Set<Location> duplicated = devices.stream()
+                .map(RiakDevice::getGuid)
+                .filter(guid -> guid != null && !seen.add(guid))
+                .map(DeviceDaoRiakImpl::guidLocation)
+                .collect(Collectors.toSet());
+        if (duplicated.isEmpty()) {
+            return devices;
+        }
+        Map<Location, RiakDevice> current = fetchByLocations(duplicated, RiakDevice.class);
+        Set<String> listed = new HashSet<>();
+        List<RiakDevice> result = new ArrayList<>(devices.size());
+        for (RiakDevice device : devices) {
+            Location location = device.getGuid() != null ? guidLocation(device.getGuid()) : null;
+            if (location == null || !duplicated.contains(location)) {
+                result.add(device);
+            } else if (listed.add(device.getGuid())) {
+                result.add(current.getOrDefault(location, device));
+            }
+        }
+        return result;
+    }
+
+    private RiakDevice fetch(Location location) throws ExecutionException, InterruptedException {
+        FetchValue fetchOp = new FetchValue.Builder(location)
+                .withOption(quorum.getReadQuorumOption(), quorum.getReadQuorum())
+                .build();
+        return getOrNull(client.execute(fetchOp), RiakDevice.class);
+    }
+
+    private void store(RiakDevice device) throws ExecutionException, InterruptedException {
+        StoreValue storeOp = new StoreValue.Builder(device)
+                .withLocation(guidLocation(device.getGuid()))
+                .withOption(quorum.getWriteQuorumOption(), quorum.getWriteQuorum())
+                .build();
+        client.execute(storeOp);
+    }
+
+    /**
+     * Stores device under its guid key unless that key already holds a device.
+     *
+     * @return false if the key was taken
+     */
+    private boolean storeIfAbsent(RiakDevice device) throws ExecutionException, InterruptedException {
+        StoreValue storeOp = new StoreValue.Builder(device)
+                .withLocation(guidLocation(device.getGuid()))
+                .withOption(quorum.getWriteQuorumOption(), quorum.getWriteQuorum())
+                .withOption(StoreValue.Option.IF_NONE_MATCH, true)
+                .build();
+        try {
+            client.execute(storeOp);
+            return true;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RiakResponseException && "match_found".equals(e.getCause().getMessage())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private void delete(Location location) throws ExecutionException, InterruptedException {
+        client.execute(new DeleteValue.Builder(location).build());
+    }
+
+    private static Location guidLocation(String guid) {
+        return new Location(DEVICE_NS, GUID_KEY_PREFIX + guid);
+    }
+
+    private static boolean isLegacy(Location location) {
+        return !location.getKeyAsString().startsWith(GUID_KEY_PREFIX);
+    }
+
+    private static Location legacyLocation(RiakDevice device) {
+        return new Location(DEVICE_NS, String.valueOf(device.getId()));
+    }
+
     private Long getId() {
         return getId(COUNTERS_LOCATION);
     }
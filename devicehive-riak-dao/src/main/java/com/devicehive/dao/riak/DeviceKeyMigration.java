@@ -0,0 +1,48 @@
+package com.devicehive.dao.riak;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs {@link DeviceDaoRiakImpl#migrateLegacyKeys()} in background once the application has started, if
+ * {@code riak.device.migrate.keys} is enabled.
+ */
+@Profile({"riak"})
+@Component
+public class DeviceKeyMigration implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceKeyMigration.class);
+
+    @Autowired
+    private DeviceDaoRiakImpl deviceDao;
+
+    @Value("${riak.device.migrate.keys:false}")
+    private boolean enabled;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!enabled || !started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread migration = new Thread(() -> {
+            LOGGER.info("Moving devices to guid keys");
+            try {
+                deviceDao.migrateLegacyKeys();
+            } catch (RuntimeException e) {
+                LOGGER.error("Device key migration failed", e);
+            }
+        }, "riak-device-key-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+}
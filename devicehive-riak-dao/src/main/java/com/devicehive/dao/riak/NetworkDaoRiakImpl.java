@@ -4,8 +4,6 @@ import com.basho.riak.client.api.commands.indexes.BinIndexQuery;
 import com.basho.riak.client.api.commands.kv.DeleteValue;
 import com.basho.riak.client.api.commands.kv.FetchValue;
 import com.basho.riak.client.api.commands.kv.StoreValue;
-import com.basho.riak.client.api.commands.mapreduce.BucketMapReduce;
-import com.basho.riak.client.api.commands.mapreduce.MapReduce;
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.Namespace;
 import com.devicehive.auth.HivePrincipal;
@@ -127,6 +125,16 @@ public class NetworkDaoRiakImpl extends RiakGenericDao implements NetworkDao {
         return RiakNetwork.convert(vo);
     }
 
+    /**
+     * Fetches networks with given ids in one batch.
+     */
+    Map<Long, NetworkVO> find(Collection<Long> networkIds) {
+        Map<Long, NetworkVO> result = new HashMap<>();
+        findByIds(networkIds, NETWORK_NS, RiakNetwork.class)
+                .forEach((id, network) -> result.put(id, RiakNetwork.convert(network)));
+        return result;
+    }
+
     private RiakNetwork get(@NotNull Long networkId) {
         Location location = new Location(NETWORK_NS, String.valueOf(networkId));
         FetchValue fetchOp = new FetchValue.Builder(location)
@@ -175,15 +183,13 @@ public class NetworkDaoRiakImpl extends RiakGenericDao implements NetworkDao {
     @Override
     public List<NetworkVO> list(String name, String namePattern, String sortField, boolean isSortOrderAsc, Integer take,
             Integer skip, Optional<HivePrincipal> principalOptional) {
-        BucketMapReduce.Builder builder = new BucketMapReduce.Builder()
-                .withNamespace(NETWORK_NS);
-        addMapValues(builder);
+        RiakQuery query = new RiakQuery(NETWORK_NS);
 
         if (name != null) {
-            addReduceFilter(builder, "name", FilterOperator.EQUAL, name);
+            query.filter("name", FilterOperator.EQUAL, name);
         } else if (namePattern != null) {
             namePattern = namePattern.replace("%", "");
-            addReduceFilter(builder, "name", FilterOperator.REGEX, namePattern);
+            query.filter("name", FilterOperator.REGEX, namePattern);
         }
         if (principalOptional.isPresent()) {
             HivePrincipal principal = principalOptional.get();
@@ -195,7 +201,7 @@ public class NetworkDaoRiakImpl extends RiakGenericDao implements NetworkDao {
 
                 if (user != null && !user.isAdmin()) {
                     Set<Long> networks = userNetworkDao.findNetworksForUser(user.getId());
-                    addReduceFilter(builder, "id", FilterOperator.IN, networks);
+                    query.filter("id", FilterOperator.IN, networks);
                 }
 
                 if (principal.getKey() != null && principal.getKey().getPermissions() != null) {
@@ -205,20 +211,18 @@ public class NetworkDaoRiakImpl extends RiakGenericDao implements NetworkDao {
                         ids.addAll(id);
                     });
                     if (!ids.isEmpty()) {
-                        addReduceFilter(builder, "id", FilterOperator.IN, ids);
+                        query.filter("id", FilterOperator.IN, ids);
                     }
                 } else if (principal.getDevice() != null) {
-                    addReduceFilter(builder, "devices", FilterOperator.CONTAINS, principal.getDevice());
+                    query.filter("devices", FilterOperator.CONTAINS, principal.getDevice());
                 }
             }
         }
 
-        addReduceSort(builder, sortField, isSortOrderAsc);
-        addReducePaging(builder, true, take, skip);
+        query.sort(sortField, isSortOrderAsc);
+        query.page(take, skip);
         try {
-            MapReduce.Response response = client.execute(builder.build());
-
-            return response.getResultsFromAllPhases(RiakNetwork.class).stream()
+            return list(query, RiakNetwork.class).stream()
                     .map(RiakNetwork::convert).collect(Collectors.toList());
         } catch (InterruptedException | ExecutionException e) {
             throw new HivePersistenceLayerException("Cannot get list of networks.", e);
@@ -4,8 +4,6 @@ import com.basho.riak.client.api.commands.indexes.BinIndexQuery;
 import com.basho.riak.client.api.commands.kv.DeleteValue;
 import com.basho.riak.client.api.commands.kv.FetchValue;
 import com.basho.riak.client.api.commands.kv.StoreValue;
-import com.basho.riak.client.api.commands.mapreduce.BucketMapReduce;
-import com.basho.riak.client.api.commands.mapreduce.MapReduce;
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.Namespace;
 import com.devicehive.dao.OAuthClientDao;
@@ -155,22 +153,19 @@ public class OAuthClientDaoRiakImpl extends RiakGenericDao implements OAuthClien
             Boolean isSortOrderAsc,
             Integer take,
             Integer skip) {
-        BucketMapReduce.Builder builder = new BucketMapReduce.Builder()
-                .withNamespace(OAUTH_CLIENT_NS);
-        addMapValues(builder);
+        RiakQuery query = new RiakQuery(OAUTH_CLIENT_NS);
         if (name != null) {
-            addReduceFilter(builder, "name", FilterOperator.EQUAL, namePattern);
+            query.filter("name", FilterOperator.EQUAL, name);
         } else if (namePattern != null) {
             namePattern = namePattern.replace("%", "");
-            addReduceFilter(builder, "name", FilterOperator.REGEX, namePattern);
+            query.filter("name", FilterOperator.REGEX, namePattern);
         }
-        addReduceFilter(builder, "domain", FilterOperator.EQUAL, domain);
-        addReduceFilter(builder, "oauthId", FilterOperator.EQUAL, oauthId);
-        addReduceSort(builder, sortField, isSortOrderAsc);
-        addReducePaging(builder, true, take, skip);
+        query.filter("domain", FilterOperator.EQUAL, domain);
+        query.filter("oauthId", FilterOperator.EQUAL, oauthId);
+        query.sort(sortField, isSortOrderAsc);
+        query.page(take, skip);
         try {
-            MapReduce.Response response = client.execute(builder.build());
-            Collection<RiakOAuthClient> result = response.getResultsFromAllPhases(RiakOAuthClient.class);
+            Collection<RiakOAuthClient> result = list(query, RiakOAuthClient.class);
             return result.stream().map(RiakOAuthClient::convert).collect(Collectors.toList());
 
         } catch (InterruptedException | ExecutionException e) {
@@ -4,8 +4,6 @@ import com.basho.riak.client.api.commands.indexes.BinIndexQuery;
 import com.basho.riak.client.api.commands.kv.DeleteValue;
 import com.basho.riak.client.api.commands.kv.FetchValue;
 import com.basho.riak.client.api.commands.kv.StoreValue;
-import com.basho.riak.client.api.commands.mapreduce.BucketMapReduce;
-import com.basho.riak.client.api.commands.mapreduce.MapReduce;
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.Namespace;
 import com.devicehive.dao.AccessKeyDao;
@@ -187,28 +185,25 @@ public class OAuthGrantDaoRiakImpl extends RiakGenericDao implements OAuthGrantD
             Integer take,
             Integer skip) {
 
-        BucketMapReduce.Builder builder = new BucketMapReduce.Builder();
-
-        addMapValues(builder);
-        addReduceFilter(builder, "userId", FilterOperator.EQUAL, user.getId());
-        addReduceFilter(builder, "timestamp", FilterOperator.MORE, start);
-        addReduceFilter(builder, "timestamp", FilterOperator.LESS, end);
-        addReduceFilter(builder, "client.oauthId", FilterOperator.EQUAL, clientOAuthId);
+        RiakQuery query = new RiakQuery(OAUTH_GRANT_NS);
+        query.filter("userId", FilterOperator.EQUAL, user.getId());
+        query.filter("timestamp", FilterOperator.MORE, start);
+        query.filter("timestamp", FilterOperator.LESS, end);
+        query.filter("client.oauthId", FilterOperator.EQUAL, clientOAuthId);
         if (type != null) {
             String typeString = Type.getValueForIndex(type).toString();
-            addReduceFilter(builder, "type", FilterOperator.EQUAL, typeString);
+            query.filter("type", FilterOperator.EQUAL, typeString);
         }
-        addReduceFilter(builder, "scope", FilterOperator.EQUAL, scope);
-        addReduceFilter(builder, "redirectUri", FilterOperator.EQUAL, redirectUri);
+        query.filter("scope", FilterOperator.EQUAL, scope);
+        query.filter("redirectUri", FilterOperator.EQUAL, redirectUri);
         if (accessType != null) {
             String accessTypeString = AccessType.getValueForIndex(accessType).toString();
-            addReduceFilter(builder, "accessType", FilterOperator.EQUAL, accessTypeString);
+            query.filter("accessType", FilterOperator.EQUAL, accessTypeString);
         }
-        addReduceSort(builder, sortField, isSortOrderAsc);
-        addReducePaging(builder, true, take, skip);
+        query.sort(sortField, isSortOrderAsc);
+        query.page(take, skip);
         try {
-            MapReduce.Response response = client.execute(builder.build());
-            Collection<RiakOAuthGrant> grants = response.getResultsFromAllPhases(RiakOAuthGrant.class);
+            Collection<RiakOAuthGrant> grants = list(query, RiakOAuthGrant.class);
             return grants.stream().map(RiakOAuthGrant::convert).collect(Collectors.toList());
         } catch (InterruptedException | ExecutionException e) {
             LOGGER.error("Exception accessing Riak Storage.", e);
@@ -1,16 +1,14 @@
 package com.devicehive.dao.riak;
 
 import com.basho.riak.client.api.RiakClient;
-import com.basho.riak.client.api.cap.Quorum;
 import com.basho.riak.client.api.cap.UnresolvedConflictException;
-import com.basho.riak.client.api.commands.datatypes.CounterUpdate;
-import com.basho.riak.client.api.commands.datatypes.UpdateCounter;
-import com.basho.riak.client.api.commands.datatypes.UpdateDatatype;
 import com.basho.riak.client.api.commands.indexes.*;
 import com.basho.riak.client.api.commands.kv.DeleteValue;
 import com.basho.riak.client.api.commands.kv.FetchValue;
 import com.basho.riak.client.api.commands.kv.MultiFetch;
 import com.basho.riak.client.api.commands.mapreduce.BucketMapReduce;
+import com.basho.riak.client.api.commands.mapreduce.MapReduce;
+import com.basho.riak.client.api.commands.search.Search;
 import com.basho.riak.client.core.RiakFuture;
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.Namespace;
@@ -18,11 +16,24 @@ import com.basho.riak.client.core.query.functions.Function;
 import com.devicehive.configuration.Constants;
 import com.devicehive.exceptions.HivePersistenceLayerException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
@@ -30,6 +41,17 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class RiakGenericDao {
 
+    private static final Logger logger = LoggerFactory.getLogger(RiakGenericDao.class);
+
+    /**
+     * Fields indexed by search schema {@value RiakSearchIndexes#SCHEMA_NAME}, listing queries on other fields fall
+     * back to MapReduce.
+     */
+    static final Set<String> SEARCH_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "id", "guid", "name", "status", "label", "type", "login", "role", "domain", "oauthId", "userId",
+            "timestamp", "scope", "redirectUri", "accessType", "network.id", "network.name", "deviceClass.id",
+            "deviceClass.name", "client.oauthId")));
+
     protected static enum FilterOperator {
         EQUAL("="), MORE(">"), LESS("<"),
         MORE_EQUAL(">="), LESS_EQUAL("<="), NOT_EQUAL("!="),
@@ -56,6 +78,12 @@ public class RiakGenericDao {
     @Autowired
     protected RiakQuorum quorum;
 
+    @Autowired
+    private RiakIdAllocator idAllocator;
+
+    @Value("${riak.search.enabled:false}")
+    private boolean searchEnabled;
+
     private final String MAP_REDUCE_FUNCTIONS_MODULE = "dhmr";
 
     protected final Function REDUCE_SORT = Function.newErlangFunction(MAP_REDUCE_FUNCTIONS_MODULE, "reduce_sort");
@@ -69,18 +97,103 @@ public class RiakGenericDao {
         return getId(location, 1);
     }
 
+    /**
+     * Allocates {@code count} consecutive ids from the counter at given location, see {@link RiakIdAllocator}.
+     *
+     * @return the highest of allocated ids
+     */
     protected Long getId(Location location, int count) {
-        CounterUpdate cu = new CounterUpdate(count);
-        UpdateCounter update = new UpdateCounter.Builder(location, cu)
-                .withOption(UpdateDatatype.Option.PW, Quorum.allQuorum())
-                .withReturnDatatype(true).build();
-        UpdateCounter.Response response;
-        try {
-            response = client.execute(update);
-        } catch (ExecutionException | InterruptedException e) {
-            throw new HivePersistenceLayerException(String.format("Unable to generate id for %s", location), e);
+        return idAllocator.allocate(location, count);
+    }
+
+    /**
+     * Executes listing query. With {@code riak.search.enabled} the query is answered by the search index of the
+     * bucket and only the requested page is fetched; queries the index cannot answer, or any search failure, fall
+     * back to full bucket MapReduce.
+     */
+    protected <T> Collection<T> list(RiakQuery query, Class<T> clazz) throws ExecutionException, InterruptedException {
+        if (searchEnabled && query.isSearchable(SEARCH_FIELDS)) {
+            try {
+                return search(query, clazz);
+            } catch (ExecutionException | RuntimeException e) {
+                logger.warn("Search in {} failed, falling back to MapReduce", query.getNamespace(), e);
+            }
+        }
+        if (query.getAfter() != null) {
+            return mapReduceAfter(query, clazz);
+        }
+        MapReduce.Response response = client.execute(toMapReduce(query).build());
+        return response.getResultsFromAllPhases(clazz);
+    }
+
+    /**
+     * Reads a page from the search index. A query with a cursor selects the key range following it (sort field
+     * value, then key field), so the cost of a page does not depend on its position.
+     */
+    private <T> List<T> search(RiakQuery query, Class<T> clazz) throws ExecutionException, InterruptedException {
+        Search search = new Search.Builder(RiakSearchIndexes.indexName(query.getNamespace()), query.toSearchQuery())
+                .withStart(query.getStart())
+                .withRows(query.getRows())
+                .sort(query.toSearchSort())
+                .returnFields("_yz_rk")
+                .build();
+        List<Location> locations = client.execute(search).getAllResults().stream()
+                .map(doc -> new Location(query.getNamespace(), doc.get("_yz_rk").get(0)))
+                .collect(Collectors.toList());
+        Map<Location, T> fetched = fetchByLocations(locations, clazz);
+        return locations.stream().map(fetched::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * MapReduce fallback of a query with a cursor. Objects from the cursor value on are read in sort field order,
+     * runs of equal values are ordered by key field here, then the objects up to the cursor are dropped and the
+     * page is cut.
+     */
+    private <T> List<T> mapReduceAfter(RiakQuery query, Class<T> clazz) throws ExecutionException, InterruptedException {
+        BucketMapReduce.Builder builder = toMapReduceFilters(query);
+        RiakQuery.Cursor after = query.getAfter();
+        addReduceFilter(builder, query.getSearchSortField(),
+                Boolean.FALSE.equals(query.getSortOrderAsc()) ? FilterOperator.LESS_EQUAL : FilterOperator.MORE_EQUAL,
+                after.value);
+        addReduceSort(builder, true, query.getSortField(), query.getSortOrderAsc());
+        List<T> sorted = new ArrayList<>(client.execute(builder.build()).getResultsFromAllPhases(clazz));
+
+        List<T> following = new ArrayList<>();
+        int runStart = 0;
+        for (int i = 1; i <= sorted.size(); i++) {
+            if (i < sorted.size()
+                    && Objects.equals(query.getSortValue(sorted.get(i)), query.getSortValue(sorted.get(runStart)))) {
+                continue;
+            }
+            List<T> run = sorted.subList(runStart, i);
+            run.sort(Comparator.comparing(query::getKeyValue, Comparator.nullsFirst(Comparator.naturalOrder())));
+            boolean cursorRun = Objects.equals(query.getSortValue(run.get(0)), after.value);
+            for (T object : run) {
+                String key = query.getKeyValue(object);
+                if (!cursorRun || (key != null && key.compareTo(after.key) > 0)) {
+                    following.add(object);
+                }
+            }
+            runStart = i;
+        }
+        int from = Math.min(following.size(), query.getStart());
+        return following.subList(from, Math.min(following.size(), from + query.getRows()));
+    }
+
+    private BucketMapReduce.Builder toMapReduce(RiakQuery query) {
+        BucketMapReduce.Builder builder = toMapReduceFilters(query);
+        addReduceSort(builder, query.getSortField(), query.getSortOrderAsc());
+        return addReducePaging(builder, true, query.getTake(), query.getSkip());
+    }
+
+    private BucketMapReduce.Builder toMapReduceFilters(RiakQuery query) {
+        BucketMapReduce.Builder builder = new BucketMapReduce.Builder()
+                .withNamespace(query.getNamespace());
+        addMapValues(builder);
+        for (RiakQuery.Filter filter : query.getFilters()) {
+            addReduceFilter(builder, filter.field, filter.operator, filter.value);
         }
-        return response.getDatatype().view();
+        return builder;
     }
 
     protected BucketMapReduce.Builder addPaging(BucketMapReduce.Builder builder, Integer take, Integer skip) {
@@ -226,6 +339,89 @@ public class RiakGenericDao {
         }
     }
 
+    /**
+     * Finds objects by values of a secondary index in a few round trips: index queries for all values are issued
+     * concurrently and objects found are fetched with a single {@link MultiFetch}.
+     *
+     * @return first object found for each index value, values without objects are absent
+     */
+    protected <T> Map<String, T> findBySecondaryIndex(String indexName, Collection<String> values,
+                                                      Namespace namespace, Class<T> clazz) {
+        if (indexName == null || values == null || values.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            Map<String, RiakFuture<BinIndexQuery.Response, BinIndexQuery>> queries = new LinkedHashMap<>();
+            for (String value : new LinkedHashSet<>(values)) {
+                if (value != null) {
+                    BinIndexQuery biq = new BinIndexQuery.Builder(namespace, indexName, value).build();
+                    queries.put(value, client.executeAsync(biq));
+                }
+            }
+            Map<Location, String> valuesByLocation = new LinkedHashMap<>();
+            for (Map.Entry<String, RiakFuture<BinIndexQuery.Response, BinIndexQuery>> query : queries.entrySet()) {
+                List<BinIndexQuery.Response.Entry> entries = query.getValue().get().getEntries();
+                if (!entries.isEmpty()) {
+                    valuesByLocation.put(entries.get(0).getRiakObjectLocation(), query.getKey());
+                }
+            }
+            Map<String, T> result = new LinkedHashMap<>();
+            fetchByLocations(valuesByLocation.keySet(), clazz)
+                    .forEach((location, object) -> result.put(valuesByLocation.get(location), object));
+            return result;
+        } catch (ExecutionException | InterruptedException e) {
+            throw new HivePersistenceLayerException("Cannot find by identities.", e);
+        }
+    }
+
+    /**
+     * Fetches objects stored under given ids with a single {@link MultiFetch}.
+     *
+     * @return objects by id, missing ids are absent
+     */
+    protected <T> Map<Long, T> findByIds(Collection<Long> ids, Namespace namespace, Class<T> clazz) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Location, Long> idsByLocation = new LinkedHashMap<>();
+        for (Long id : ids) {
+            if (id != null) {
+                idsByLocation.put(new Location(namespace, String.valueOf(id)), id);
+            }
+        }
+        try {
+            Map<Long, T> result = new HashMap<>();
+            fetchByLocations(idsByLocation.keySet(), clazz)
+                    .forEach((location, object) -> result.put(idsByLocation.get(location), object));
+            return result;
+        } catch (ExecutionException | InterruptedException e) {
+            throw new HivePersistenceLayerException("Cannot find by ids.", e);
+        }
+    }
+
+    /**
+     * @return fetched objects by location, missing objects are absent
+     */
+    protected <T> Map<Location, T> fetchByLocations(Collection<Location> locations, Class<T> clazz)
+            throws ExecutionException, InterruptedException {
+        if (locations.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        MultiFetch multiFetch = new MultiFetch.Builder()
+                .addLocations(locations)
+                .withOption(quorum.getReadQuorumOption(), quorum.getReadQuorum())
+                .build();
+        MultiFetch.Response mfr = client.execute(multiFetch);
+        Map<Location, T> result = new HashMap<>();
+        for (RiakFuture<FetchValue.Response, Location> f : mfr.getResponses()) {
+            T value = getOrNull(f.get(), clazz);
+            if (value != null) {
+                result.put(f.getQueryInfo(), value);
+            }
+        }
+        return result;
+    }
+
     private <T> T fetchByLocation(Location location, Class<T> clazz) throws ExecutionException, InterruptedException {
         FetchValue fv = new FetchValue.Builder(location).build();
         FetchValue.Response response = client.execute(fv);
@@ -0,0 +1,127 @@
+package com.devicehive.dao.riak;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.cap.Quorum;
+import com.basho.riak.client.api.commands.datatypes.CounterUpdate;
+import com.basho.riak.client.api.commands.datatypes.UpdateCounter;
+import com.basho.riak.client.api.commands.datatypes.UpdateDatatype;
+import com.basho.riak.client.core.query.Location;
+import com.devicehive.exceptions.HivePersistenceLayerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out entity ids from blocks reserved on Riak counters. Each node reserves {@code riak.id.block.size} ids
+ * with one full quorum counter update and serves them from memory, so only one of every block size persisted
+ * entities waits for the counter.
+ * <p>
+ * Ids are unique across the cluster but not ordered between nodes. Reserved ids are never returned to the
+ * counter: ids left in a block when the node stops or crashes are skipped, which leaves gaps in the sequence.
+ */
+@Profile({"riak"})
+@Component
+public class RiakIdAllocator implements PublicMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(RiakIdAllocator.class);
+
+    @Autowired
+    private RiakClient client;
+
+    @Value("${riak.id.block.size:1000}")
+    private int blockSize;
+
+    private final ConcurrentMap<Location, AtomicReference<Block>> blocks = new ConcurrentHashMap<>();
+
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong reservations = new AtomicLong();
+    private final AtomicLong reservationNanos = new AtomicLong();
+    private final AtomicLong maxReservationNanos = new AtomicLong();
+
+    /**
+     * Allocates {@code count} consecutive ids from the counter at given location.
+     *
+     * @return the highest of allocated ids
+     */
+    public long allocate(Location counter, int count) {
+        allocated.addAndGet(count);
+        if (count >= blockSize) {
+            return reserve(counter, count);
+        }
+        AtomicReference<Block> current = blocks.computeIfAbsent(counter, location -> new AtomicReference<>());
+        while (true) {
+            Block block = current.get();
+            if (block != null) {
+                long last = block.next.addAndGet(count) - 1;
+                if (last <= block.last) {
+                    return last;
+                }
+            }
+            synchronized (current) {
+                if (current.get() == block) {
+                    long last = reserve(counter, blockSize);
+                    current.set(new Block(last - blockSize + 1, last));
+                }
+            }
+        }
+    }
+
+    private long reserve(Location counter, int count) {
+        long start = System.nanoTime();
+        UpdateCounter update = new UpdateCounter.Builder(counter, new CounterUpdate(count))
+                .withOption(UpdateDatatype.Option.PW, Quorum.allQuorum())
+                .withReturnDatatype(true).build();
+        try {
+            return client.execute(update).getDatatype().view();
+        } catch (ExecutionException | InterruptedException e) {
+            throw new HivePersistenceLayerException(String.format("Unable to generate id for %s", counter), e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            reservations.incrementAndGet();
+            reservationNanos.addAndGet(elapsed);
+            maxReservationNanos.accumulateAndGet(elapsed, Math::max);
+            logger.debug("Reserved {} ids of {} in {} ns", count, counter, elapsed);
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        long count = reservations.get();
+        metrics.add(new Metric<>("riak.id.allocated", allocated.get()));
+        metrics.add(new Metric<>("riak.id.reservations", count));
+        metrics.add(new Metric<>("riak.id.reservation.time.avg.ms",
+                count == 0 ? 0.0 : (double) TimeUnit.NANOSECONDS.toMicros(reservationNanos.get()) / count / 1000));
+        metrics.add(new Metric<>("riak.id.reservation.time.max.ms",
+                TimeUnit.NANOSECONDS.toMillis(maxReservationNanos.get())));
+        return metrics;
+    }
+
+    /**
+     * Reserved range {@code [next, last]}; {@code next} may run past {@code last} when the block is exhausted.
+     */
+    private static class Block {
+        private final AtomicLong next;
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
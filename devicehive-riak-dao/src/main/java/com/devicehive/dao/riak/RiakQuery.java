@@ -0,0 +1,245 @@
+package com.devicehive.dao.riak;
+
+import com.basho.riak.client.core.query.Namespace;
+import com.devicehive.configuration.Constants;
+import com.devicehive.dao.riak.RiakGenericDao.FilterOperator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Listing query over a bucket: filters, sort and paging. Executed by {@link RiakGenericDao#list} either as a Riak
+ * Search query, which reads only the requested page, or as a full bucket MapReduce job.
+ */
+class RiakQuery {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static class Filter {
+        final String field;
+        final FilterOperator operator;
+        final Object value;
+
+        Filter(String field, FilterOperator operator, Object value) {
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Position right after an object in query order: its sort field value and key field value.
+     */
+    static class Cursor {
+        final Object value;
+        final String key;
+
+        Cursor(Object value, String key) {
+            this.value = value;
+            this.key = key;
+        }
+    }
+
+    private final Namespace namespace;
+    private final List<Filter> filters = new ArrayList<>();
+    private String sortField;
+    private Boolean sortOrderAsc;
+    private String keyField = "_yz_rk";
+    private Cursor after;
+    private Integer take;
+    private Integer skip;
+
+    RiakQuery(Namespace namespace) {
+        this.namespace = namespace;
+    }
+
+    /**
+     * Adds filter, ignored if any argument is null.
+     */
+    RiakQuery filter(String field, FilterOperator operator, Object value) {
+        if (field != null && operator != null && value != null) {
+            filters.add(new Filter(field, operator, value));
+        }
+        return this;
+    }
+
+    /**
+     * Sorts by given field, by id if it is empty; ascending unless {@code sortOrderAsc} is false.
+     */
+    RiakQuery sort(String sortField, Boolean sortOrderAsc) {
+        this.sortField = sortField;
+        this.sortOrderAsc = sortOrderAsc;
+        return this;
+    }
+
+    /**
+     * Orders objects with equal sort field values by given unique field, by object key if not set. Required to
+     * continue a listing {@link #after(Cursor) after} a position, which refers to values of this field.
+     */
+    RiakQuery keyField(String keyField) {
+        this.keyField = keyField;
+        return this;
+    }
+
+    /**
+     * Lists only objects following given position; skip counts from there.
+     */
+    RiakQuery after(Cursor after) {
+        this.after = after;
+        return this;
+    }
+
+    RiakQuery page(Integer take, Integer skip) {
+        this.take = take;
+        this.skip = skip;
+        return this;
+    }
+
+    Namespace getNamespace() {
+        return namespace;
+    }
+
+    List<Filter> getFilters() {
+        return filters;
+    }
+
+    String getSortField() {
+        return sortField;
+    }
+
+    Boolean getSortOrderAsc() {
+        return sortOrderAsc;
+    }
+
+    Integer getTake() {
+        return take;
+    }
+
+    Integer getSkip() {
+        return skip;
+    }
+
+    Cursor getAfter() {
+        return after;
+    }
+
+    int getStart() {
+        return skip != null ? skip : 0;
+    }
+
+    int getRows() {
+        return take != null ? take : Constants.DEFAULT_TAKE;
+    }
+
+    /**
+     * @return true if every filter and the sort field can be answered from search index with given fields
+     */
+    boolean isSearchable(Set<String> indexedFields) {
+        for (Filter filter : filters) {
+            if (filter.operator == FilterOperator.CONTAINS || !indexedFields.contains(filter.field)) {
+                return false;
+            }
+        }
+        if (after != null && (after.value == null || !indexedFields.contains(keyField))) {
+            return false;
+        }
+        return indexedFields.contains(getSearchSortField());
+    }
+
+    /**
+     * @return value of the sort field of given object, null if the object has none
+     */
+    Object getSortValue(Object object) {
+        return getValue(object, getSearchSortField());
+    }
+
+    /**
+     * @return value of the key field of given object, null if the object has none
+     */
+    String getKeyValue(Object object) {
+        Object value = getValue(object, keyField);
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * @return Solr query matching all filters and, with a cursor, only objects following it in query order
+     */
+    String toSearchQuery() {
+        String query = filters.isEmpty()
+                ? "*:*"
+                : filters.stream().map(RiakQuery::toSearchClause).collect(Collectors.joining(" AND "));
+        if (after == null) {
+            return query;
+        }
+        String field = getSearchSortField();
+        String value = term(after.value);
+        String following = Boolean.FALSE.equals(sortOrderAsc)
+                ? field + ":[* TO " + value + "}"
+                : field + ":{" + value + " TO *]";
+        return "(" + query + ") AND (" + following + " OR (" + field + ":" + value + " AND " + keyField + ":{"
+                + term(after.key) + " TO *]))";
+    }
+
+    /**
+     * @return Solr sort, ties are broken by key field so pages do not overlap
+     */
+    String toSearchSort() {
+        String order = Boolean.FALSE.equals(sortOrderAsc) ? "desc" : "asc";
+        return getSearchSortField() + " " + order + "," + keyField + " asc";
+    }
+
+    String getSearchSortField() {
+        return sortField == null || sortField.isEmpty() ? "id" : sortField;
+    }
+
+    private static Object getValue(Object object, String path) {
+        JsonNode node = MAPPER.valueToTree(object);
+        for (String name : path.split("\\.")) {
+            node = node != null ? node.get(name) : null;
+        }
+        if (node == null || node.isNull() || node.isContainerNode()) {
+            return null;
+        }
+        return node.isIntegralNumber() ? (Object) node.asLong() : node.isNumber() ? node.asDouble() : node.asText();
+    }
+
+    private static String toSearchClause(Filter filter) {
+        String field = filter.field;
+        switch (filter.operator) {
+            case EQUAL:
+                return field + ":" + term(filter.value);
+            case NOT_EQUAL:
+                return "(*:* -" + field + ":" + term(filter.value) + ")";
+            case MORE:
+                return field + ":{" + term(filter.value) + " TO *]";
+            case MORE_EQUAL:
+                return field + ":[" + term(filter.value) + " TO *]";
+            case LESS:
+                return field + ":[* TO " + term(filter.value) + "}";
+            case LESS_EQUAL:
+                return field + ":[* TO " + term(filter.value) + "]";
+            case REGEX:
+                return field + ":/.*" + filter.value.toString().replace("/", "\\/") + ".*/";
+            case IN:
+                Collection<?> values = (Collection<?>) filter.value;
+                if (values.isEmpty()) {
+                    return "(*:* -*:*)";
+                }
+                return field + ":(" + values.stream().map(RiakQuery::term).collect(Collectors.joining(" OR ")) + ")";
+            default:
+                throw new IllegalArgumentException("Operator " + filter.operator + " is not supported by search");
+        }
+    }
+
+    private static String term(Object value) {
+        if (value instanceof Number) {
+            return value.toString();
+        }
+        if (value instanceof Date) {
+            return String.valueOf(((Date) value).getTime());
+        }
+        return "\"" + value.toString().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
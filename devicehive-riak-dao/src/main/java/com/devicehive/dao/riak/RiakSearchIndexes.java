@@ -0,0 +1,112 @@
+package com.devicehive.dao.riak;
+
+import com.basho.riak.client.api.RiakClient;
+import com.basho.riak.client.api.commands.buckets.StoreBucketProperties;
+import com.basho.riak.client.api.commands.search.StoreIndex;
+import com.basho.riak.client.api.commands.search.StoreSchema;
+import com.basho.riak.client.core.query.Namespace;
+import com.basho.riak.client.core.query.search.YokozunaIndex;
+import com.basho.riak.client.core.query.search.YokozunaSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Creates search schema and per bucket search indexes used by listing queries when {@code riak.search.enabled} is
+ * on. Runs in background on startup; objects stored before the index existed are indexed by Riak active anti-entropy,
+ * until then listings may miss them.
+ */
+@Profile({"riak"})
+@Component
+public class RiakSearchIndexes implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RiakSearchIndexes.class);
+
+    public static final String SCHEMA_NAME = "devicehive";
+    private static final String SCHEMA_RESOURCE = "riak/devicehive_schema.xml";
+    private static final List<String> BUCKETS = Arrays.asList("device", "network", "device_class", "user",
+            "access_key", "oauth_client", "oauth_grant");
+    private static final int ASSOCIATE_ATTEMPTS = 30;
+
+    @Autowired
+    private RiakClient client;
+
+    @Value("${riak.search.enabled:false}")
+    private boolean enabled;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    static String indexName(Namespace namespace) {
+        return "dh_" + namespace.getBucketNameAsString();
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!enabled || !started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(this::createIndexes, "riak-search-indexes");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void createIndexes() {
+        try {
+            client.execute(new StoreSchema.Builder(new YokozunaSchema(SCHEMA_NAME, readSchema())).build());
+            for (String bucket : BUCKETS) {
+                Namespace namespace = new Namespace(bucket);
+                String index = indexName(namespace);
+                try {
+                    client.execute(new StoreIndex.Builder(new YokozunaIndex(index, SCHEMA_NAME)).build());
+                } catch (ExecutionException e) {
+                    LOGGER.debug("Search index {} was not created, it may already exist", index, e);
+                }
+                associate(namespace, index);
+            }
+            LOGGER.info("Riak search indexes are ready");
+        } catch (ExecutionException | IOException e) {
+            LOGGER.error("Unable to create Riak search indexes, listings use MapReduce", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Index creation is asynchronous in Riak, the bucket can be associated only when the index is available.
+     */
+    private void associate(Namespace namespace, String index) throws ExecutionException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                client.execute(new StoreBucketProperties.Builder(namespace).withSearchIndex(index).build());
+                return;
+            } catch (ExecutionException e) {
+                if (attempt >= ASSOCIATE_ATTEMPTS) {
+                    throw e;
+                }
+                TimeUnit.SECONDS.sleep(1);
+            }
+        }
+    }
+
+    private static String readSchema() throws IOException {
+        try (InputStream in = new ClassPathResource(SCHEMA_RESOURCE).getInputStream()) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -3,8 +3,6 @@ package com.devicehive.dao.riak;
 import com.basho.riak.client.api.commands.kv.DeleteValue;
 import com.basho.riak.client.api.commands.kv.FetchValue;
 import com.basho.riak.client.api.commands.kv.StoreValue;
-import com.basho.riak.client.api.commands.mapreduce.BucketMapReduce;
-import com.basho.riak.client.api.commands.mapreduce.MapReduce;
 import com.basho.riak.client.core.query.Location;
 import com.basho.riak.client.core.query.Namespace;
 import com.devicehive.dao.DeviceDao;
@@ -224,29 +222,26 @@ public class UserDaoRiakImpl extends RiakGenericDao implements UserDao {
             Integer role, Integer status,
             String sortField, Boolean isSortOrderAsc,
             Integer take, Integer skip) {
-        BucketMapReduce.Builder builder = new BucketMapReduce.Builder()
-                .withNamespace(USER_NS);
-        addMapValues(builder);
+        RiakQuery query = new RiakQuery(USER_NS);
         if (login != null) {
-            addReduceFilter(builder, "login", FilterOperator.EQUAL, login);
+            query.filter("login", FilterOperator.EQUAL, login);
         } else if (loginPattern != null) {
             loginPattern = loginPattern.replace("%", "");
-            addReduceFilter(builder, "login", FilterOperator.REGEX, loginPattern);
+            query.filter("login", FilterOperator.REGEX, loginPattern);
         }
         if (role != null) {
             String roleString = UserRole.getValueForIndex(role).name();
-            addReduceFilter(builder, "role", FilterOperator.EQUAL, roleString);
+            query.filter("role", FilterOperator.EQUAL, roleString);
         }
         if (status != null) {
             String statusString = UserStatus.getValueForIndex(status).name();
-            addReduceFilter(builder, "status", FilterOperator.EQUAL, statusString);
+            query.filter("status", FilterOperator.EQUAL, statusString);
         }
 
-        addReduceSort(builder, sortField, isSortOrderAsc);
-        addReducePaging(builder, true, take, skip);
+        query.sort(sortField, isSortOrderAsc);
+        query.page(take, skip);
         try {
-            MapReduce.Response response = client.execute(builder.build());
-            Collection<RiakUser> users = response.getResultsFromAllPhases(RiakUser.class);
+            Collection<RiakUser> users = list(query, RiakUser.class);
             return users.stream().map(RiakUser::convertToVo).collect(Collectors.toList());
         } catch (InterruptedException | ExecutionException e) {
             throw new HivePersistenceLayerException("Cannot execute search user.", e);
@@ -9,6 +9,7 @@ import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.context.annotation.*;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
@@ -45,6 +46,18 @@ public class DeviceHiveApplication extends SpringBootServletInitializer {
         return Executors.newFixedThreadPool(executorSize);
     }
 
+    /**
+     * Scheduler of all {@code @Scheduled} tasks. Spring runs them on a single thread by default, so a slow history
+     * prune or offset refresh would delay the frequent flush of session extensions.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${app.scheduler.size:4}") Integer schedulerSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(schedulerSize);
+        scheduler.setThreadNamePrefix("dh-scheduler-");
+        return scheduler;
+    }
+
     @Bean
     @Lazy(false)
     public BeanConfig swaggerConfig(@Value("${server.context-path}") String contextPath, @Value("${build.version}") String buildVersion) {
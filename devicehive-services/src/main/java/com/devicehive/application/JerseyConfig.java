@@ -1,7 +1,11 @@
 package com.devicehive.application;
 
 import com.devicehive.application.filter.ContentTypeFilter;
+import com.devicehive.json.GsonFactory;
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
 import com.devicehive.resource.impl.*;
+import com.devicehive.vo.DeviceVO;
 import org.glassfish.jersey.filter.LoggingFilter;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.ServerProperties;
@@ -46,6 +50,8 @@ public class JerseyConfig extends ResourceConfig {
 
         register(io.swagger.jaxrs.listing.ApiListingResource.class);
         register(io.swagger.jaxrs.listing.SwaggerSerializers.class);
+
+        GsonFactory.prepare(DeviceNotification.class, DeviceCommand.class, DeviceVO.class);
     }
 
 }
@@ -1,5 +1,6 @@
 package com.devicehive.application.hazelcast;
 
+import com.devicehive.service.history.DeviceHistoryStore;
 import com.hazelcast.config.*;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
@@ -58,6 +59,12 @@ public class HazelcastConfiguration {
         config.setNetworkConfig(networkConfig);
         config.getGroupConfig().setName(env.getProperty("hazelcast.group.name"));
 
+        // a map value is the whole history of a device, in BINARY format every append and query would deserialize
+        // and serialize all of it, so histories are always kept as objects for entry processors; set here only, so
+        // hazelcast.xml cannot override it
+        config.getMapConfig(DeviceHistoryStore.NOTIFICATIONS_MAP).setInMemoryFormat(InMemoryFormat.OBJECT);
+        config.getMapConfig(DeviceHistoryStore.COMMANDS_MAP).setInMemoryFormat(InMemoryFormat.OBJECT);
+
         return config;
     }
 
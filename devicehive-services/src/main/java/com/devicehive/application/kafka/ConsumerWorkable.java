@@ -1,32 +1,60 @@
 package com.devicehive.application.kafka;
 
 import com.devicehive.messages.kafka.IConsumer;
+import org.apache.kafka.clients.consumer.CommitFailedException;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Author: Yuliia Vovk
  * Date: 25.02.16
  * Time: 15:34
+ *
+ * Polls the topic and hands records over to the {@link IConsumer}. When a {@link ConsumerWorkerPool} is given,
+ * records are split into batches by device guid and processed by the pool workers, otherwise they are processed
+ * on the polling thread. Offsets are committed once the whole poll result has been dispatched.
+ * <p>
+ * Record values are consumed as raw bytes and deserialized only for keys (device guids) the {@link IConsumer} is
+ * interested in, so records nobody on this node subscribed to cost no parsing.
  */
 public class ConsumerWorkable<T> implements Runnable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerWorkable.class);
-    private final KafkaConsumer<String, T> consumer;
+    private final KafkaConsumer<String, byte[]> consumer;
+    private final Deserializer<T> deserializer;
     private final String topic;
     private final IConsumer<T> provider;
+    private final long pollTimeout;
+    private final int batchSize;
+    private final ConsumerWorkerPool workerPool;
 
-    public ConsumerWorkable(KafkaConsumer<String, T> consumer,
+    public ConsumerWorkable(KafkaConsumer<String, byte[]> consumer, Deserializer<T> deserializer,
                             String topic, IConsumer<T> provider) {
+        this(consumer, deserializer, topic, provider, Long.MAX_VALUE, Integer.MAX_VALUE, null);
+    }
+
+    public ConsumerWorkable(KafkaConsumer<String, byte[]> consumer, Deserializer<T> deserializer,
+                            String topic, IConsumer<T> provider,
+                            long pollTimeout, int batchSize, ConsumerWorkerPool workerPool) {
         this.topic = topic;
         this.consumer = consumer;
+        this.deserializer = deserializer;
         this.provider = provider;
+        this.pollTimeout = pollTimeout;
+        this.batchSize = batchSize > 0 ? batchSize : Integer.MAX_VALUE;
+        this.workerPool = workerPool;
     }
 
     @Override
@@ -35,15 +63,26 @@ public class ConsumerWorkable<T> implements Runnable {
             consumer.subscribe(Collections.singletonList(topic));
 
             while (!Thread.currentThread().isInterrupted()) {
-                final ConsumerRecords<String, T> records = consumer.poll(Long.MAX_VALUE);
-                for (ConsumerRecord<String, T> record : records) {
-                    final T message = record.value();
-                    LOGGER.debug("Topic {}, partition {}, message {} ", topic, record.partition(), message);
-                    provider.submitMessage(message);
+                final ConsumerRecords<String, byte[]> records = consumer.poll(pollTimeout);
+                if (records.isEmpty()) {
+                    continue;
+                }
+                if (workerPool == null) {
+                    for (ConsumerRecord<String, byte[]> record : records) {
+                        if (provider.isInterested(record.key())) {
+                            submit(record);
+                        }
+                    }
+                } else {
+                    dispatch(records);
                 }
+                commit();
             }
         } catch (WakeupException e) {
             LOGGER.debug("Consuming thread is shutting down");
+        } catch (InterruptedException e) {
+            LOGGER.debug("Consuming thread was interrupted");
+            Thread.currentThread().interrupt();
         } finally {
             consumer.close();
         }
@@ -52,4 +91,68 @@ public class ConsumerWorkable<T> implements Runnable {
     public void shutdown() {
         consumer.wakeup();
     }
+
+    /**
+     * Groups records by worker keeping poll order inside each group, submits groups in chunks of {@code batchSize}
+     * and waits until all of them are processed, so offsets are never committed ahead of delivery.
+     */
+    private void dispatch(ConsumerRecords<String, byte[]> records) throws InterruptedException {
+        final List<List<ConsumerRecord<String, byte[]>>> batches = new ArrayList<>(workerPool.size());
+        for (int i = 0; i < workerPool.size(); i++) {
+            batches.add(new ArrayList<>());
+        }
+        final List<Future<?>> futures = new LinkedList<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            if (!provider.isInterested(record.key())) {
+                continue;
+            }
+            final int worker = workerPool.workerFor(record.key());
+            final List<ConsumerRecord<String, byte[]>> batch = batches.get(worker);
+            batch.add(record);
+            if (batch.size() >= batchSize) {
+                futures.add(workerPool.submit(worker, batchTask(new ArrayList<>(batch))));
+                batch.clear();
+            }
+        }
+        for (int i = 0; i < batches.size(); i++) {
+            if (!batches.get(i).isEmpty()) {
+                futures.add(workerPool.submit(i, batchTask(batches.get(i))));
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                LOGGER.error("Unable to process batch of topic {}", topic, e.getCause());
+            }
+        }
+    }
+
+    private Runnable batchTask(final List<ConsumerRecord<String, byte[]>> batch) {
+        return () -> {
+            for (ConsumerRecord<String, byte[]> record : batch) {
+                submit(record);
+            }
+        };
+    }
+
+    private void submit(ConsumerRecord<String, byte[]> record) {
+        T message = null;
+        try {
+            message = deserializer.deserialize(topic, record.value());
+            LOGGER.debug("Topic {}, partition {}, message {} ", topic, record.partition(), message);
+            provider.submitMessage(message);
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to process message {} of topic {}, partition {}, offset {}", message, topic,
+                    record.partition(), record.offset(), e);
+        }
+    }
+
+    private void commit() {
+        try {
+            consumer.commitSync();
+        } catch (CommitFailedException e) {
+            LOGGER.warn("Offset commit for topic {} failed, records may be redelivered: {}", topic, e.getMessage());
+        }
+    }
 }
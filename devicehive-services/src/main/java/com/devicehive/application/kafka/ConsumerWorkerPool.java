@@ -0,0 +1,58 @@
+package com.devicehive.application.kafka;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of single-threaded workers used by {@link ConsumerWorkable} in pipelined mode. Records are routed to workers
+ * by their key (device guid), so all messages of one device are handled by the same thread in poll order.
+ */
+public class ConsumerWorkerPool {
+
+    private final ExecutorService[] workers;
+
+    public ConsumerWorkerPool(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Consumer worker pool size should be positive, got " + size);
+        }
+        workers = new ExecutorService[size];
+        for (int i = 0; i < size; i++) {
+            workers[i] = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("kafka-consumer-worker-" + i)
+                    .setDaemon(true)
+                    .build());
+        }
+    }
+
+    public int size() {
+        return workers.length;
+    }
+
+    public int workerFor(String key) {
+        if (key == null) {
+            return 0;
+        }
+        return (key.hashCode() & Integer.MAX_VALUE) % workers.length;
+    }
+
+    public Future<?> submit(int worker, Runnable task) {
+        return workers[worker].submit(task);
+    }
+
+    public void shutdown() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    public void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ExecutorService worker : workers) {
+            worker.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
+}
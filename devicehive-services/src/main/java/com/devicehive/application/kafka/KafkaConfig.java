@@ -12,6 +12,8 @@ import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
@@ -58,10 +60,45 @@ public class KafkaConfig {
     @Value("${bootstrap.servers}")
     private String brokerList;
 
+    @Value("${producer.acks:1}")
+    private String producerAcks;
+
+    @Value("${producer.retries:0}")
+    private Integer producerRetries;
+
+    @Value("${producer.max.in.flight.requests.per.connection:5}")
+    private Integer producerMaxInFlight;
+
+    @Value("${producer.compression.type:lz4}")
+    private String producerCompressionType;
+
+    @Value("${producer.linger.ms:5}")
+    private Integer producerLingerMs;
+
+    @Value("${producer.batch.size:65536}")
+    private Integer producerBatchSize;
+
+    @Value("${consumer.poll.timeout.ms:1000}")
+    private Long consumerPollTimeout;
+
+    @Value("${consumer.batch.size:100}")
+    private Integer consumerBatchSize;
+
+    @Value("${consumer.workers.count:4}")
+    private Integer consumerWorkersCount;
+
     @Autowired
     @Qualifier(DeviceHiveApplication.MESSAGE_EXECUTOR)
     private ExecutorService executorService;
 
+    @Profile({"!test"})
+    @Bean(destroyMethod = "shutdown")
+    @Lazy(false)
+    public ConsumerWorkerPool consumerWorkerPool() {
+        LOGGER.info("Kafka consumers will dispatch records to {} workers", consumerWorkersCount);
+        return new ConsumerWorkerPool(consumerWorkersCount);
+    }
+
     @Bean
     @Scope("prototype")
     public NotificationConsumer notificationConsumer() {
@@ -99,13 +136,14 @@ public class KafkaConfig {
     @Lazy(false)
     public List<ConsumerWorkable> notificationConsumerWorkable() {
         String groupId = NOTIFICATION_GROUP_ID + UUID.randomUUID().toString();
-        final Properties properties = consumerSharedProps(groupId, env.getProperty(NOTIFICATION_SERIALIZER), NOTIFICATION_CONSUMER_WORKABLE);
+        final Properties properties = consumerSharedProps(groupId, NOTIFICATION_CONSUMER_WORKABLE);
+        final Deserializer<DeviceNotification> deserializer = deserializer(env.getProperty(NOTIFICATION_SERIALIZER));
 
         final List<ConsumerWorkable> consumers = new LinkedList<>();
         for (int i = 0; i < devicePartitionsCount; i++) {
-            final KafkaConsumer<String, DeviceNotification> c = new KafkaConsumer<>(properties);
-            final ConsumerWorkable<DeviceNotification> consumer = new ConsumerWorkable<>(c,
-                    Constants.NOTIFICATION_TOPIC_NAME, notificationConsumer());
+            final KafkaConsumer<String, byte[]> c = new KafkaConsumer<>(properties);
+            final ConsumerWorkable<DeviceNotification> consumer = new ConsumerWorkable<>(c, deserializer,
+                    Constants.NOTIFICATION_TOPIC_NAME, notificationConsumer(), consumerPollTimeout, consumerBatchSize, consumerWorkerPool());
             consumers.add(consumer);
             executorService.submit(consumer);
         }
@@ -120,13 +158,14 @@ public class KafkaConfig {
     @Lazy(false)
     public List<ConsumerWorkable> commandConsumerWorkable() {
         String groupId = COMMAND_GROUP_ID + UUID.randomUUID().toString();
-        final Properties properties = consumerSharedProps(groupId, env.getProperty(COMMAND_SERIALIZER), COMMAND_CONSUMER_WORKABLE);
+        final Properties properties = consumerSharedProps(groupId, COMMAND_CONSUMER_WORKABLE);
+        final Deserializer<DeviceCommand> deserializer = deserializer(env.getProperty(COMMAND_SERIALIZER));
 
         final List<ConsumerWorkable> consumers = new LinkedList<>();
         for (int i = 0; i < commandPartitionsCount; i++) {
-            final KafkaConsumer<String, DeviceCommand> c = new KafkaConsumer<>(properties);
-            final ConsumerWorkable<DeviceCommand> consumer = new ConsumerWorkable<>(c,
-                    Constants.COMMAND_TOPIC_NAME, commandConsumer());
+            final KafkaConsumer<String, byte[]> c = new KafkaConsumer<>(properties);
+            final ConsumerWorkable<DeviceCommand> consumer = new ConsumerWorkable<>(c, deserializer,
+                    Constants.COMMAND_TOPIC_NAME, commandConsumer(), consumerPollTimeout, consumerBatchSize, consumerWorkerPool());
             consumers.add(consumer);
             executorService.submit(consumer);
         }
@@ -141,13 +180,14 @@ public class KafkaConfig {
     @Lazy(false)
     public List<ConsumerWorkable> commandUpdateConsumerWorkable() {
         String groupId = COMMAND_UPDATE_GROUP_ID + UUID.randomUUID().toString();
-        final Properties properties = consumerSharedProps(groupId, env.getProperty(COMMAND_SERIALIZER), COMMAND_UPDATE_CONSUMER_WORKABLE);
+        final Properties properties = consumerSharedProps(groupId, COMMAND_UPDATE_CONSUMER_WORKABLE);
+        final Deserializer<DeviceCommand> deserializer = deserializer(env.getProperty(COMMAND_SERIALIZER));
 
         final List<ConsumerWorkable> consumers = new LinkedList<>();
         for (int i = 0; i < commandUpdPartitionsCount; i++) {
-            final KafkaConsumer<String, DeviceCommand> c = new KafkaConsumer<>(properties);
-            final ConsumerWorkable<DeviceCommand> consumer = new ConsumerWorkable<>(c,
-                    Constants.COMMAND_UPDATE_TOPIC_NAME, commandUpdateConsumer());
+            final KafkaConsumer<String, byte[]> c = new KafkaConsumer<>(properties);
+            final ConsumerWorkable<DeviceCommand> consumer = new ConsumerWorkable<>(c, deserializer,
+                    Constants.COMMAND_UPDATE_TOPIC_NAME, commandUpdateConsumer(), consumerPollTimeout, consumerBatchSize, consumerWorkerPool());
             consumers.add(consumer);
             executorService.submit(consumer);
         }
@@ -164,8 +204,10 @@ public class KafkaConfig {
             public void run() {
                 consumerWorkables.forEach(ConsumerWorkable::shutdown);
                 executorService.shutdown();
+                consumerWorkerPool().shutdown();
                 try {
                     executorService.awaitTermination(5000, TimeUnit.MILLISECONDS);
+                    consumerWorkerPool().awaitTermination(5000, TimeUnit.MILLISECONDS);
                 } catch (InterruptedException e) {
                     LOGGER.error("Exception occurred while shutting executor service: {}", e);
                 }
@@ -173,25 +215,46 @@ public class KafkaConfig {
         });
     }
 
-    private Properties consumerSharedProps(String groupId, String deserializer, String consumerName) {
+    private Properties consumerSharedProps(String groupId, String consumerName) {
         LOGGER.info("Consumer properties {} for bootstrap.servers {}", consumerName, brokerList);
 
         Properties props = new Properties();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokerList);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, deserializer);
-        props.put(ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG, env.getProperty(ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG));
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, Boolean.FALSE.toString());
         return props;
     }
 
+    /**
+     * Values are consumed as bytes and deserialized by {@link ConsumerWorkable} only when needed.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Deserializer<T> deserializer(String className) {
+        try {
+            Deserializer<T> deserializer = (Deserializer<T>) Class.forName(className).newInstance();
+            deserializer.configure(Collections.emptyMap(), false);
+            return deserializer;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create kafka deserializer " + className, e);
+        }
+    }
+
     private <T> Producer<String, T> provideProducer(String serializer, String producerName) {
         Properties properties = new Properties();
         properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, brokerList);
         properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
         properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, serializer);
-
-        LOGGER.info("Creating kafka producer {} for bootstrap.servers {}", producerName, brokerList);
+        properties.put(ProducerConfig.ACKS_CONFIG, producerAcks);
+        properties.put(ProducerConfig.RETRIES_CONFIG, producerRetries);
+        properties.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, producerMaxInFlight);
+        properties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producerCompressionType);
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, producerLingerMs);
+        properties.put(ProducerConfig.BATCH_SIZE_CONFIG, producerBatchSize);
+
+        LOGGER.info("Creating kafka producer {} for bootstrap.servers {}, acks {}, compression {}, linger.ms {}, batch.size {}",
+                producerName, brokerList, producerAcks, producerCompressionType, producerLingerMs, producerBatchSize);
         return new KafkaProducer<>(properties);
     }
 }
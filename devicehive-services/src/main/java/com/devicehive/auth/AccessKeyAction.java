@@ -26,13 +26,28 @@ public enum AccessKeyAction {
     NONE(null);
 
     private String value;
+    private final int bit;
+    private final boolean admin;
 
     AccessKeyAction(String value) {
         this.value = value;
+        this.bit = value != null ? CompiledPermission.actionBit(value) : -1;
+        this.admin = value != null && AvailableActions.getAdminActions().contains(value);
     }
 
     public String getValue() {
         return value;
     }
 
+    /**
+     * @return bit of the action in {@link CompiledPermission} action sets, -1 for {@link #NONE}
+     */
+    public int getBit() {
+        return bit;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
 }
@@ -7,36 +7,42 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.Serializable;
+import java.util.Optional;
 import java.util.Set;
 
+/**
+ * Checks access key permissions for an action. The authentication is never changed: on success the security context
+ * gets a copy of it, which access key holds only the permissions matching the action, client address and origin,
+ * so that later access checks of the request use them. The copy is memoized on the original authentication.
+ */
 public class AccessKeyPermissionEvaluator implements PermissionEvaluator {
     private static final Logger logger = LoggerFactory.getLogger(AccessKeyPermissionEvaluator.class);
 
+    private static final SimpleGrantedAuthority KEY_AUTHORITY = new SimpleGrantedAuthority(HiveRoles.KEY);
+
     @Override
     public boolean hasPermission(Authentication authentication, Object targetDomainObject, Object permission) {
         if (authentication != null && authentication instanceof HiveAuthentication) {
             HiveAuthentication hiveAuthentication = (HiveAuthentication) authentication;
 
-            if (!hiveAuthentication.getAuthorities().contains(new SimpleGrantedAuthority(HiveRoles.KEY))) {
+            if (!hiveAuthentication.getAuthorities().contains(KEY_AUTHORITY)) {
                 return true;
             }
 
-            AccessKeyVO accessKey = ((HivePrincipal) hiveAuthentication.getPrincipal()).getKey();
-            HiveAuthentication.HiveAuthDetails details = (HiveAuthentication.HiveAuthDetails) hiveAuthentication.getDetails();
-
             AccessKeyAction action = AccessKeyAction.valueOf(permission.toString().trim());
             logger.debug("Checking {} for permissions {}", authentication.getName(), permission);
 
-            Set<AccessKeyPermissionVO> filteredPermissions = CheckPermissionsHelper.filterPermissions(accessKey, accessKey.getPermissions(),
-                    action, details.getClientInetAddress(), details.getOrigin());
-            if (filteredPermissions.isEmpty()) {
+            Optional<HiveAuthentication> permitted = hiveAuthentication.getPermitted()
+                    .computeIfAbsent(action, a -> filter(hiveAuthentication, a));
+            if (!permitted.isPresent()) {
                 logger.warn("Principal doesn't have required permission {}. Access denied", permission);
                 return false;
             }
-            accessKey.setPermissions(filteredPermissions);
-            logger.info("Successfully checked for permission {}", permission);
+            SecurityContextHolder.getContext().setAuthentication(permitted.get());
+            logger.debug("Successfully checked for permission {}", permission);
             return true;
         }
         logger.error("Can't check access key permission for auth '{}'", authentication.getClass().getName());
@@ -48,4 +54,33 @@ public class AccessKeyPermissionEvaluator implements PermissionEvaluator {
         throw new UnsupportedOperationException("Id and Class permissions are not supported by this application");
     }
 
+    private static Optional<HiveAuthentication> filter(HiveAuthentication authentication, AccessKeyAction action) {
+        HivePrincipal principal = (HivePrincipal) authentication.getPrincipal();
+        AccessKeyVO accessKey = principal.getKey();
+        HiveAuthentication.HiveAuthDetails details = (HiveAuthentication.HiveAuthDetails) authentication.getDetails();
+
+        Set<AccessKeyPermissionVO> filteredPermissions = CheckPermissionsHelper.filterPermissions(accessKey,
+                accessKey.getPermissions(), action, details.getClientInetAddress(), details.getOrigin());
+        if (filteredPermissions.isEmpty()) {
+            return Optional.empty();
+        }
+        HivePrincipal filteredPrincipal = new HivePrincipal(principal.getUser(), principal.getDevice(),
+                withPermissions(accessKey, filteredPermissions));
+        HiveAuthentication filtered = new HiveAuthentication(filteredPrincipal, authentication.getAuthorities());
+        filtered.setDetails(details);
+        return Optional.of(filtered);
+    }
+
+    private static AccessKeyVO withPermissions(AccessKeyVO key, Set<AccessKeyPermissionVO> permissions) {
+        AccessKeyVO copy = new AccessKeyVO();
+        copy.setId(key.getId());
+        copy.setLabel(key.getLabel());
+        copy.setKey(key.getKey());
+        copy.setUser(key.getUser());
+        copy.setExpirationDate(key.getExpirationDate());
+        copy.setType(key.getType());
+        copy.setPermissions(permissions);
+        copy.setEntityVersion(key.getEntityVersion());
+        return copy;
+    }
 }
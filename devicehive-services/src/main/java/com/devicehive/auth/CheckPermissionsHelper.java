@@ -1,7 +1,5 @@
 package com.devicehive.auth;
 
-import com.devicehive.model.AvailableActions;
-import com.devicehive.model.Subnet;
 import com.devicehive.model.enums.UserRole;
 import com.devicehive.vo.AccessKeyPermissionVO;
 import com.devicehive.vo.AccessKeyVO;
@@ -15,12 +13,11 @@ public class CheckPermissionsHelper {
 
     public static boolean checkFilteredPermissions(Set<AccessKeyPermissionVO> permissions, DeviceVO device) {
         for (AccessKeyPermissionVO permission : permissions) {
-            Set<Long> networks = permission.getNetworkIdsAsSet();
-            if (networks != null && !networks.contains(device.getNetwork().getId())) {
+            CompiledPermission compiled = permission.compile();
+            if (compiled.isNetworkRestricted() && !compiled.allowsNetwork(device.getNetwork().getId())) {
                 continue;
             }
-            Set<String> deviceGuids = permission.getDeviceGuidsAsSet();
-            if (deviceGuids != null && !deviceGuids.contains(device.getGuid())) {
+            if (!compiled.allowsDevice(device.getGuid())) {
                 continue;
             }
             return true;
@@ -31,108 +28,44 @@ public class CheckPermissionsHelper {
     public static Set<AccessKeyPermissionVO> filterPermissions(AccessKeyVO accessKeyVO, Set<AccessKeyPermissionVO> permissions,
                                                                AccessKeyAction action, InetAddress clientIP,
                                                                String clientDomain) {
-        Set<AccessKeyPermissionVO> filtered = new HashSet<>(permissions);
-        filterActions(accessKeyVO, action, filtered);
-        filterIP(clientIP, filtered);
-        filterDomains(clientDomain, filtered);
-        filterNetworks(filtered);
-        filterDeviceGuids(filtered);
-        return filtered;
-    }
-
-
-    private static void filterActions(AccessKeyVO accessKeyVO, AccessKeyAction allowedAction, Set<AccessKeyPermissionVO> permissions) {
-        Set<AccessKeyPermissionVO> permissionsToRemove = new HashSet<>();
-        for (AccessKeyPermissionVO currentPermission : permissions) {
-            boolean isCurrentPermissionAllowed = false;
-            Set<String> actions = currentPermission.getActionsAsSet();
-            // remove all admin permissions for non admin users
-            if (actions != null) {
-                if (accessKeyVO != null  && accessKeyVO.getUser().getRole() != UserRole.ADMIN) {
-                    actions.removeAll(AvailableActions.getAdminActions());
-                }
-                for (String accessKeyAction : actions) {
-                    isCurrentPermissionAllowed = accessKeyAction.equalsIgnoreCase(allowedAction.getValue());
-                    if (isCurrentPermissionAllowed) {
-                        break;
-                    }
-                }
-                if (!isCurrentPermissionAllowed) {
-                    permissionsToRemove.add(currentPermission);
-                }
-            } else {
-                if (accessKeyVO != null  && accessKeyVO.getUser().getRole() != UserRole.ADMIN) {
-                    if (AvailableActions.getAdminActions().contains(allowedAction.getValue())) {
-                        permissionsToRemove.add(currentPermission);
-                    }
-                }
-            }
+        Set<AccessKeyPermissionVO> filtered = new HashSet<>();
+        if (isAdminActionDenied(accessKeyVO, action)) {
+            return filtered;
         }
-        permissions.removeAll(permissionsToRemove);
-    }
-
-    private static void filterIP(InetAddress clientIp, Set<AccessKeyPermissionVO> permissions) {
-        Set<AccessKeyPermissionVO> permissionsToRemove = new HashSet<>();
-        for (AccessKeyPermissionVO currentPermission : permissions) {
-            Set<Subnet> subnetsAsSet = currentPermission.getSubnetsAsSet();
-            if (subnetsAsSet != null) {
-                boolean isCurrentPermissionAllowed = false;
-                for (Subnet subnet : currentPermission.getSubnetsAsSet()) {
-                    isCurrentPermissionAllowed = subnet.isAddressFromSubnet(clientIp);
-                    if (isCurrentPermissionAllowed) {
-                        break;
-                    }
-                }
-                if (!isCurrentPermissionAllowed) {
-                    permissionsToRemove.add(currentPermission);
-                }
+        for (AccessKeyPermissionVO permission : permissions) {
+            if (permits(permission.compile(), action, clientIP, clientDomain)) {
+                filtered.add(permission);
             }
         }
-        permissions.removeAll(permissionsToRemove);
+        return filtered;
     }
 
-    private static void filterDomains(String clientDomain, Set<AccessKeyPermissionVO> permissions) {
-        if (clientDomain == null) {
-            return;
+    /**
+     * Same as {@code !filterPermissions(...).isEmpty()}, without building the filtered set.
+     */
+    public static boolean hasPermission(AccessKeyVO accessKeyVO, Set<AccessKeyPermissionVO> permissions,
+                                        AccessKeyAction action, InetAddress clientIP, String clientDomain) {
+        if (isAdminActionDenied(accessKeyVO, action)) {
+            return false;
         }
-        Set<AccessKeyPermissionVO> permissionsToRemove = new HashSet<>();
-        for (AccessKeyPermissionVO currentPermission : permissions) {
-            Set<String> domainsAsSet = currentPermission.getDomainsAsSet();
-            if (domainsAsSet != null) {
-                boolean isCurrentPermissionAllowed = false;
-                for (String currentDomain : domainsAsSet) {
-                    isCurrentPermissionAllowed = clientDomain.endsWith(currentDomain);
-                    if (isCurrentPermissionAllowed) {
-                        break;
-                    }
-                }
-                if (!isCurrentPermissionAllowed) {
-                    permissionsToRemove.add(currentPermission);
-                }
+        for (AccessKeyPermissionVO permission : permissions) {
+            if (permits(permission.compile(), action, clientIP, clientDomain)) {
+                return true;
             }
         }
-        permissions.removeAll(permissionsToRemove);
+        return false;
     }
 
-    private static void filterNetworks(Set<AccessKeyPermissionVO> permissions) {
-        Set<AccessKeyPermissionVO> permissionToRemove = new HashSet<>();
-        for (AccessKeyPermissionVO currentPermission : permissions) {
-            Set<Long> currentNetworkIds = currentPermission.getNetworkIdsAsSet();
-            if (currentNetworkIds != null && currentNetworkIds.isEmpty()) {
-                permissionToRemove.add(currentPermission);
-            }
-        }
-        permissions.removeAll(permissionToRemove);
+    // admin actions are not allowed for non admin users
+    private static boolean isAdminActionDenied(AccessKeyVO accessKeyVO, AccessKeyAction action) {
+        return action.isAdmin() && accessKeyVO != null && accessKeyVO.getUser().getRole() != UserRole.ADMIN;
     }
 
-    private static void filterDeviceGuids(Set<AccessKeyPermissionVO> permissions) {
-        Set<AccessKeyPermissionVO> permissionToRemove = new HashSet<>();
-        for (AccessKeyPermissionVO currentPermission : permissions) {
-            Set<String> currentDeviceGuids = currentPermission.getDeviceGuidsAsSet();
-            if (currentDeviceGuids != null && currentDeviceGuids.isEmpty()) {
-                permissionToRemove.add(currentPermission);
-            }
-        }
-        permissions.removeAll(permissionToRemove);
+    private static boolean permits(CompiledPermission permission, AccessKeyAction action, InetAddress clientIP,
+                                   String clientDomain) {
+        return permission.hasAction(action.getBit())
+                && permission.allowsAddress(clientIP)
+                && permission.allowsDomain(clientDomain)
+                && !permission.isEmpty();
     }
 }
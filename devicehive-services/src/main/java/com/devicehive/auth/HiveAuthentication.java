@@ -4,12 +4,26 @@ import com.devicehive.model.enums.UserRole;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.net.InetAddress;
 import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class HiveAuthentication extends PreAuthenticatedAuthenticationToken {
     private HivePrincipal hivePrincipal;
 
+    /**
+     * Results of access key permission checks for current details, see {@link AccessKeyPermissionEvaluator}.
+     * Websocket sessions keep the authentication, so every action is checked once per session. Not serialized,
+     * a deserialized authentication starts with no results.
+     */
+    private transient ConcurrentMap<AccessKeyAction, Optional<HiveAuthentication>> permitted =
+            new ConcurrentHashMap<>();
+
     public HiveAuthentication(Object aPrincipal, Collection<? extends GrantedAuthority> anAuthorities) {
         super(aPrincipal, null, anAuthorities);
     }
@@ -18,6 +32,21 @@ public class HiveAuthentication extends PreAuthenticatedAuthenticationToken {
         super(aPrincipal, null);
     }
 
+    @Override
+    public void setDetails(Object details) {
+        super.setDetails(details);
+        permitted.clear();
+    }
+
+    ConcurrentMap<AccessKeyAction, Optional<HiveAuthentication>> getPermitted() {
+        return permitted;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        permitted = new ConcurrentHashMap<>();
+    }
+
     public boolean isUserInRole(String roleString) {
         switch (roleString) {
             case HiveRoles.KEY:
@@ -29,7 +58,9 @@ public class HiveAuthentication extends PreAuthenticatedAuthenticationToken {
         }
     }
 
-    public static class HiveAuthDetails {
+    public static class HiveAuthDetails implements Serializable {
+        private static final long serialVersionUID = -5076213841389457528L;
+
         private InetAddress clientInetAddress;
         private String origin;
         private String authorization;
@@ -1,5 +1,6 @@
 package com.devicehive.auth.rest;
 
+import com.devicehive.configuration.Constants;
 import org.springframework.web.filter.GenericFilterBean;
 
 import javax.servlet.FilterChain;
@@ -19,6 +20,7 @@ public class SimpleCORSFilter extends GenericFilterBean {
         resp.setHeader("Access-Control-Allow-Methods", "OPTIONS, GET, POST, PUT, DELETE, HEAD");
         resp.setHeader("Access-Control-Max-Age", "0");
         resp.setHeader("Access-Control-Allow-Headers", "Origin, Authorization, Accept, Content-Type, Auth-DeviceID, Auth-DeviceKey");
+        resp.setHeader("Access-Control-Expose-Headers", Constants.CONTINUATION_HEADER);
         chain.doFilter(request, resp);
     }
 }
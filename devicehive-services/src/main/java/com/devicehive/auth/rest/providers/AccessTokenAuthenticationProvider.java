@@ -5,6 +5,7 @@ import com.devicehive.auth.HivePrincipal;
 import com.devicehive.auth.HiveRoles;
 import com.devicehive.model.enums.UserStatus;
 import com.devicehive.service.AccessKeyService;
+import com.devicehive.service.helpers.AuthenticationCache;
 import com.devicehive.vo.AccessKeyVO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,11 +25,21 @@ public class AccessTokenAuthenticationProvider implements AuthenticationProvider
     @Autowired
     private AccessKeyService accessKeyService;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
         String token = (String) authentication.getPrincipal();
 
-        AccessKeyVO accessKey = accessKeyService.authenticate(token);
+        HivePrincipal principal = authenticationCache.get(AuthenticationCache.tokenKey(token), () -> {
+            AccessKeyVO loaded = accessKeyService.authenticate(token);
+            return loaded != null ? new HivePrincipal(loaded) : null;
+        });
+        AccessKeyVO accessKey = principal != null ? principal.getKey() : null;
+        if (accessKey != null) {
+            accessKeyService.extendSession(accessKey);
+        }
         if (accessKey == null
                 || accessKey.getUser() == null || !accessKey.getUser().getStatus().equals(UserStatus.ACTIVE)
                 || (accessKey.getExpirationDate() != null && accessKey.getExpirationDate().before(new Date()))) {
@@ -36,7 +47,7 @@ public class AccessTokenAuthenticationProvider implements AuthenticationProvider
         }
         logger.debug("Access token authentication successful");
         return new HiveAuthentication(
-                new HivePrincipal(accessKey),
+                principal,
                 AuthorityUtils.createAuthorityList(HiveRoles.KEY));
     }
 
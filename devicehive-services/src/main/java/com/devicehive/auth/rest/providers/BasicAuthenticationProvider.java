@@ -7,6 +7,7 @@ import com.devicehive.exceptions.HiveException;
 import com.devicehive.model.enums.UserStatus;
 import com.devicehive.service.OAuthClientService;
 import com.devicehive.service.UserService;
+import com.devicehive.service.helpers.AuthenticationCache;
 import com.devicehive.vo.OAuthClientVO;
 import com.devicehive.vo.UserVO;
 import org.slf4j.Logger;
@@ -31,6 +32,9 @@ public class BasicAuthenticationProvider implements AuthenticationProvider {
     @Autowired
     private OAuthClientService clientService;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     @SuppressWarnings("unchecked")
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
@@ -38,6 +42,25 @@ public class BasicAuthenticationProvider implements AuthenticationProvider {
         String pass = (String) authentication.getCredentials();
         logger.debug("Basic authentication requested for username {}", key);
 
+        HivePrincipal principal = authenticationCache.get(AuthenticationCache.basicKey(key, pass),
+                () -> loadPrincipal(key, pass));
+        if (principal != null && principal.getUser() != null) {
+            String role = principal.getUser().isAdmin() ? HiveRoles.ADMIN : HiveRoles.CLIENT;
+            logger.info("User {} authenticated with role {}", key, role);
+            return new HiveAuthentication(
+                    principal,
+                    AuthorityUtils.createAuthorityList(role));
+        } else if (principal != null) {
+            logger.info("oAuth client {} authenticated", key);
+            return new HiveAuthentication(
+                    principal,
+                    AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+        }
+        logger.warn("Basic auth for {} failed", key);
+        throw new BadCredentialsException("Invalid credentials");
+    }
+
+    private HivePrincipal loadPrincipal(String key, String pass) {
         UserVO user = null;
         try {
             user = userService.authenticate(key, pass);
@@ -45,23 +68,10 @@ public class BasicAuthenticationProvider implements AuthenticationProvider {
             logger.error("User auth failed", e);
         }
         if (user != null && user.getStatus() == UserStatus.ACTIVE) {
-            String role = user.isAdmin() ? HiveRoles.ADMIN : HiveRoles.CLIENT;
-            logger.info("User {} authenticated with role {}", key, role);
-            return new HiveAuthentication(
-                    new HivePrincipal(user),
-                    AuthorityUtils.createAuthorityList(role));
-
-        } else {
-            OAuthClientVO client = clientService.authenticate(key, pass);
-            logger.info("oAuth client {} authenticated", key);
-            if (client != null) {
-                return new HiveAuthentication(
-                        new HivePrincipal(client),
-                        AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
-            }
+            return new HivePrincipal(user);
         }
-        logger.warn("Basic auth for {} failed", key);
-        throw new BadCredentialsException("Invalid credentials");
+        OAuthClientVO client = clientService.authenticate(key, pass);
+        return client != null ? new HivePrincipal(client) : null;
     }
 
     @Override
@@ -10,6 +10,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Created by tmatvienko on 12/30/14.
  */
@@ -21,15 +23,18 @@ public class MessageBus {
     @Autowired
     private KafkaProducer kafkaProducer;
 
-    public <T extends HazelcastEntity> void publish(T hzEntity) {
+    /**
+     * @return future completed when the message is acknowledged by kafka
+     */
+    public <T extends HazelcastEntity> CompletableFuture<Void> publish(T hzEntity) {
         if (hzEntity instanceof DeviceNotification) {
-            kafkaProducer.produceDeviceNotificationMsg((DeviceNotification) hzEntity, Constants.NOTIFICATION_TOPIC_NAME);
+            return kafkaProducer.produceDeviceNotificationMsg((DeviceNotification) hzEntity, Constants.NOTIFICATION_TOPIC_NAME);
         } else if (hzEntity instanceof DeviceCommand) {
             DeviceCommand command = (DeviceCommand) hzEntity;
             if (command.getIsUpdated()) {
-                kafkaProducer.produceDeviceCommandUpdateMsg(command, Constants.COMMAND_UPDATE_TOPIC_NAME);
+                return kafkaProducer.produceDeviceCommandUpdateMsg(command, Constants.COMMAND_UPDATE_TOPIC_NAME);
             } else {
-                kafkaProducer.produceDeviceCommandMsg((DeviceCommand) hzEntity, Constants.COMMAND_TOPIC_NAME);
+                return kafkaProducer.produceDeviceCommandMsg((DeviceCommand) hzEntity, Constants.COMMAND_TOPIC_NAME);
             }
         } else {
             final String msg = String.format("Unsupported hazelcast entity class: %s", hzEntity.getClass());
@@ -1,9 +1,16 @@
 package com.devicehive.messages.handler;
 
 
+import com.devicehive.websockets.OutboundMessageTemplate;
+
 import java.util.UUID;
+import java.util.function.Supplier;
 
 public interface HandlerCreator<T> {
 
-    Runnable getHandler(T message, UUID subId);
+    /**
+     * @param template message serialized for websocket subscribers, built once per message by the fan-out and shared
+     *                 by all its subscribers
+     */
+    Runnable getHandler(T message, UUID subId, Supplier<OutboundMessageTemplate> template);
 }
@@ -3,49 +3,48 @@ package com.devicehive.messages.handler;
 import com.devicehive.json.strategies.JsonPolicyDef;
 import com.devicehive.model.DeviceCommand;
 import com.devicehive.model.DeviceNotification;
+import com.devicehive.resource.util.LongPoll;
 import com.devicehive.resource.util.ResponseFactory;
+import com.devicehive.websockets.OutboundMessageTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
 import java.util.Collections;
 import java.util.UUID;
-import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 public abstract class RestHandlerCreator<T> implements HandlerCreator<T> {
     private static final Logger logger = LoggerFactory.getLogger(RestHandlerCreator.class);
 
-    private final AsyncResponse asyncResponse;
+    private final LongPoll poll;
 
-    private RestHandlerCreator(final AsyncResponse asyncResponse) {
-        this.asyncResponse = asyncResponse;
+    private RestHandlerCreator(final LongPoll poll) {
+        this.poll = poll;
     }
 
-    public static RestHandlerCreator<DeviceNotification> createNotificationInsert(final AsyncResponse asyncResponse, final boolean isMany, final FutureTask<Void> waitTask) {
-        return new RestHandlerCreator<DeviceNotification>(asyncResponse) {
+    public static RestHandlerCreator<DeviceNotification> createNotificationInsert(final LongPoll poll, final boolean isMany) {
+        return new RestHandlerCreator<DeviceNotification>(poll) {
             @Override
             protected Response createResponse(DeviceNotification message) {
                 logger.debug("NotificationInsert created for message: {}", message);
-                waitTask.cancel(false);
                 return ResponseFactory.response(Response.Status.OK, Collections.singletonList(message), JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT);
             }
         };
     }
 
-    public static RestHandlerCreator<DeviceCommand> createCommandInsert(final AsyncResponse asyncResponse, final boolean isMany, final FutureTask<Void> waitTask) {
-        return new RestHandlerCreator<DeviceCommand>(asyncResponse) {
+    public static RestHandlerCreator<DeviceCommand> createCommandInsert(final LongPoll poll, final boolean isMany) {
+        return new RestHandlerCreator<DeviceCommand>(poll) {
             @Override
             protected Response createResponse(DeviceCommand message) {
                 logger.debug("CommandInsert created for message: {}", message);
-                waitTask.cancel(false);
                 return ResponseFactory.response(Response.Status.OK, Collections.singletonList(message), JsonPolicyDef.Policy.COMMAND_LISTED);
             }
         };
     }
 
-    public static RestHandlerCreator<DeviceCommand> createCommandUpdate(final AsyncResponse asyncResponse) {
-        return new RestHandlerCreator<DeviceCommand>(asyncResponse) {
+    public static RestHandlerCreator<DeviceCommand> createCommandUpdate(final LongPoll poll) {
+        return new RestHandlerCreator<DeviceCommand>(poll) {
             @Override
             protected Response createResponse(DeviceCommand message) {
                 logger.debug("CommandUpdateInsert created for message: {}", message);
@@ -57,14 +56,13 @@ public abstract class RestHandlerCreator<T> implements HandlerCreator<T> {
     protected abstract Response createResponse(T message);
 
     @Override
-    public Runnable getHandler(final T message, final UUID subId) {
+    public Runnable getHandler(final T message, final UUID subId, final Supplier<OutboundMessageTemplate> template) {
         logger.debug("Rest subscription notified");
 
         return new Runnable() {
             @Override
             public void run() {
-                Response response = createResponse(message);
-                asyncResponse.resume(response);
+                poll.resume(() -> createResponse(message));
             }
         };
     }
@@ -2,82 +2,76 @@ package com.devicehive.messages.handler;
 
 import com.devicehive.model.DeviceCommand;
 import com.devicehive.model.DeviceNotification;
-import com.devicehive.util.ApplicationContextHolder;
-import com.devicehive.util.ServerResponsesFactory;
 import com.devicehive.websockets.HiveWebsocketSessionState;
+import com.devicehive.websockets.OutboundMessageTemplate;
 import com.devicehive.websockets.util.AsyncMessageSupplier;
-import com.google.gson.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.util.UUID;
 import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
-public abstract class WebsocketHandlerCreator<T> implements HandlerCreator<T> {
+/**
+ * Message handlers of websocket subscriptions. A message matching many subscriptions is serialized only once: the
+ * fan-out passes the same template to every handler, which renders it with its subscription id.
+ */
+public class WebsocketHandlerCreator<T> implements HandlerCreator<T> {
     private static final Logger logger = LoggerFactory.getLogger(WebsocketHandlerCreator.class);
 
     private final WebSocketSession session;
     private final Lock lock;
+    private final AsyncMessageSupplier supplier;
 
 
-    private WebsocketHandlerCreator(WebSocketSession session, Lock lock) {
+    private WebsocketHandlerCreator(WebSocketSession session, Lock lock, AsyncMessageSupplier supplier) {
         this.session = session;
         this.lock = lock;
+        this.supplier = supplier;
     }
 
-    public static WebsocketHandlerCreator<DeviceCommand> createCommandInsert(WebSocketSession session) {
-        return new WebsocketHandlerCreator<DeviceCommand>(session,
-                                                          HiveWebsocketSessionState.get(session)
-                                                              .getCommandSubscriptionsLock()) {
-            @Override
-            protected JsonObject createJsonObject(DeviceCommand message, UUID subId) {
-                return ServerResponsesFactory.createCommandInsertMessage(message, subId);
-            }
-        };
+    public static WebsocketHandlerCreator<DeviceCommand> createCommandInsert(WebSocketSession session,
+                                                                            AsyncMessageSupplier supplier) {
+        return new WebsocketHandlerCreator<>(session, HiveWebsocketSessionState.get(session).getCommandSubscriptionsLock(),
+                                             supplier);
     }
 
-    public static WebsocketHandlerCreator<DeviceCommand> createCommandUpdate(WebSocketSession session) {
-        return new WebsocketHandlerCreator<DeviceCommand>(session,
-                                                          HiveWebsocketSessionState.get(session)
-                                                              .getCommandUpdateSubscriptionsLock()) {
-            @Override
-            protected JsonObject createJsonObject(DeviceCommand message, UUID subId) {
-                return ServerResponsesFactory.createCommandUpdateMessage(message);
-            }
-        };
+    public static WebsocketHandlerCreator<DeviceCommand> createCommandUpdate(WebSocketSession session,
+                                                                            AsyncMessageSupplier supplier) {
+        return new WebsocketHandlerCreator<>(session, HiveWebsocketSessionState.get(session).getCommandUpdateSubscriptionsLock(),
+                                             supplier);
     }
 
-    public static WebsocketHandlerCreator<DeviceNotification> createNotificationInsert(WebSocketSession session) {
-        return new WebsocketHandlerCreator<DeviceNotification>(session,
-                                                               HiveWebsocketSessionState.get(session)
-                                                                   .getNotificationSubscriptionsLock()) {
-            @Override
-            protected JsonObject createJsonObject(DeviceNotification message, UUID subId) {
-                return ServerResponsesFactory.createNotificationInsertMessage(message, subId);
-            }
-        };
+    public static WebsocketHandlerCreator<DeviceNotification> createNotificationInsert(WebSocketSession session,
+                                                                                      AsyncMessageSupplier supplier) {
+        return new WebsocketHandlerCreator<>(session, HiveWebsocketSessionState.get(session).getNotificationSubscriptionsLock(),
+                                             supplier);
     }
 
-    protected abstract JsonObject createJsonObject(T message, UUID subId);
-
     @Override
-    public Runnable getHandler(final T message, final UUID subId) {
+    public Runnable getHandler(final T message, final UUID subId, final Supplier<OutboundMessageTemplate> template) {
         logger.debug("Websocket subscription notified");
 
         return () -> {
             if (!session.isOpen()) {
                 return;
             }
-            JsonObject json = createJsonObject(message, subId);
+            OutboundMessageTemplate messageTemplate;
+            try {
+                messageTemplate = template.get();
+            } catch (RuntimeException e) {
+                logger.error("Unable to serialize message {}", message, e);
+                return;
+            }
             try {
                 lock.lock();
                 logger.debug("Add messages to queue process for session " + session.getId());
-                HiveWebsocketSessionState.get(session).getQueue().add(json);
+                supplier.enqueue(session, messageTemplate.render(subId));
             } finally {
                 lock.unlock();
             }
-            ApplicationContextHolder.getApplicationContext().getBean(AsyncMessageSupplier.class).deliverMessages(session);
+            supplier.deliverMessages(session);
         };
     }
 }
@@ -6,6 +6,11 @@ import com.devicehive.messages.subscriptions.CommandSubscription;
 import com.devicehive.messages.subscriptions.SubscriptionManager;
 import com.devicehive.model.DeviceCommand;
 import com.devicehive.service.DeviceService;
+import com.devicehive.service.helpers.DeviceAccessCache;
+import com.devicehive.util.ServerResponsesFactory;
+import com.devicehive.websockets.OutboundMessageTemplate;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,45 +32,52 @@ public class CommandConsumer  implements IConsumer<DeviceCommand>{
     @Autowired
     private DeviceService deviceService;
     @Autowired
+    private DeviceAccessCache deviceAccessCache;
+    @Autowired
     @Qualifier(DeviceHiveApplication.MESSAGE_EXECUTOR)
     private ExecutorService mes;
 
+    @Override
+    public boolean isInterested(String key) {
+        return subscriptionManager.hasCommandSubscriptions(key);
+    }
+
     @Override
     public void submitMessage(final DeviceCommand message) {
         logger.debug("Device command was submitted: {}", message);
 
+        // serialized once for all websocket subscribers, by the first handler that needs it
+        Supplier<OutboundMessageTemplate> template = Suppliers.memoize(() ->
+                OutboundMessageTemplate.withSubscriptionId(ServerResponsesFactory.createCommandInsertMessage(message)));
         Set<UUID> subscribersIds = new HashSet<>();
-        Set<CommandSubscription> subs = subscriptionManager.getCommandSubscriptionStorage()
-                .getByDeviceGuid(message.getDeviceGuid());
+        Iterable<CommandSubscription> subs = subscriptionManager.getCommandSubscriptionStorage()
+                .getByDeviceGuidAndName(message.getDeviceGuid(), message.getCommand());
         for (CommandSubscription subscription : subs) {
-            if (subscription.getCommandNames() != null &&
-                    !subscription.getCommandNames().contains(message.getCommand())) {
-                logger.debug("Skipping subscriber {}, Command name {} is not in subscription list {}",
-                        subscription.getPrincipal().getName(), message.getCommand(), subscription.getCommandNames());
-                continue;
-            }
-            boolean hasAccess = deviceService.hasAccessTo(subscription.getPrincipal(), message.getDeviceGuid());
+            boolean hasAccess = checkAccess(subscription, message.getDeviceGuid());
             if (hasAccess) {
                 logger.debug("Sending command {} to user {}..", message, subscription.getPrincipal().getName());
-                mes.submit(subscription.getHandlerCreator().getHandler(message, subscription.getSubscriptionId()));
+                mes.submit(subscription.getHandlerCreator()
+                        .getHandler(message, subscription.getSubscriptionId(), template::get));
             }
             subscribersIds.add(subscription.getSubscriptionId());
         }
 
-        Set<CommandSubscription> subsForAll = (subscriptionManager.getCommandSubscriptionStorage()
-                .getByDeviceGuid(Constants.NULL_SUBSTITUTE));
+        Iterable<CommandSubscription> subsForAll = subscriptionManager.getCommandSubscriptionStorage()
+                .getByDeviceGuidAndName(Constants.NULL_SUBSTITUTE, message.getCommand());
 
         for (CommandSubscription subscription : subsForAll) {
-            if (subscription.getCommandNames() != null &&
-                    !subscription.getCommandNames().contains(message.getCommand())) {
-                continue;
-            }
             if (!subscribersIds.contains(subscription.getSubscriptionId())) {
-                boolean hasAccess = deviceService.hasAccessTo(subscription.getPrincipal(), message.getDeviceGuid());
+                boolean hasAccess = checkAccess(subscription, message.getDeviceGuid());
                 if (hasAccess) {
-                    mes.submit(subscription.getHandlerCreator().getHandler(message, subscription.getSubscriptionId()));
+                    mes.submit(subscription.getHandlerCreator()
+                            .getHandler(message, subscription.getSubscriptionId(), template::get));
                 }
             }
         }
     }
+
+    private boolean checkAccess(CommandSubscription subscription, String deviceGuid) {
+        return deviceAccessCache.hasAccess(subscription.getPrincipal(), deviceGuid,
+                () -> deviceService.hasAccessTo(subscription.getPrincipal(), deviceGuid));
+    }
 }
@@ -4,6 +4,10 @@ import com.devicehive.application.DeviceHiveApplication;
 import com.devicehive.messages.subscriptions.CommandUpdateSubscription;
 import com.devicehive.messages.subscriptions.SubscriptionManager;
 import com.devicehive.model.DeviceCommand;
+import com.devicehive.util.ServerResponsesFactory;
+import com.devicehive.websockets.OutboundMessageTemplate;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,15 +28,23 @@ public class CommandUpdateConsumer implements IConsumer<DeviceCommand>{
     @Qualifier(DeviceHiveApplication.MESSAGE_EXECUTOR)
     private ExecutorService mes;
 
+    @Override
+    public boolean isInterested(String key) {
+        return subscriptionManager.hasCommandUpdateSubscriptions();
+    }
+
     @Override
     public void submitMessage(DeviceCommand message) {
         logger.debug("Device command update was submitted: {}", message.getId());
 
+        // serialized once for all websocket subscribers, by the first handler that needs it
+        Supplier<OutboundMessageTemplate> template = Suppliers.memoize(() ->
+                OutboundMessageTemplate.of(ServerResponsesFactory.createCommandUpdateMessage(message)));
         Set<CommandUpdateSubscription> subs = subscriptionManager.getCommandUpdateSubscriptionStorage()
                 .getByCommandId(message.getId());
         for (CommandUpdateSubscription commandUpdateSubscription : subs) {
             mes.submit(commandUpdateSubscription.getHandlerCreator()
-                    .getHandler(message, commandUpdateSubscription.getSubscriptionId()));
+                    .getHandler(message, commandUpdateSubscription.getSubscriptionId(), template::get));
         }
     }
 }
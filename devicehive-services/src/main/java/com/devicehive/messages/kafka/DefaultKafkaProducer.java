@@ -3,21 +3,38 @@ package com.devicehive.messages.kafka;
 import com.devicehive.application.kafka.KafkaConfig;
 import com.devicehive.model.DeviceCommand;
 import com.devicehive.model.DeviceNotification;
-import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Created by tmatvienko on 12/24/14.
  */
 @Profile("!test")
 @Component
-public class DefaultKafkaProducer implements KafkaProducer {
+public class DefaultKafkaProducer implements KafkaProducer, PublicMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(DefaultKafkaProducer.class);
+
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+    private static final List<String> PRODUCER_METRICS = Arrays.asList("record-send-rate", "record-error-rate",
+            "batch-size-avg", "compression-rate-avg", "request-latency-avg", "request-latency-max",
+            "record-queue-time-avg", "buffer-available-bytes");
 
     @Autowired
     @Qualifier(KafkaConfig.NOTIFICATION_PRODUCER)
@@ -27,19 +44,54 @@ public class DefaultKafkaProducer implements KafkaProducer {
     @Qualifier(KafkaConfig.COMMAND_PRODUCER)
     private Producer<String, DeviceCommand> commandProducer;
 
+    private final AtomicLong sendErrors = new AtomicLong();
+
     @Override
-    public void produceDeviceNotificationMsg(DeviceNotification message, String deviceNotificationTopicName) {
-        notificationProducer.send(new ProducerRecord<>(deviceNotificationTopicName, message.getDeviceGuid(), message));
+    public CompletableFuture<Void> produceDeviceNotificationMsg(DeviceNotification message, String deviceNotificationTopicName) {
+        return send(notificationProducer, new ProducerRecord<>(deviceNotificationTopicName, message.getDeviceGuid(), message));
     }
 
     @Override
-    public void produceDeviceCommandMsg(DeviceCommand message, String deviceCommandTopicName) {
-        commandProducer.send(new ProducerRecord<>(deviceCommandTopicName, message.getDeviceGuid(), message));
+    public CompletableFuture<Void> produceDeviceCommandMsg(DeviceCommand message, String deviceCommandTopicName) {
+        return send(commandProducer, new ProducerRecord<>(deviceCommandTopicName, message.getDeviceGuid(), message));
     }
 
     @Override
-    public void produceDeviceCommandUpdateMsg(DeviceCommand message, String deviceCommandTopicName) {
-        commandProducer.send(new ProducerRecord<>(deviceCommandTopicName, message.getDeviceGuid(), message));
+    public CompletableFuture<Void> produceDeviceCommandUpdateMsg(DeviceCommand message, String deviceCommandTopicName) {
+        return send(commandProducer, new ProducerRecord<>(deviceCommandTopicName, message.getDeviceGuid(), message));
+    }
+
+    private <T> CompletableFuture<Void> send(Producer<String, T> producer, ProducerRecord<String, T> record) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        producer.send(record, (metadata, exception) -> {
+            if (exception != null) {
+                sendErrors.incrementAndGet();
+                logger.error("Unable to send message to topic {} for device {}", record.topic(), record.key(), exception);
+                result.completeExceptionally(exception);
+            } else {
+                result.complete(null);
+            }
+        });
+        return result;
     }
 
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("kafka.producer.send.errors", sendErrors.get()));
+        addProducerMetrics(metrics, "kafka.producer.notification.", notificationProducer.metrics());
+        addProducerMetrics(metrics, "kafka.producer.command.", commandProducer.metrics());
+        return metrics;
+    }
+
+    private static void addProducerMetrics(List<Metric<?>> metrics, String prefix,
+                                           Map<MetricName, ? extends org.apache.kafka.common.Metric> producerMetrics) {
+        for (Map.Entry<MetricName, ? extends org.apache.kafka.common.Metric> entry : producerMetrics.entrySet()) {
+            MetricName name = entry.getKey();
+            if (PRODUCER_METRICS_GROUP.equals(name.group()) && PRODUCER_METRICS.contains(name.name())) {
+                double value = entry.getValue().value();
+                metrics.add(new Metric<>(prefix + name.name(), Double.isInfinite(value) || Double.isNaN(value) ? 0.0 : value));
+            }
+        }
+    }
 }
@@ -8,4 +8,13 @@ package com.devicehive.messages.kafka;
 public interface IConsumer<T> {
 
     void submitMessage(T message);
+
+    /**
+     * Messages with keys the consumer is not interested in are skipped without deserialization.
+     *
+     * @param key record key, device guid
+     */
+    default boolean isInterested(String key) {
+        return true;
+    }
 }
@@ -3,12 +3,18 @@ package com.devicehive.messages.kafka;
 import com.devicehive.model.DeviceCommand;
 import com.devicehive.model.DeviceNotification;
 
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publishes messages to kafka. Returned futures complete when the message is acknowledged by the broker according to
+ * producer {@code acks} setting, or complete exceptionally if sending failed.
+ */
 public interface KafkaProducer {
 
-    void produceDeviceNotificationMsg(DeviceNotification message, String topicName);
+    CompletableFuture<Void> produceDeviceNotificationMsg(DeviceNotification message, String topicName);
 
-    void produceDeviceCommandMsg(DeviceCommand message, String topicName);
+    CompletableFuture<Void> produceDeviceCommandMsg(DeviceCommand message, String topicName);
 
-    void produceDeviceCommandUpdateMsg(DeviceCommand message, String topicName);
+    CompletableFuture<Void> produceDeviceCommandUpdateMsg(DeviceCommand message, String topicName);
 
 }
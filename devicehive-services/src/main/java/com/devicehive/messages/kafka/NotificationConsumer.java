@@ -6,6 +6,11 @@ import com.devicehive.messages.subscriptions.NotificationSubscription;
 import com.devicehive.messages.subscriptions.SubscriptionManager;
 import com.devicehive.model.DeviceNotification;
 import com.devicehive.service.DeviceService;
+import com.devicehive.service.helpers.DeviceAccessCache;
+import com.devicehive.util.ServerResponsesFactory;
+import com.devicehive.websockets.OutboundMessageTemplate;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,47 +32,53 @@ public class NotificationConsumer implements IConsumer<DeviceNotification>{
 
     @Autowired
     private DeviceService deviceService;
+    @Autowired
+    private DeviceAccessCache deviceAccessCache;
 
     @Autowired
     @Qualifier(DeviceHiveApplication.MESSAGE_EXECUTOR)
     private ExecutorService mes;
 
+    @Override
+    public boolean isInterested(String key) {
+        return subscriptionManager.hasNotificationSubscriptions(key);
+    }
+
     @Override
     public void submitMessage(final DeviceNotification message) {
+        // serialized once for all websocket subscribers, by the first handler that needs it
+        Supplier<OutboundMessageTemplate> template = Suppliers.memoize(() ->
+                OutboundMessageTemplate.withSubscriptionId(ServerResponsesFactory.createNotificationInsertMessage(message)));
         Set<UUID> subscribersIds = new HashSet<>();
-        Set<NotificationSubscription> subs =
-                subscriptionManager.getNotificationSubscriptionStorage().getByDeviceGuid(
-                        message.getDeviceGuid());
+        Iterable<NotificationSubscription> subs = subscriptionManager.getNotificationSubscriptionStorage()
+                .getByDeviceGuidAndName(message.getDeviceGuid(), message.getNotification());
         for (NotificationSubscription subscription : subs) {
-            if (subscription.getNotificationNames() != null
-                    && !subscription.getNotificationNames().contains(message.getNotification())) {
-                continue;
-            }
-            boolean hasAccess = deviceService.hasAccessTo(subscription.getPrincipal(), message.getDeviceGuid());
+            boolean hasAccess = checkAccess(subscription, message.getDeviceGuid());
             if (hasAccess) {
-                mes.submit(
-                        subscription.getHandlerCreator().getHandler(message, subscription.getSubscriptionId()));
+                mes.submit(subscription.getHandlerCreator()
+                        .getHandler(message, subscription.getSubscriptionId(), template::get));
             }
             subscribersIds.add(subscription.getSubscriptionId());
         }
 
-        Set<NotificationSubscription> subsForAll = (subscriptionManager.getNotificationSubscriptionStorage()
-                .getByDeviceGuid(Constants.NULL_SUBSTITUTE));
+        Iterable<NotificationSubscription> subsForAll = subscriptionManager.getNotificationSubscriptionStorage()
+                .getByDeviceGuidAndName(Constants.NULL_SUBSTITUTE, message.getNotification());
 
         for (NotificationSubscription subscription : subsForAll) {
-            if (subscription.getNotificationNames() != null
-                    && !subscription.getNotificationNames().contains(message.getNotification())) {
-                continue;
-            }
             if (!subscribersIds.contains(subscription.getSubscriptionId())) {
                 boolean
                         hasAccess =
-                        deviceService.hasAccessTo(subscription.getPrincipal(), message.getDeviceGuid());
+                        checkAccess(subscription, message.getDeviceGuid());
                 if (hasAccess) {
                     mes.submit(subscription.getHandlerCreator()
-                            .getHandler(message, subscription.getSubscriptionId()));
+                            .getHandler(message, subscription.getSubscriptionId(), template::get));
                 }
             }
         }
     }
+
+    private boolean checkAccess(NotificationSubscription subscription, String deviceGuid) {
+        return deviceAccessCache.hasAccess(subscription.getPrincipal(), deviceGuid,
+                () -> deviceService.hasAccessTo(subscription.getPrincipal(), deviceGuid));
+    }
 }
@@ -1,45 +1,63 @@
 package com.devicehive.messages.subscriptions;
 
 
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Striped;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Subscription registry. Besides lookups by event source and by subscription id it keeps an inverted index by
+ * (event source, message name) and a separate bucket of subscriptions accepting any name, so matching a message
+ * touches only the subscriptions it is delivered to.
+ * <p>
+ * Updates do not lock the whole storage: changes of one subscription id are serialized by a lock stripe, while
+ * index sets are created and dropped atomically with {@link ConcurrentMap#compute}. Lookups never block.
+ */
 public class AbstractStorage<E, T extends Subscription<E, ?>> {
 
+    private static final int LOCK_STRIPES = 256;
+
+    private final Striped<Lock> locks = Striped.lock(LOCK_STRIPES);
+
     private ConcurrentMap<E, Set<T>> byEventSource = new ConcurrentHashMap<>();
     private ConcurrentMap<UUID, Set<T>> bySubscriptionId = new ConcurrentHashMap<>();
     private ConcurrentMap<Pair<E, UUID>, T> byPair = new ConcurrentHashMap<>();
+    private ConcurrentMap<Pair<E, String>, Set<T>> byEventSourceAndName = new ConcurrentHashMap<>();
+    private ConcurrentMap<E, Set<T>> anyNameByEventSource = new ConcurrentHashMap<>();
 
-    public synchronized void insertAll(Collection<T> coll) {
+    public void insertAll(Collection<T> coll) {
         for (T t : coll) {
             insert(t);
         }
     }
 
-    public synchronized boolean insert(T subscription) {
-        if (byPair.containsKey(ImmutablePair.of(subscription.getEventSource(), subscription.getSubscriptionId()))) {
-            return false;
-        }
-        Set<T> set = byEventSource.get(subscription.getEventSource());
-        if (set == null) {
-            set = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
-            byEventSource.put(subscription.getEventSource(), set);
-        }
-        set.add(subscription);
-
-        set = bySubscriptionId.get(subscription.getSubscriptionId());
-        if (set == null) {
-            set = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
-            bySubscriptionId.put(subscription.getSubscriptionId(), set);
+    public boolean insert(T subscription) {
+        Lock lock = locks.get(subscription.getSubscriptionId());
+        lock.lock();
+        try {
+            Pair<E, UUID> pair = ImmutablePair.of(subscription.getEventSource(), subscription.getSubscriptionId());
+            if (byPair.putIfAbsent(pair, subscription) != null) {
+                return false;
+            }
+            addTo(byEventSource, subscription.getEventSource(), subscription);
+            addTo(bySubscriptionId, subscription.getSubscriptionId(), subscription);
+            if (subscription.getNames() == null) {
+                addTo(anyNameByEventSource, subscription.getEventSource(), subscription);
+            } else {
+                for (String name : subscription.getNames()) {
+                    addTo(byEventSourceAndName, ImmutablePair.of(subscription.getEventSource(), name), subscription);
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
         }
-        set.add(subscription);
-
-        byPair.put(ImmutablePair.of(subscription.getEventSource(), subscription.getSubscriptionId()), subscription);
-        return true;
     }
 
     public Set<T> get(E eventPoint) {
@@ -52,43 +70,68 @@ public class AbstractStorage<E, T extends Subscription<E, ?>> {
         return set != null ? set : Collections.<T>emptySet();
     }
 
-    public synchronized void remove(T subscription) {
+    public boolean hasSubscriptions(E eventPoint) {
+        return byEventSource.containsKey(eventPoint);
+    }
+
+    public boolean isEmpty() {
+        return byPair.isEmpty();
+    }
+
+    /**
+     * Returns subscriptions of the event source which accept messages with given name: the ones listing the name
+     * explicitly and the ones without a name filter.
+     */
+    public Iterable<T> get(E eventPoint, String name) {
+        Set<T> anyName = anyNameByEventSource.get(eventPoint);
+        Set<T> byName = name != null ? byEventSourceAndName.get(ImmutablePair.of(eventPoint, name)) : null;
+        if (byName == null) {
+            return anyName != null ? anyName : Collections.<T>emptySet();
+        }
+        return anyName != null ? Iterables.concat(byName, anyName) : byName;
+    }
+
+    public void remove(T subscription) {
         remove(subscription.getEventSource(), subscription.getSubscriptionId());
     }
 
-    public synchronized void removeAll(Collection<T> coll) {
+    public void removeAll(Collection<T> coll) {
         for (T t : coll) {
             remove(t);
         }
     }
 
-    public synchronized void removePairs(Collection<Pair<E, UUID>> coll) {
+    public void removePairs(Collection<Pair<E, UUID>> coll) {
         for (Pair<E, UUID> pair : coll) {
             remove(pair.getKey(), pair.getValue());
         }
     }
 
-    public synchronized void remove(E eventSource, UUID subscriberId) {
-        T sub = byPair.remove(ImmutablePair.of(eventSource, subscriberId));
-        if (sub == null) {
-            return;
-        }
-
-        Set<T> subs = byEventSource.get(sub.getEventSource());
-        subs.remove(sub);
-        if (subs.isEmpty()) {
-            byEventSource.remove(sub.getEventSource());
-        }
-
-        subs = bySubscriptionId.get(sub.getSubscriptionId());
-        subs.remove(sub);
-        if (subs.isEmpty()) {
-            bySubscriptionId.remove(sub.getSubscriptionId());
+    public void remove(E eventSource, UUID subscriberId) {
+        Lock lock = locks.get(subscriberId);
+        lock.lock();
+        try {
+            T sub = byPair.remove(ImmutablePair.of(eventSource, subscriberId));
+            if (sub == null) {
+                return;
+            }
+
+            removeFrom(byEventSource, sub.getEventSource(), sub);
+            removeFrom(bySubscriptionId, sub.getSubscriptionId(), sub);
+            if (sub.getNames() == null) {
+                removeFrom(anyNameByEventSource, sub.getEventSource(), sub);
+            } else {
+                for (String name : sub.getNames()) {
+                    removeFrom(byEventSourceAndName, ImmutablePair.of(sub.getEventSource(), name), sub);
+                }
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
-    protected synchronized void removeByEventSource(E eventSource) {
-        Set<T> subs = byEventSource.remove(eventSource);
+    protected void removeByEventSource(E eventSource) {
+        Set<T> subs = byEventSource.get(eventSource);
         if (subs == null) {
             return;
         }
@@ -97,7 +140,7 @@ public class AbstractStorage<E, T extends Subscription<E, ?>> {
         }
     }
 
-    public synchronized void removeBySubscriptionId(UUID id) {
+    public void removeBySubscriptionId(UUID id) {
         Set<T> subs = bySubscriptionId.get(id);
         if (subs == null) {
             return;
@@ -106,4 +149,19 @@ public class AbstractStorage<E, T extends Subscription<E, ?>> {
             remove(sub.getEventSource(), sub.getSubscriptionId());
         }
     }
+
+    private static <K, T> void addTo(ConcurrentMap<K, Set<T>> map, K key, T subscription) {
+        map.compute(key, (k, set) -> {
+            Set<T> result = set != null ? set : Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+            result.add(subscription);
+            return result;
+        });
+    }
+
+    private static <K, T> void removeFrom(ConcurrentMap<K, Set<T>> map, K key, T subscription) {
+        map.computeIfPresent(key, (k, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+    }
 }
@@ -15,7 +15,7 @@ public class CommandSubscription extends Subscription<String, DeviceCommand> {
     public CommandSubscription(HivePrincipal principal, String guid, UUID subscriptionId,
                                String commandNames,
                                HandlerCreator<DeviceCommand> handlerCreator) {
-        super(guid, subscriptionId, handlerCreator);
+        super(guid, subscriptionId, commandNames, handlerCreator);
         this.principal = principal;
         this.commandNames = commandNames;
     }
@@ -8,7 +8,11 @@ public class CommandSubscriptionStorage extends AbstractStorage<String, CommandS
         return get(guid);
     }
 
-    public synchronized void removeByDeviceGuid(String guid) {
+    public Iterable<CommandSubscription> getByDeviceGuidAndName(String guid, String name) {
+        return get(guid, name);
+    }
+
+    public void removeByDeviceGuid(String guid) {
         removeByEventSource(guid);
     }
 
@@ -8,7 +8,7 @@ public class CommandUpdateSubscriptionStorage extends AbstractStorage<Long, Comm
         return get(id);
     }
 
-    public synchronized void removeByCommandId(Long commandId) {
+    public void removeByCommandId(Long commandId) {
         removeByEventSource(commandId);
     }
 
@@ -16,7 +16,7 @@ public class NotificationSubscription extends Subscription<String, DeviceNotific
     public NotificationSubscription(HivePrincipal principal, String deviceGuid, UUID subscriberId,
                                     String notificationNames,
                                     HandlerCreator<DeviceNotification> handlerCreator) {
-        super(deviceGuid, subscriberId, handlerCreator);
+        super(deviceGuid, subscriberId, notificationNames, handlerCreator);
         this.principal = principal;
         this.notificationNames = notificationNames != null ? notificationNames : null;
     }
@@ -8,7 +8,11 @@ public class NotificationSubscriptionStorage extends AbstractStorage<String, Not
         return get(guid);
     }
 
-    public synchronized void removeByDevice(String deviceGuid) {
+    public Iterable<NotificationSubscription> getByDeviceGuidAndName(String guid, String name) {
+        return get(guid, name);
+    }
+
+    public void removeByDevice(String deviceGuid) {
         removeByEventSource(deviceGuid);
     }
 
@@ -2,9 +2,13 @@ package com.devicehive.messages.subscriptions;
 
 
 import com.devicehive.messages.handler.HandlerCreator;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 
 public abstract class Subscription<EventSource, T> {
@@ -17,17 +21,34 @@ public abstract class Subscription<EventSource, T> {
 
     private HandlerCreator<T> handlerCreator;
 
+    private Set<String> names;
+
 
     public Subscription(EventSource eventSource, UUID subscriptionId, HandlerCreator<T> handlerCreator) {
+        this(eventSource, subscriptionId, null, handlerCreator);
+    }
+
+    /**
+     * @param names comma separated list of message names this subscription is limited to, {@code null} means any name
+     */
+    public Subscription(EventSource eventSource, UUID subscriptionId, String names, HandlerCreator<T> handlerCreator) {
         this.eventSource = eventSource;
         this.subscriptionId = subscriptionId;
         this.handlerCreator = handlerCreator;
+        this.names = parseNames(names);
     }
 
     EventSource getEventSource() {
         return eventSource;
     }
 
+    /**
+     * @return exact message names this subscription is limited to or {@code null} if it accepts any name
+     */
+    Set<String> getNames() {
+        return names;
+    }
+
     public UUID getSubscriptionId() {
         return subscriptionId;
     }
@@ -36,6 +57,20 @@ public abstract class Subscription<EventSource, T> {
         return handlerCreator;
     }
 
+    private static Set<String> parseNames(String names) {
+        if (names == null) {
+            return null;
+        }
+        Set<String> result = new HashSet<>();
+        for (String name : StringUtils.split(names, ',')) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+        return result.isEmpty() ? null : Collections.unmodifiableSet(result);
+    }
+
     @Override
     public String toString() {
         return "Subscription{" +
@@ -1,8 +1,13 @@
 package com.devicehive.messages.subscriptions;
 
 
+import com.devicehive.configuration.Constants;
 import org.springframework.stereotype.Component;
 
+/**
+ * Local subscriptions of this node. Besides the storages it answers whether the node is interested in messages of a
+ * device at all, which lets kafka consumers skip records of devices nobody here subscribed to.
+ */
 @Component
 public class SubscriptionManager {
 
@@ -21,4 +26,27 @@ public class SubscriptionManager {
     public NotificationSubscriptionStorage getNotificationSubscriptionStorage() {
         return notificationSubscriptionStorage;
     }
+
+    /**
+     * @return true if there are notification subscriptions for the device or for all devices
+     */
+    public boolean hasNotificationSubscriptions(String deviceGuid) {
+        return notificationSubscriptionStorage.hasSubscriptions(Constants.NULL_SUBSTITUTE)
+                || (deviceGuid != null && notificationSubscriptionStorage.hasSubscriptions(deviceGuid));
+    }
+
+    /**
+     * @return true if there are command subscriptions for the device or for all devices
+     */
+    public boolean hasCommandSubscriptions(String deviceGuid) {
+        return commandSubscriptionStorage.hasSubscriptions(Constants.NULL_SUBSTITUTE)
+                || (deviceGuid != null && commandSubscriptionStorage.hasSubscriptions(deviceGuid));
+    }
+
+    /**
+     * Command update subscriptions are keyed by command id, which is not known before deserialization.
+     */
+    public boolean hasCommandUpdateSubscriptions() {
+        return !commandUpdateSubscriptionStorage.isEmpty();
+    }
 }
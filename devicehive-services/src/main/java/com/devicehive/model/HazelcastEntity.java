@@ -4,5 +4,7 @@ import java.util.Date;
 
 public interface HazelcastEntity {
     String getHazelcastKey();
+    Long getId();
+    String getDeviceGuid();
     Date getTimestamp();
 }
@@ -40,6 +40,9 @@ public interface DeviceNotificationResource {
      * @param sortOrderSt  Result list sort order. Available values are ASC and DESC.
      * @param take         Number of records to take from the result list (default is 1000).
      * @param skip         Number of records to skip from the result list.
+     * @param gridInterval Grid interval in seconds. If specified, one notification per interval is returned.
+     * @param aggregate    Reduction of notifications of a grid interval: LAST (default) returns the last
+     *                     notification, STATS returns count, min, max and avg of numeric parameters.
      * @return If successful, this method returns array of <a href="http://www.devicehive
      * .com/restful#Reference/DeviceNotification">DeviceNotification</a> resources in the response body. <table>
      * <tr> <td>Property Name</td> <td>Type</td> <td>Description</td> </tr> <tr> <td>id</td> <td>integer</td>
@@ -80,9 +83,12 @@ public interface DeviceNotificationResource {
             @ApiParam(name = "skip", value = "Skip param")
             @QueryParam("skip")
             Integer skip,
-            @ApiParam(name = "gridInterval", value = "Grid interval")
+            @ApiParam(name = "gridInterval", value = "Grid interval in seconds")
             @QueryParam("gridInterval")
-            Integer gridInterval);
+            Integer gridInterval,
+            @ApiParam(name = "aggregate", value = "Grid interval aggregation", allowableValues = "LAST,STATS")
+            @QueryParam("aggregate")
+            String aggregate);
 
     /**
      * Implementation of <a href="http://www.devicehive.com/restful#Reference/DeviceNotification/get">DeviceHive RESTful
@@ -213,6 +219,8 @@ public interface DeviceNotificationResource {
     @ApiOperation(value = "Create notification", notes = "Creates notification")
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "notification sent", response = DeviceNotification.class),
+            @ApiResponse(code = 202, message = "If notification is stored, but not confirmed by the message bus",
+                    response = DeviceNotification.class),
             @ApiResponse(code = 404, message = "If device not found"),
             @ApiResponse(code = 400, message = "If request is malformed"),
             @ApiResponse(code = 403, message = "If device is not connected to network")
@@ -38,13 +38,16 @@ public interface DeviceResource {
      * @param sortOrderSt        Result list sort order. Available values are ASC and DESC.
      * @param take               Number of records to take from the result list.
      * @param skip               Number of records to skip from the result list.
+     * @param after              Continuation token of the previous page, returned in the
+     *                           {@value com.devicehive.configuration.Constants#CONTINUATION_HEADER} header.
      * @return list of <a href="http://www.devicehive.com/restful#Reference/Device">Devices</a>
      */
     @GET
     @PreAuthorize("hasAnyRole('CLIENT', 'ADMIN', 'KEY') and hasPermission(null, 'GET_DEVICE')")
     @ApiOperation(value = "List devices", notes = "Gets list of devices.")
     @ApiResponses({
-            @ApiResponse(code = 200, message = "If successful, this method returns array of Device resources in the response body.",
+            @ApiResponse(code = 200, message = "If successful, this method returns array of Device resources in the response body. "
+                    + "The X-DeviceHive-Continuation header holds the token to pass as after to read the next page.",
                     response = DeviceVO.class, responseContainer = "List"),
             @ApiResponse(code = 400, message = "If request parameters invalid"),
             @ApiResponse(code = 401, message = "If request is not authorized"),
@@ -85,7 +88,11 @@ public interface DeviceResource {
             @ApiParam(name = "skip", value = "Number of records to skip from the result list.", defaultValue = "0")
             @QueryParam("skip")
             @Min(0) @Max(Integer.MAX_VALUE)
-            Integer skip);
+            Integer skip,
+            @ApiParam(name = "after", value = "Continuation token of the previous page. The list continues right after its last device "
+                    + "and skip counts from there. Supported when sorting by Name, Status or not sorting.")
+            @QueryParam("after")
+            String after);
 
     /**
      * Implementation of <a href="http://www.devicehive.com/restful#Reference/Device/register">DeviceHive RESTful API:
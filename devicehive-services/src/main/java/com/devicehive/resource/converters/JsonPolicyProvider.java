@@ -7,6 +7,7 @@ import com.devicehive.json.strategies.JsonPolicyApply;
 import com.devicehive.json.strategies.JsonPolicyDef;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonWriter;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
@@ -17,6 +18,7 @@ import java.io.*;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
+import java.util.Collection;
 
 import static com.devicehive.configuration.Constants.UTF8;
 
@@ -37,6 +39,10 @@ public abstract class JsonPolicyProvider<T> implements MessageBodyWriter<T>, Mes
     public void writeTo(T entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
                         MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
         throws IOException, WebApplicationException {
+        if (entity instanceof Collection) {
+            writeCollection((Collection<?>) entity, annotations, entityStream);
+            return;
+        }
         Gson gson = createGson(annotations);
         JsonElement jsonElement = gson.toJsonTree(entity);
         Writer writer = null;
@@ -50,6 +56,26 @@ public abstract class JsonPolicyProvider<T> implements MessageBodyWriter<T>, Mes
         }
     }
 
+    /**
+     * Writes collection element by element straight to the stream, so no JSON tree or string of the whole response
+     * is built.
+     */
+    private void writeCollection(Collection<?> entity, Annotation[] annotations, OutputStream entityStream)
+        throws IOException {
+        Gson gson = createGson(annotations);
+        JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(entityStream, Charset.forName(UTF8))));
+        writer.beginArray();
+        for (Object element : entity) {
+            if (element == null) {
+                writer.nullValue();
+            } else {
+                gson.toJson(element, element.getClass(), writer);
+            }
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
     @Override
     public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
         return MediaType.APPLICATION_JSON_TYPE.getType().equals(mediaType.getType()) && MediaType
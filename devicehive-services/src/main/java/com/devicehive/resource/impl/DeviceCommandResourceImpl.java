@@ -14,14 +14,15 @@ import com.devicehive.model.wrappers.DeviceCommandWrapper;
 import com.devicehive.resource.DeviceCommandResource;
 import com.devicehive.resource.converters.TimestampQueryParamParser;
 import com.devicehive.resource.util.CommandResponseFilterAndSort;
+import com.devicehive.resource.util.LongPoll;
 import com.devicehive.resource.util.ResponseFactory;
 import com.devicehive.resource.util.SimpleWaiter;
 import com.devicehive.service.DeviceCommandService;
 import com.devicehive.service.DeviceService;
+import com.devicehive.service.history.HistoryPage;
 import com.devicehive.util.ParseUtil;
 import com.devicehive.vo.DeviceVO;
 import com.devicehive.vo.UserVO;
-import com.google.common.util.concurrent.Runnables;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,7 +36,6 @@ import javax.ws.rs.container.CompletionCallback;
 import javax.ws.rs.core.Response;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.FutureTask;
 import java.util.stream.Collectors;
 
 import static javax.ws.rs.core.Response.Status.*;
@@ -57,6 +57,8 @@ public class DeviceCommandResourceImpl implements DeviceCommandResource {
     @Autowired
     @Qualifier(DeviceHiveApplication.MESSAGE_EXECUTOR)
     private ExecutorService mes;
+    @Autowired
+    private SimpleWaiter waiter;
 
     /**
      * {@inheritDoc}
@@ -83,58 +85,59 @@ public class DeviceCommandResourceImpl implements DeviceCommandResource {
 
         final String devices = StringUtils.isNoneBlank(deviceGuids) ? deviceGuids : null;
         final String names = StringUtils.isNoneBlank(namesString) ? namesString : null;
+        final LongPoll longPoll = new LongPoll(asyncResponse);
 
         mes.submit(() -> {
             try {
-                getOrWaitForCommands(principal, devices, names, ts, timeout, asyncResponse, isMany);
+                getOrWaitForCommands(principal, devices, names, ts, timeout, longPoll, isMany);
             } catch (Exception e) {
-                asyncResponse.resume(e);
+                longPoll.resume(e);
             }
         });
     }
 
+    /**
+     * Subscribes the poll and returns without waiting: the poll is resumed by the first delivered command or by the
+     * waiter timeout.
+     */
     private void getOrWaitForCommands(HivePrincipal principal, final String devices, final String names, Date timestamp,
-                                      long timeout, final AsyncResponse asyncResponse, final boolean isMany) {
+                                      long timeout, final LongPoll longPoll, final boolean isMany) {
         LOGGER.debug("Device command pollMany requested for : {}, {}, {}, {}.  Timeout = {}", devices, names, timestamp,
                 timeout);
 
-        if (timeout < 0) {
-            submitEmptyResponse(asyncResponse);
-        }
-
         final List<String> availableDevices = (StringUtils.isNotEmpty(devices))
                 ? deviceService.findGuidsWithPermissionsCheck(ParseUtil.getList(devices), principal)
                 : new ArrayList<>();
         final List<String> commandNames = ParseUtil.getList(names);
-        Collection<DeviceCommand> list = new ArrayList<>();
-        CommandSubscriptionStorage storage = subscriptionManager.getCommandSubscriptionStorage();
         UUID reqId = UUID.randomUUID();
         Set<CommandSubscription> subscriptionSet = new HashSet<>();
-        FutureTask<Void> simpleWaitTask = new FutureTask<>(Runnables.doNothing(), null);
 
         if (!availableDevices.isEmpty()) {
             List<CommandSubscription> commandSubscriptions = availableDevices.stream()
-                    .map(guid -> getInsertSubscription(principal, guid, reqId, names, asyncResponse, isMany, simpleWaitTask))
+                    .map(guid -> getInsertSubscription(principal, guid, reqId, names, longPoll, isMany))
                     .collect(Collectors.toList());
             subscriptionSet.addAll(commandSubscriptions);
         } else {
             subscriptionSet.add(getInsertSubscription(principal, Constants.NULL_SUBSTITUTE, reqId, names,
-                    asyncResponse, isMany, simpleWaitTask));
+                    longPoll, isMany));
         }
 
-        if (timestamp != null && !availableDevices.isEmpty()) {
-            list = commandService.find(availableDevices, commandNames, timestamp, null, Constants.DEFAULT_TAKE, false, principal);
-        }
+        // subscribe before looking into history, so commands inserted in between are not missed
+        waiter.subscribe(subscriptionManager.getCommandSubscriptionStorage(), subscriptionSet, longPoll);
 
-        if (!list.isEmpty()) {
-            Response response = ResponseFactory.response(Response.Status.OK, list, Policy.COMMAND_LISTED);
-            LOGGER.debug("Commands poll result: {}", response.getEntity());
-            asyncResponse.resume(response);
-        } else {
-            if (!SimpleWaiter.subscribeAndWait(storage, subscriptionSet, simpleWaitTask, timeout)) {
-                submitEmptyResponse(asyncResponse);
+        if (timestamp != null && !availableDevices.isEmpty()) {
+            final Collection<DeviceCommand> list = commandService.find(availableDevices, commandNames, timestamp, null,
+                    Constants.DEFAULT_TAKE, false, principal);
+            if (!list.isEmpty()) {
+                longPoll.resume(() -> {
+                    Response response = ResponseFactory.response(Response.Status.OK, list, Policy.COMMAND_LISTED);
+                    LOGGER.debug("Commands poll result: {}", response.getEntity());
+                    return response;
+                });
+                return;
             }
         }
+        waiter.waitFor(longPoll, timeout, this::emptyResponse);
     }
 
     /**
@@ -156,25 +159,23 @@ public class DeviceCommandResourceImpl implements DeviceCommandResource {
             }
         });
 
+        final LongPoll longPoll = new LongPoll(asyncResponse);
         mes.submit(() -> {
             try {
-                waitAction(deviceGuid, commandId, timeout, asyncResponse, principal);
+                waitAction(deviceGuid, commandId, timeout, longPoll, principal);
             } catch (Exception e) {
-                asyncResponse.resume(e);
+                longPoll.resume(e);
             }
         });
     }
 
-    private void waitAction(String deviceGuid, String commandId, long timeout, AsyncResponse asyncResponse,
+    private void waitAction(String deviceGuid, String commandId, long timeout, LongPoll longPoll,
                             HivePrincipal principal) {
         LOGGER.debug("DeviceCommand wait requested, deviceId = {},  commandId = {}", deviceGuid, commandId);
-        if (timeout < 0) {
-            asyncResponse.resume(ResponseFactory.response(Response.Status.NO_CONTENT));
-        }
         if (deviceGuid == null || commandId == null) {
             LOGGER.warn("DeviceCommand wait request failed. BAD REQUEST: deviceGuid and commandId required", deviceGuid);
             Response response = ResponseFactory.response(Response.Status.BAD_REQUEST);
-            asyncResponse.resume(response);
+            longPoll.resume(() -> response);
             return;
         }
 
@@ -183,7 +184,7 @@ public class DeviceCommandResourceImpl implements DeviceCommandResource {
         if (device == null) {
             LOGGER.warn("DeviceCommand wait request failed. NOT FOUND: device {} not found", deviceGuid);
             Response response = ResponseFactory.response(Response.Status.NOT_FOUND);
-            asyncResponse.resume(response);
+            longPoll.resume(() -> response);
             return;
         }
 
@@ -193,7 +194,7 @@ public class DeviceCommandResourceImpl implements DeviceCommandResource {
             LOGGER.warn("DeviceCommand wait request failed. NOT FOUND: No command found with id = {} for deviceId = {}",
                     commandId, deviceGuid);
             Response response = ResponseFactory.response(Response.Status.NOT_FOUND);
-            asyncResponse.resume(response);
+            longPoll.resume(() -> response);
             return;
         }
 
@@ -201,24 +202,28 @@ public class DeviceCommandResourceImpl implements DeviceCommandResource {
             LOGGER.warn("DeviceCommand wait request failed. BAD REQUEST: Command with id = {} was not sent for device with guid = {}",
                     commandId, deviceGuid);
             Response response = ResponseFactory.response(Response.Status.BAD_REQUEST);
-            asyncResponse.resume(response);
+            longPoll.resume(() -> response);
             return;
         }
 
-        if (!command.getIsUpdated()) {
-            CommandUpdateSubscriptionStorage storage = subscriptionManager.getCommandUpdateSubscriptionStorage();
-            UUID reqId = UUID.randomUUID();
-            CommandUpdateSubscription commandSubscription =
-                    new CommandUpdateSubscription(Long.valueOf(commandId), reqId, RestHandlerCreator.createCommandUpdate(asyncResponse));
-
-            if (!SimpleWaiter.subscribeAndWait(storage, commandSubscription, new FutureTask<Void>(Runnables.doNothing(), null), timeout)) {
-                asyncResponse.resume(ResponseFactory.response(Response.Status.NO_CONTENT));
-            }
+        if (command.getIsUpdated()) {
+            longPoll.resume(() -> ResponseFactory.response(Response.Status.OK, command, Policy.COMMAND_TO_DEVICE));
+            return;
         }
 
-        Response result = ResponseFactory.response(Response.Status.OK, command, Policy.COMMAND_TO_DEVICE);
-        asyncResponse.resume(result);
-
+        CommandUpdateSubscriptionStorage storage = subscriptionManager.getCommandUpdateSubscriptionStorage();
+        UUID reqId = UUID.randomUUID();
+        CommandUpdateSubscription commandSubscription =
+                new CommandUpdateSubscription(command.getId(), reqId, RestHandlerCreator.createCommandUpdate(longPoll));
+        waiter.subscribe(storage, commandSubscription, longPoll);
+
+        // the command could have been updated before the subscription was in place
+        DeviceCommand current = commandService.find(command.getId(), device.getGuid());
+        if (current != null && current.getIsUpdated()) {
+            longPoll.resume(() -> ResponseFactory.response(Response.Status.OK, current, Policy.COMMAND_TO_DEVICE));
+            return;
+        }
+        waiter.waitFor(longPoll, timeout, () -> ResponseFactory.response(Response.Status.NO_CONTENT));
     }
 
     @Override
@@ -228,19 +233,26 @@ public class DeviceCommandResourceImpl implements DeviceCommandResource {
 
         final HivePrincipal principal = (HivePrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         final Date timestamp = TimestampQueryParamParser.parse(startTs);
+        final Date end = TimestampQueryParamParser.parse(endTs);
 
         deviceService.getDeviceWithNetworkAndDeviceClass(guid, principal);
 
         List<String> searchCommands = StringUtils.isNoneEmpty(command) ? Collections.singletonList(command) : null;
 
-        final Collection<DeviceCommand> commandList = commandService.find(Collections.singletonList(guid),
-                searchCommands, timestamp, status, 0, null, principal);
-
         final Comparator<DeviceCommand> comparator = CommandResponseFilterAndSort.buildDeviceCommandComparator(sortField);
         final Boolean reverse = sortOrderSt == null ? null : "desc".equalsIgnoreCase(sortOrderSt);
 
-        final List<DeviceCommand> sortedDeviceCommands = CommandResponseFilterAndSort.orderAndLimit(new ArrayList<>(commandList),
-                comparator, reverse, skip, take);
+        final List<DeviceCommand> sortedDeviceCommands;
+        if (comparator == null) {
+            final HistoryPage page = new HistoryPage(skip != null ? skip : 0, take != null ? take : 0,
+                    Boolean.FALSE.equals(reverse));
+            sortedDeviceCommands = commandService.query(guid, searchCommands, status, timestamp, end, page);
+        } else {
+            final List<DeviceCommand> commandList = commandService.query(guid, searchCommands, status, timestamp, end,
+                    new HistoryPage(0, 0, false));
+            sortedDeviceCommands = CommandResponseFilterAndSort.orderAndLimit(commandList, comparator, reverse, skip,
+                    take);
+        }
         LOGGER.debug("Device command query request proceed successfully for device {}", guid);
         return ResponseFactory.response(Response.Status.OK, sortedDeviceCommands, Policy.COMMAND_LISTED);
     }
@@ -331,13 +343,13 @@ public class DeviceCommandResourceImpl implements DeviceCommandResource {
         return ResponseFactory.response(NO_CONTENT);
     }
 
-    private void submitEmptyResponse(final AsyncResponse asyncResponse) {
-        asyncResponse.resume(ResponseFactory.response(Response.Status.OK, Collections.emptyList(), JsonPolicyDef.Policy.COMMAND_LISTED));
+    private Response emptyResponse() {
+        return ResponseFactory.response(Response.Status.OK, Collections.emptyList(), JsonPolicyDef.Policy.COMMAND_LISTED);
     }
 
     private CommandSubscription getInsertSubscription(HivePrincipal principal, String guid, UUID reqId, String names,
-                                                      AsyncResponse asyncResponse, boolean isMany, FutureTask<Void> waitTask){
-        return new CommandSubscription(principal, guid, reqId, names, RestHandlerCreator.createCommandInsert(asyncResponse, isMany, waitTask));
+                                                      LongPoll longPoll, boolean isMany){
+        return new CommandSubscription(principal, guid, reqId, names, RestHandlerCreator.createCommandInsert(longPoll, isMany));
     }
 
 }
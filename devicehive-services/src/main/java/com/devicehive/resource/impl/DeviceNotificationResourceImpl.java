@@ -7,7 +7,6 @@ import com.devicehive.configuration.Messages;
 import com.devicehive.json.strategies.JsonPolicyDef;
 import com.devicehive.messages.handler.RestHandlerCreator;
 import com.devicehive.messages.subscriptions.NotificationSubscription;
-import com.devicehive.messages.subscriptions.NotificationSubscriptionStorage;
 import com.devicehive.messages.subscriptions.SubscriptionManager;
 import com.devicehive.model.DeviceNotification;
 import com.devicehive.model.ErrorResponse;
@@ -15,26 +14,32 @@ import com.devicehive.model.wrappers.DeviceNotificationWrapper;
 import com.devicehive.resource.DeviceNotificationResource;
 import com.devicehive.resource.converters.TimestampQueryParamParser;
 import com.devicehive.resource.util.CommandResponseFilterAndSort;
+import com.devicehive.resource.util.LongPoll;
 import com.devicehive.resource.util.ResponseFactory;
 import com.devicehive.resource.util.SimpleWaiter;
 import com.devicehive.service.DeviceNotificationService;
 import com.devicehive.service.DeviceService;
+import com.devicehive.service.history.HistoryAggregation;
+import com.devicehive.service.history.HistoryPage;
 import com.devicehive.util.ParseUtil;
 import com.devicehive.vo.DeviceVO;
-import com.google.common.util.concurrent.Runnables;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import static com.devicehive.configuration.Constants.DEFAULT_TAKE;
@@ -57,29 +62,74 @@ public class DeviceNotificationResourceImpl implements DeviceNotificationResourc
     @Autowired
     @Qualifier(DeviceHiveApplication.MESSAGE_EXECUTOR)
     private ExecutorService mes;
+    @Autowired
+    private SimpleWaiter waiter;
+
+    /**
+     * If set, insert waits for the notification to be acknowledged by the message bus and responds 201 only then.
+     * The notification is already in history when the wait fails or times out, so it responds 202 instead of an error
+     * which would make clients submit it again.
+     */
+    @Value("${notification.insert.confirm:false}")
+    private boolean confirmInsert;
+    @Value("${notification.insert.confirm.timeout.ms:5000}")
+    private long confirmInsertTimeout;
 
     /**
      * {@inheritDoc}
      */
     @Override
     public Response query(String guid, String startTs, String endTs, String notification, String sortField,
-                          String sortOrderSt, Integer take, Integer skip, Integer gridInterval) {
+                          String sortOrderSt, Integer take, Integer skip, Integer gridInterval, String aggregate) {
         logger.debug("Device notification query requested for device {}", guid);
         Date timestamp = TimestampQueryParamParser.parse(startTs);
+        Date end = TimestampQueryParamParser.parse(endTs);
+
+        final HistoryAggregation aggregation;
+        try {
+            aggregation = HistoryAggregation.fromString(aggregate);
+        } catch (IllegalArgumentException e) {
+            return ResponseFactory.response(BAD_REQUEST, new ErrorResponse(BAD_REQUEST.getStatusCode(),
+                    Messages.INVALID_REQUEST_PARAMETERS));
+        }
+        if (gridInterval != null && gridInterval < 0) {
+            return ResponseFactory.response(BAD_REQUEST, new ErrorResponse(BAD_REQUEST.getStatusCode(),
+                    Messages.INVALID_REQUEST_PARAMETERS));
+        }
 
         HivePrincipal principal = (HivePrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         DeviceVO device = deviceService.getDeviceWithNetworkAndDeviceClass(guid, principal);
 
         List<String> notificationNames = StringUtils.isNoneEmpty(notification) ? Collections.singletonList(notification) : null;
 
-        final Collection<DeviceNotification> notificationList = notificationService.find(null, null, Arrays.asList(device.getGuid()),
-                notificationNames, timestamp, take, principal);
-
         final Comparator<DeviceNotification> comparator = CommandResponseFilterAndSort.buildDeviceNotificationComparator(sortField);
         final Boolean reverse = sortOrderSt == null ? null : "desc".equalsIgnoreCase(sortOrderSt);
 
-        final List<DeviceNotification> sortedDeviceNotifications = CommandResponseFilterAndSort.orderAndLimit(new ArrayList<>(notificationList),
-                comparator, reverse, skip, take);
+        final List<DeviceNotification> sortedDeviceNotifications;
+        if (gridInterval != null && gridInterval > 0) {
+            final long interval = TimeUnit.SECONDS.toMillis(gridInterval);
+            if (comparator == null) {
+                final HistoryPage page = new HistoryPage(skip != null ? skip : 0, take != null ? take : 0,
+                        Boolean.FALSE.equals(reverse));
+                sortedDeviceNotifications = notificationService.aggregate(device.getGuid(), notificationNames,
+                        timestamp, end, interval, aggregation, page);
+            } else {
+                final List<DeviceNotification> notificationList = notificationService.aggregate(device.getGuid(),
+                        notificationNames, timestamp, end, interval, aggregation, new HistoryPage(0, 0, false));
+                sortedDeviceNotifications = CommandResponseFilterAndSort.orderAndLimit(notificationList, comparator,
+                        reverse, skip, take);
+            }
+        } else if (comparator == null) {
+            final HistoryPage page = new HistoryPage(skip != null ? skip : 0, take != null ? take : 0,
+                    Boolean.FALSE.equals(reverse));
+            sortedDeviceNotifications = notificationService.query(device.getGuid(), notificationNames, timestamp, end,
+                    page);
+        } else {
+            final List<DeviceNotification> notificationList = notificationService.query(device.getGuid(),
+                    notificationNames, timestamp, end, new HistoryPage(0, 0, false));
+            sortedDeviceNotifications = CommandResponseFilterAndSort.orderAndLimit(notificationList, comparator,
+                    reverse, skip, take);
+        }
 
         logger.debug("Device notification query request proceed successfully for device {}", guid);
         return ResponseFactory.response(Response.Status.OK, sortedDeviceNotifications, JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT);
@@ -144,60 +194,58 @@ public class DeviceNotificationResourceImpl implements DeviceNotificationResourc
         final Date ts = TimestampQueryParamParser.parse(timestamp);
         final String devices = StringUtils.isNoneBlank(deviceGuidsString) ? deviceGuidsString : null;
         final String names = StringUtils.isNoneBlank(namesString) ? namesString : null;
+        final LongPoll longPoll = new LongPoll(asyncResponse);
 
-        mes.submit(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    getOrWaitForNotifications(principal, devices, names, ts, timeout, asyncResponse, isMany);
-                } catch (Exception e) {
-                    asyncResponse.resume(e);
-                }
+        mes.submit(() -> {
+            try {
+                getOrWaitForNotifications(principal, devices, names, ts, timeout, longPoll, isMany);
+            } catch (Exception e) {
+                longPoll.resume(e);
             }
         });
     }
 
+    /**
+     * Subscribes the poll and returns without waiting: the poll is resumed by the first delivered notification or by
+     * the waiter timeout.
+     */
     private void getOrWaitForNotifications(final HivePrincipal principal, final String devices,
-                                                               final String names, final Date timestamp, long timeout,
-                                                               final AsyncResponse asyncResponse, final boolean isMany) {
+                                           final String names, final Date timestamp, long timeout,
+                                           final LongPoll longPoll, final boolean isMany) {
         logger.debug("Device notification pollMany requested for : {}, {}, {}.  Timeout = {}", devices, names, timestamp, timeout);
 
-        if (timeout < 0) {
-            submitEmptyResponse(asyncResponse);
-        }
-
         final List<String> availableDevices = (StringUtils.isNotEmpty(devices))
                 ? deviceService.findGuidsWithPermissionsCheck(ParseUtil.getList(devices), principal)
                 : new ArrayList<>();
         final List<String> notificationNames = ParseUtil.getList(names);
-        Collection<DeviceNotification> list = new ArrayList<>();
         final UUID reqId = UUID.randomUUID();
-        NotificationSubscriptionStorage storage = subscriptionManager.getNotificationSubscriptionStorage();
         Set<NotificationSubscription> subscriptionSet = new HashSet<>();
-        FutureTask<Void> simpleWaitTask = new FutureTask<>(Runnables.doNothing(), null);
 
         if (!availableDevices.isEmpty()) {
             subscriptionSet.addAll(availableDevices.stream().map(guid ->
-                    getNotificationInsertSubscription(principal, guid, reqId, names, asyncResponse, isMany, simpleWaitTask))
+                    getNotificationInsertSubscription(principal, guid, reqId, names, longPoll, isMany))
                     .collect(Collectors.toList()));
         } else {
             subscriptionSet.add(getNotificationInsertSubscription(principal, Constants.NULL_SUBSTITUTE, reqId, names,
-                    asyncResponse, isMany, simpleWaitTask));
+                    longPoll, isMany));
         }
 
-        if (timestamp != null && !availableDevices.isEmpty()) {
-            list = notificationService.find(null, null, availableDevices, notificationNames, timestamp, DEFAULT_TAKE, principal);
-        }
+        // subscribe before looking into history, so notifications inserted in between are not missed
+        waiter.subscribe(subscriptionManager.getNotificationSubscriptionStorage(), subscriptionSet, longPoll);
 
-        if (!list.isEmpty()) {
-            Response response = ResponseFactory.response(Response.Status.OK, list, JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT);
-            logger.debug("Notifications poll result: {}", response.getEntity());
-            asyncResponse.resume(response);
-        } else {
-            if (!SimpleWaiter.subscribeAndWait(storage, subscriptionSet, new FutureTask<Void>(Runnables.doNothing(), null), timeout)) {
-                submitEmptyResponse(asyncResponse);
+        if (timestamp != null && !availableDevices.isEmpty()) {
+            final Collection<DeviceNotification> list = notificationService.find(null, null, availableDevices,
+                    notificationNames, timestamp, DEFAULT_TAKE, principal);
+            if (!list.isEmpty()) {
+                longPoll.resume(() -> {
+                    Response response = ResponseFactory.response(Response.Status.OK, list, JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT);
+                    logger.debug("Notifications poll result: {}", response.getEntity());
+                    return response;
+                });
+                return;
             }
         }
+        waiter.waitFor(longPoll, timeout, this::emptyResponse);
     }
 
     /**
@@ -226,20 +274,32 @@ public class DeviceNotificationResourceImpl implements DeviceNotificationResourc
                                                               String.format(Messages.DEVICE_IS_NOT_CONNECTED_TO_NETWORK, guid)));
         }
         DeviceNotification message = notificationService.convertToMessage(notificationSubmit, device);
-        notificationService.submitDeviceNotification(message, device);
+        CompletableFuture<Void> published = notificationService.submitDeviceNotification(message, device);
+        if (confirmInsert) {
+            try {
+                published.get(confirmInsertTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                logger.warn("DeviceNotification insert: notification {} is accepted, but not confirmed by the message bus.",
+                        message.getId(), e);
+                return ResponseFactory.response(ACCEPTED, message, NOTIFICATION_TO_DEVICE);
+            }
+        }
 
         logger.debug("DeviceNotification insertAll proceed successfully");
         return ResponseFactory.response(CREATED, message, NOTIFICATION_TO_DEVICE);
     }
 
-    private void submitEmptyResponse(final AsyncResponse asyncResponse) {
-        asyncResponse.resume(ResponseFactory.response(Response.Status.OK, Collections.emptyList(),
-                JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT));
+    private Response emptyResponse() {
+        return ResponseFactory.response(Response.Status.OK, Collections.emptyList(),
+                JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT);
     }
 
     private NotificationSubscription getNotificationInsertSubscription(HivePrincipal principal, String guid, UUID reqId, String names,
-                          AsyncResponse asyncResponse, boolean isMany, FutureTask<Void> waitTask){
+                          LongPoll longPoll, boolean isMany){
         return new NotificationSubscription(principal, guid, reqId, names,
-                RestHandlerCreator.createNotificationInsert(asyncResponse, isMany, waitTask));
+                RestHandlerCreator.createNotificationInsert(longPoll, isMany));
     }
 }
@@ -2,6 +2,7 @@ package com.devicehive.resource.impl;
 
 import com.devicehive.auth.HivePrincipal;
 import com.devicehive.configuration.Messages;
+import com.devicehive.dao.filter.DeviceListCursor;
 import com.devicehive.json.strategies.JsonPolicyDef;
 import com.devicehive.model.*;
 import com.devicehive.model.updates.DeviceUpdate;
@@ -48,7 +49,8 @@ public class DeviceResourceImpl implements DeviceResource {
      */
     @Override
     public Response list(String name, String namePattern, String status, Long networkId, String networkName,
-                         Long deviceClassId, String deviceClassName, String sortField, String sortOrderSt, Integer take, Integer skip) {
+                         Long deviceClassId, String deviceClassName, String sortField, String sortOrderSt, Integer take, Integer skip,
+                         String after) {
 
         logger.debug("Device list requested");
 
@@ -64,14 +66,25 @@ public class DeviceResourceImpl implements DeviceResource {
         } else if (sortField != null) {
             sortField = sortField.toLowerCase();
         }
+        if (after != null && !DeviceListCursor.supports(sortField)) {
+            return ResponseFactory.response(Response.Status.BAD_REQUEST,
+                    new ErrorResponse(BAD_REQUEST.getStatusCode(),
+                            Messages.INVALID_REQUEST_PARAMETERS));
+        }
+        DeviceListCursor cursor = after != null ? DeviceListCursor.decode(after) : null;
         HivePrincipal principal = (HivePrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
         List<DeviceVO> result = deviceService.getList(name, namePattern, status, networkId, networkName, deviceClassId,
-                deviceClassName, sortField, sortOrder, take, skip, principal);
+                deviceClassName, sortField, sortOrder, take, skip, cursor, principal);
 
         logger.debug("Device list proceed result. Result list contains {} elems", result.size());
 
-        return ResponseFactory.response(Response.Status.OK, ImmutableSet.copyOf(result), JsonPolicyDef.Policy.DEVICE_PUBLISHED);
+        Response response = ResponseFactory.response(Response.Status.OK, ImmutableSet.copyOf(result), JsonPolicyDef.Policy.DEVICE_PUBLISHED);
+        if (result.isEmpty() || !DeviceListCursor.supports(sortField)) {
+            return response;
+        }
+        String continuation = DeviceListCursor.after(result.get(result.size() - 1), sortField).encode();
+        return Response.fromResponse(response).header(CONTINUATION_HEADER, continuation).build();
     }
 
     /**
@@ -0,0 +1,93 @@
+package com.devicehive.resource.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Suspended REST long-poll request. Whichever comes first - a delivered message, the timeout or an error - resumes
+ * the request, later attempts are ignored. Completion tasks (subscription removal, timeout cancellation) run once
+ * the poll is completed.
+ */
+public class LongPoll {
+    private static final Logger logger = LoggerFactory.getLogger(LongPoll.class);
+
+    private final AsyncResponse asyncResponse;
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private final Queue<Runnable> completionTasks = new ConcurrentLinkedQueue<>();
+
+    public LongPoll(AsyncResponse asyncResponse) {
+        this.asyncResponse = asyncResponse;
+    }
+
+    /**
+     * Resumes the request with response built by {@code response}, which is not called if the poll is already
+     * completed.
+     *
+     * @return true if this call has completed the poll
+     */
+    public boolean resume(Supplier<Response> response) {
+        if (!complete()) {
+            return false;
+        }
+        try {
+            asyncResponse.resume(response.get());
+        } catch (RuntimeException e) {
+            logger.error("Unable to build long poll response", e);
+            asyncResponse.resume(e);
+        }
+        return true;
+    }
+
+    /**
+     * Resumes the request with an error.
+     *
+     * @return true if this call has completed the poll
+     */
+    public boolean resume(Throwable error) {
+        if (!complete()) {
+            return false;
+        }
+        asyncResponse.resume(error);
+        return true;
+    }
+
+    public boolean isCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Registers task to run when the poll completes, runs it right away if the poll is already completed.
+     */
+    public void onComplete(Runnable task) {
+        completionTasks.add(task);
+        if (completed.get()) {
+            runCompletionTasks();
+        }
+    }
+
+    private boolean complete() {
+        if (!completed.compareAndSet(false, true)) {
+            return false;
+        }
+        runCompletionTasks();
+        return true;
+    }
+
+    private void runCompletionTasks() {
+        Runnable task;
+        while ((task = completionTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Long poll completion task failed", e);
+            }
+        }
+    }
+}
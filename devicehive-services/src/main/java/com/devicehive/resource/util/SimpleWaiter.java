@@ -1,58 +1,86 @@
 package com.devicehive.resource.util;
 
-import com.devicehive.exceptions.HiveException;
+import com.devicehive.application.DeviceHiveApplication;
 import com.devicehive.messages.subscriptions.AbstractStorage;
 import com.devicehive.messages.subscriptions.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ws.rs.core.Response;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 
+/**
+ * Waits for messages on behalf of REST long-poll requests without holding a thread. Subscriptions of a poll stay in
+ * the storage until the poll completes; the timeout is a task on a shared timer, so a waiting request costs only its
+ * subscriptions and one scheduled task.
+ */
+@Component
 public class SimpleWaiter {
 
     private static final Logger logger = LoggerFactory.getLogger(SimpleWaiter.class);
 
-    private static boolean waitFor(Future<Void> future, long seconds) {
-        try {
-            logger.debug("Waiting for {} seconds", seconds);
-            future.get(seconds, TimeUnit.SECONDS);
-            logger.debug("Waiting done");
-            return true;
-        } catch (InterruptedException | ExecutionException e) {
-            throw new HiveException(e.getMessage(), e, 500);
-        }catch (CancellationException e){
-            logger.debug("Waiting canceled");
-            return true;
-        } catch (TimeoutException e) {
-            logger.debug("Waiting timeout");
-            return false;
-        }
+    @Autowired
+    @Qualifier(DeviceHiveApplication.MESSAGE_EXECUTOR)
+    private ExecutorService mes;
+
+    private ScheduledThreadPoolExecutor timer;
+
+    @PostConstruct
+    protected void init() {
+        timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "long-poll-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
     }
 
-    public static <E, T, S extends Subscription<E, T>> boolean subscribeAndWait(AbstractStorage<E, S> storage,
-                                                                                S sub,
-                                                                                Future<Void> future,
-                                                                                long seconds) {
-        try {
-            storage.insert(sub);
-            return waitFor(future, seconds);
-        } finally {
-            logger.debug("{} sub removed", sub.getSubscriptionId());
-            storage.remove(sub);
-        }
+    @PreDestroy
+    protected void shutdown() {
+        timer.shutdownNow();
     }
 
-    public static <E, T, S extends Subscription<E, T>> boolean subscribeAndWait(AbstractStorage<E, S> storage,
-                                                                                Collection<S> subs,
-                                                                                Future<Void> future,
-                                                                                long seconds) {
-        try {
-            storage.insertAll(subs);
-            return waitFor(future, seconds);
-        } finally {
-            logger.debug("{} subs removed", subs.size());
+    public <E, T, S extends Subscription<E, T>> void subscribe(AbstractStorage<E, S> storage, S sub, LongPoll poll) {
+        subscribe(storage, Collections.singleton(sub), poll);
+    }
+
+    /**
+     * Inserts subscriptions into the storage and removes them when the poll completes.
+     */
+    public <E, T, S extends Subscription<E, T>> void subscribe(AbstractStorage<E, S> storage, Collection<S> subs,
+                                                               LongPoll poll) {
+        storage.insertAll(subs);
+        poll.onComplete(() -> {
             storage.removeAll(subs);
+            logger.debug("{} subs removed", subs.size());
+        });
+    }
+
+    /**
+     * Resumes the poll with {@code onTimeout} response unless it completes within given number of seconds.
+     * Non positive timeout resumes it right away.
+     */
+    public void waitFor(LongPoll poll, long seconds, Supplier<Response> onTimeout) {
+        if (seconds <= 0) {
+            poll.resume(onTimeout);
+            return;
         }
+        logger.debug("Waiting for {} seconds", seconds);
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            try {
+                mes.execute(() -> poll.resume(onTimeout));
+            } catch (RejectedExecutionException e) {
+                poll.resume(onTimeout);
+            }
+        }, seconds, TimeUnit.SECONDS);
+        poll.onComplete(() -> timeout.cancel(false));
     }
 }
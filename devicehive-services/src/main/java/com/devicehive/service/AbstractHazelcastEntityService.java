@@ -2,36 +2,32 @@ package com.devicehive.service;
 
 import com.devicehive.auth.HivePrincipal;
 import com.devicehive.messages.bus.MessageBus;
-import com.devicehive.model.DeviceCommand;
-import com.devicehive.model.DeviceNotification;
 import com.devicehive.model.HazelcastEntity;
-import com.devicehive.service.helpers.HazelcastEntityComparator;
-import com.devicehive.service.helpers.HazelcastHelper;
+import com.devicehive.service.history.DeviceHistoryStore;
+import com.devicehive.service.history.HistoryFilter;
 import com.hazelcast.core.HazelcastInstance;
-import com.hazelcast.core.IMap;
-import com.hazelcast.query.PagingPredicate;
-import com.hazelcast.query.Predicate;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 
 @Repository
 public abstract class AbstractHazelcastEntityService {
     private static final Logger logger = LoggerFactory.getLogger(AbstractHazelcastEntityService.class);
 
-    public static final String NOTIFICATIONS_MAP = "NOTIFICATIONS-MAP";
-    public static final String COMMANDS_MAP = "COMMANDS-MAP";
+    public static final String NOTIFICATIONS_MAP = DeviceHistoryStore.NOTIFICATIONS_MAP;
+    public static final String COMMANDS_MAP = DeviceHistoryStore.COMMANDS_MAP;
 
     @Autowired
     protected HazelcastInstance hazelcastInstance;
 
     @Autowired
-    protected HazelcastHelper hazelcastHelper;
+    protected DeviceHistoryStore historyStore;
 
     @Autowired
     protected MessageBus messageBus;
@@ -39,24 +35,10 @@ public abstract class AbstractHazelcastEntityService {
     @Autowired
     private DeviceService deviceService;
 
-    private Map<Class, IMap<String, Object>> mapsHolder;
-
-    @PostConstruct
-    protected void init() {
-        final IMap<String, Object> notificationsMap = hazelcastInstance.getMap("NOTIFICATIONS-MAP");
-        notificationsMap.addIndex("timestamp", true);
-        final IMap<String, Object> commandsMap = hazelcastInstance.getMap("COMMANDS-MAP");
-        commandsMap.addIndex("timestamp", true);
-
-        mapsHolder = new HashMap<>(2);
-        mapsHolder.put(DeviceNotification.class, notificationsMap);
-        mapsHolder.put(DeviceCommand.class, commandsMap);
-    }
-
 
     protected  <T extends HazelcastEntity> T find(Long id, String guid, Class<T> entityClass) {
-        final Predicate filters = hazelcastHelper.prepareFilters(id, guid);
-        final List<T> entities = new ArrayList<>(retrieve(filters, 1, entityClass));
+        final Collection<String> devices = StringUtils.isNotEmpty(guid) ? Collections.singletonList(guid) : null;
+        final List<T> entities = historyStore.find(devices, new HistoryFilter().id(id), 1, entityClass);
 
         return entities.isEmpty() ? null : entities.get(0);
     }
@@ -67,35 +49,40 @@ public abstract class AbstractHazelcastEntityService {
                               Integer take, Boolean hasResponse,
                               HivePrincipal principal, Class<T> entityClass) {
         List<String> availableDevicesGUIDs = getAvailableDevices(devices, principal);
-        final Predicate filters = hazelcastHelper.prepareFilters(availableDevicesGUIDs, names, timestamp, status, hasResponse);
-        return retrieve(filters, take, entityClass);
+        final HistoryFilter filter = new HistoryFilter()
+                .names(names)
+                .since(timestamp)
+                .status(status)
+                .hasResponse(hasResponse);
+        return historyStore.find(availableDevicesGUIDs, filter, take != null ? take : 0, entityClass);
     }
 
     protected  <T extends HazelcastEntity> Collection<T> find(Long id, String guid, Collection<String> devices,
                               Collection<String> names, Date timestamp, Integer take,
                               HivePrincipal principal, Class<T> entityClass) {
         List<String> availableDevicesGUIDs = getAvailableDevices(devices, principal);
-        final Predicate filters = hazelcastHelper.prepareFilters(id, guid, availableDevicesGUIDs, names,
-                timestamp);
-        return retrieve(filters, take, entityClass);
+        if (StringUtils.isNotEmpty(guid)) {
+            availableDevicesGUIDs = availableDevicesGUIDs.isEmpty() || availableDevicesGUIDs.contains(guid)
+                    ? Collections.singletonList(guid)
+                    : Collections.emptyList();
+            if (availableDevicesGUIDs.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        final HistoryFilter filter = new HistoryFilter()
+                .id(id)
+                .names(names)
+                .since(timestamp);
+        return historyStore.find(availableDevicesGUIDs, filter, take != null ? take : 0, entityClass);
     }
 
-    protected  <T extends HazelcastEntity> void store(final T hzEntity, final Class<T> tClass) {
+    /**
+     * @return future completed when the entity is acknowledged by the message bus
+     */
+    protected  <T extends HazelcastEntity> CompletableFuture<Void> store(final T hzEntity, final Class<T> tClass) {
         logger.debug("Saving entity into hazelcast. [Entity: {}]", hzEntity);
-        mapsHolder.get(tClass).set(hzEntity.getHazelcastKey(), hzEntity);
-        messageBus.publish(hzEntity);
-    }
-
-    @SuppressWarnings("unchecked")
-    private  <T extends HazelcastEntity> Collection<T> retrieve(Predicate andPredicate, int pageSize, Class<T> tClass) {
-        if (pageSize <= 0) {
-            final Collection collection = mapsHolder.get(tClass).values(andPredicate);
-            return ((Collection<T>) collection);
-        } else {
-            final PagingPredicate pagingPredicate = new PagingPredicate(andPredicate, new HazelcastEntityComparator(), pageSize);
-            final Collection collection = mapsHolder.get(tClass).values(pagingPredicate);
-            return ((Collection<T>) collection);
-        }
+        historyStore.store(hzEntity, tClass);
+        return messageBus.publish(hzEntity);
     }
 
     private List<String> getAvailableDevices(Collection<String> devices, HivePrincipal principal){
@@ -1,5 +1,6 @@
 package com.devicehive.service;
 
+import com.devicehive.auth.CompiledPermission;
 import com.devicehive.configuration.ConfigurationService;
 import com.devicehive.configuration.Constants;
 import com.devicehive.configuration.Messages;
@@ -12,9 +13,13 @@ import com.devicehive.model.enums.AccessType;
 import com.devicehive.model.oauth.*;
 import com.devicehive.model.updates.AccessKeyUpdate;
 import com.devicehive.service.helpers.AccessKeyProcessor;
+import com.devicehive.service.helpers.AuthenticationCache;
+import com.devicehive.service.helpers.DeviceAccessCache;
 import com.devicehive.service.helpers.OAuthAuthenticationUtils;
 import com.devicehive.service.time.TimestampService;
 import com.devicehive.vo.*;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,7 +30,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.constraints.NotNull;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Optional.ofNullable;
 
@@ -56,6 +63,19 @@ public class AccessKeyService {
     @Autowired
     private DeviceDao deviceDao;
 
+    @Autowired
+    private DeviceAccessCache deviceAccessCache;
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
+    /**
+     * Session expiration dates granted by this node, pending ones are written by {@link #flushSessionExtensions()}.
+     */
+    private final Cache<Long, Date> grantedSessions = CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+    private final ConcurrentMap<Long, Date> pendingSessions = new ConcurrentHashMap<>();
 
     @Transactional
     public AccessKeyVO create(@NotNull UserVO user, @NotNull AccessKeyVO accessKey) {
@@ -113,6 +133,8 @@ public class AccessKeyService {
             }
         }
         accessKeyDao.merge(existing);
+        deviceAccessCache.invalidateAccessKey(keyId);
+        authenticationCache.invalidateAccessKey(keyId);
         if (toUpdate.getPermissions() != null) {
             if (!toUpdate.getPermissions().isPresent()) {
                 logger.error("New permissions shouldn't be empty in request parameters");
@@ -142,18 +164,48 @@ public class AccessKeyService {
             return null;
         }
         AccessKeyVO accessKey = accessKeyOpt.get();
+        extendSession(accessKey);
+        return accessKey;
+    }
+
+    /**
+     * Extends expiration date of a session key which is about to expire. The new date is set on the given key right
+     * away and stored in background, so that authentication does not wait for the write.
+     */
+    public void extendSession(@NotNull AccessKeyVO accessKey) {
+        if (AccessKeyType.SESSION != accessKey.getType() || accessKey.getExpirationDate() == null) {
+            return;
+        }
+        Date granted = grantedSessions.getIfPresent(accessKey.getId());
+        if (granted != null && granted.after(accessKey.getExpirationDate())) {
+            accessKey.setExpirationDate(granted);
+        }
         final Long expirationPeriod = configurationService.getLong(Constants.SESSION_TIMEOUT, Constants.DEFAULT_SESSION_TIMEOUT);
-        if (accessKey.getExpirationDate() != null) {
-            final Long expiresIn = accessKey.getExpirationDate().getTime() - timestampService.getTimestamp().getTime();
-            if (AccessKeyType.SESSION == accessKey.getType() && expiresIn > 0 && expiresIn < expirationPeriod / 2) {
-                // previously EntityManager.refresh(accessKey, LockModeType.PESSIMISTIC_WRITE);
-                // was used because authenticate from various threads could update expiration date too often and run into deadlock
-                // Migration on JWT can solve this problem
-                accessKey.setExpirationDate(new Date(timestampService.getTimestamp().getTime() + expirationPeriod));
-                return accessKeyDao.merge(accessKey);
+        final long now = timestampService.getTimestampMillis();
+        final long expiresIn = accessKey.getExpirationDate().getTime() - now;
+        if (expiresIn > 0 && expiresIn < expirationPeriod / 2) {
+            Date expirationDate = new Date(now + expirationPeriod);
+            accessKey.setExpirationDate(expirationDate);
+            grantedSessions.put(accessKey.getId(), expirationDate);
+            pendingSessions.put(accessKey.getId(), expirationDate);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.session.flush.interval.ms:1000}")
+    @Transactional
+    public void flushSessionExtensions() {
+        for (Long keyId : pendingSessions.keySet()) {
+            Date expirationDate = pendingSessions.remove(keyId);
+            if (expirationDate == null) {
+                continue;
+            }
+            AccessKeyVO existing = accessKeyDao.find(keyId);
+            if (existing != null && existing.getExpirationDate() != null
+                    && existing.getExpirationDate().before(expirationDate)) {
+                existing.setExpirationDate(expirationDate);
+                accessKeyDao.merge(existing);
             }
         }
-        return accessKey;
     }
 
     public AccessKeyVO createAccessKey(@NotNull AccessKeyRequestVO request, IdentityProviderEnum identityProviderEnum) {
@@ -195,15 +247,14 @@ public class AccessKeyService {
     public boolean hasAccessToNetwork(AccessKeyVO accessKey, NetworkVO targetNetwork) {
         Set<AccessKeyPermissionVO> permissions = accessKey.getPermissions();
         UserVO user = accessKey.getUser();
-        boolean hasNullPermission = permissions.stream().anyMatch(perm -> perm.getNetworkIdsAsSet() == null);
+        boolean hasNullPermission = permissions.stream().anyMatch(perm -> !perm.compile().isNetworkRestricted());
         if (hasNullPermission) {
             return userService.hasAccessToNetwork(user, targetNetwork);
         } else {
-            Set<Long> allowedNetworks = permissions.stream().map(AccessKeyPermissionVO::getNetworkIdsAsSet)
-                    .flatMap(Collection::stream)
-                    .collect(Collectors.toSet());
+            boolean allowedNetwork = permissions.stream()
+                    .anyMatch(perm -> perm.compile().allowsNetwork(targetNetwork.getId()));
             UserWithNetworkVO userWithNetworks = userService.findUserWithNetworks(user.getId());
-            return allowedNetworks.contains(targetNetwork.getId()) &&
+            return allowedNetwork &&
                     (user.isAdmin() || hasNetworksThat(userWithNetworks.getNetworks(), targetNetwork));
         }
     }
@@ -215,34 +266,23 @@ public class AccessKeyService {
         Set<Long> allowedNetworks = new HashSet<>();
 
         UserWithNetworkVO accessKeyUser = userService.findUserWithNetworks(accessKey.getUser().getId());
-        Set<AccessKeyPermissionVO> toRemove = new HashSet<>();
 
         //TODO [rafa] requires network from device here
         DeviceVO device = deviceDao.findByUUID(deviceGuid);
 
         for (AccessKeyPermissionVO currentPermission : permissions) {
-            if (currentPermission.getDeviceGuidsAsSet() == null) {
+            CompiledPermission compiled = currentPermission.compile();
+            if (!compiled.isDeviceRestricted()) {
                 allowedDevices.add(null);
-            } else {
-                if (!currentPermission.getDeviceGuidsAsSet().contains(deviceGuid)) {
-                    toRemove.add(currentPermission);
-                } else {
-                    allowedDevices.addAll(currentPermission.getDeviceGuidsAsSet());
-                }
+            } else if (compiled.allowsDevice(deviceGuid)) {
+                allowedDevices.add(deviceGuid);
             }
-            if (currentPermission.getNetworkIdsAsSet() == null) {
+            if (!compiled.isNetworkRestricted()) {
                 allowedNetworks.add(null);
-            } else {
-                if (device.getNetwork() != null) {
-                    if (!currentPermission.getNetworkIdsAsSet().contains(device.getNetwork().getId())) {
-                        toRemove.add(currentPermission);
-                    } else {
-                        allowedNetworks.addAll(currentPermission.getNetworkIdsAsSet());
-                    }
-                }
+            } else if (device.getNetwork() != null && compiled.allowsNetwork(device.getNetwork().getId())) {
+                allowedNetworks.add(device.getNetwork().getId());
             }
         }
-        permissions.removeAll(toRemove);
         boolean hasAccess = hasPrincipalAccessToDevice(allowedDevices, accessKeyUser, device);
 
         if (hasAccess) {
@@ -296,6 +336,8 @@ public class AccessKeyService {
         String key = keyProcessor.generateKey();
         existing.setKey(key);
         accessKeyDao.merge(existing);
+        deviceAccessCache.invalidateAccessKey(existing.getId());
+        authenticationCache.invalidateAccessKey(existing.getId());
         return existing;
     }
 
@@ -314,6 +356,8 @@ public class AccessKeyService {
     public boolean delete(Long userId, @NotNull Long keyId) {
         int removed = ofNullable(userId).map(id -> accessKeyDao.deleteByIdAndUser(keyId, id))
                 .orElseGet(() -> accessKeyDao.deleteById(keyId));
+        deviceAccessCache.invalidateAccessKey(keyId);
+        authenticationCache.invalidateAccessKey(keyId);
         return removed > 0;
     }
 
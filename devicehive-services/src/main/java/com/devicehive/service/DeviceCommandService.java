@@ -3,6 +3,9 @@ package com.devicehive.service;
 import com.devicehive.auth.HivePrincipal;
 import com.devicehive.model.DeviceCommand;
 import com.devicehive.model.wrappers.DeviceCommandWrapper;
+import com.devicehive.service.history.HistoryFilter;
+import com.devicehive.service.history.HistoryPage;
+import com.devicehive.service.id.IdGenerator;
 import com.devicehive.service.time.TimestampService;
 import com.devicehive.util.HiveValidator;
 import com.devicehive.vo.DeviceVO;
@@ -11,8 +14,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Random;
+import java.util.List;
 
 
 @Service
@@ -20,6 +24,8 @@ public class DeviceCommandService extends AbstractHazelcastEntityService {
     @Autowired
     private TimestampService timestampService;
     @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
     private HiveValidator hiveValidator;
 
     public DeviceCommand find(Long id, String guid) {
@@ -32,9 +38,23 @@ public class DeviceCommandService extends AbstractHazelcastEntityService {
         return find(devices, names, timestamp, status, take, hasResponse, principal, DeviceCommand.class);
     }
 
+    /**
+     * Returns requested page of commands of the device with timestamp after start and not after end. Access to the
+     * device is expected to be checked by the caller.
+     */
+    public List<DeviceCommand> query(String guid, Collection<String> names, String status, Date start, Date end,
+                                     HistoryPage page) {
+        final HistoryFilter filter = new HistoryFilter()
+                .names(names)
+                .status(status)
+                .since(start)
+                .until(end);
+        return historyStore.find(Collections.singletonList(guid), filter, page, DeviceCommand.class);
+    }
+
     public DeviceCommand insert(DeviceCommandWrapper commandWrapper, DeviceVO device, UserVO user) {
         DeviceCommand command = new DeviceCommand();
-        command.setId(Math.abs(new Random().nextInt()));
+        command.setId(idGenerator.generate());
         command.setDeviceGuid(device.getGuid());
         command.setIsUpdated(false);
         command.setTimestamp(timestampService.getTimestamp());
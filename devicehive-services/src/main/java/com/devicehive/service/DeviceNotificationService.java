@@ -5,6 +5,10 @@ import com.devicehive.dao.DeviceDao;
 import com.devicehive.model.DeviceNotification;
 import com.devicehive.model.SpecialNotifications;
 import com.devicehive.model.wrappers.DeviceNotificationWrapper;
+import com.devicehive.service.history.HistoryAggregation;
+import com.devicehive.service.history.HistoryFilter;
+import com.devicehive.service.history.HistoryPage;
+import com.devicehive.service.id.IdGenerator;
 import com.devicehive.service.time.TimestampService;
 import com.devicehive.util.ServerResponsesFactory;
 import com.devicehive.vo.DeviceVO;
@@ -12,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class DeviceNotificationService extends AbstractHazelcastEntityService {
@@ -20,6 +25,8 @@ public class DeviceNotificationService extends AbstractHazelcastEntityService {
     @Autowired
     private TimestampService timestampService;
     @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
     private DeviceDao deviceDao;
 
     public DeviceNotification find(Long id, String guid) {
@@ -33,23 +40,54 @@ public class DeviceNotificationService extends AbstractHazelcastEntityService {
         return find(id, guid, devices, names, timestamp, take, principal, DeviceNotification.class);
     }
 
-    public void submitDeviceNotification(final DeviceNotification notification, final DeviceVO device) {
+    /**
+     * Returns requested page of notifications of the device with timestamp after start and not after end. Access to
+     * the device is expected to be checked by the caller.
+     */
+    public List<DeviceNotification> query(String guid, Collection<String> names, Date start, Date end,
+                                          HistoryPage page) {
+        return historyStore.find(Collections.singletonList(guid), filter(names, start, end), page,
+                DeviceNotification.class);
+    }
+
+    /**
+     * Same as {@link #query} but notifications are reduced to one per grid interval (in milliseconds) close to the
+     * data, in the history store. Returns requested page of intervals.
+     */
+    public List<DeviceNotification> aggregate(String guid, Collection<String> names, Date start, Date end,
+                                              long gridInterval, HistoryAggregation aggregation, HistoryPage page) {
+        return historyStore.aggregate(guid, filter(names, start, end), gridInterval, aggregation, page);
+    }
+
+    /**
+     * @return future completed when all notifications are acknowledged by the message bus
+     */
+    public CompletableFuture<Void> submitDeviceNotification(final DeviceNotification notification, final DeviceVO device) {
         List<DeviceNotification> proceedNotifications = processDeviceNotification(notification, device);
-        for (DeviceNotification currentNotification : proceedNotifications) {
-            store(currentNotification, DeviceNotification.class);
+        CompletableFuture<?>[] published = new CompletableFuture<?>[proceedNotifications.size()];
+        for (int i = 0; i < published.length; i++) {
+            published[i] = store(proceedNotifications.get(i), DeviceNotification.class);
         }
+        return CompletableFuture.allOf(published);
     }
 
     public void submitDeviceNotification(final DeviceNotification notification, final String deviceGuid) {
         notification.setTimestamp(timestampService.getTimestamp());
-        notification.setId(Math.abs(new Random().nextInt()));
+        notification.setId(idGenerator.generate());
         notification.setDeviceGuid(deviceGuid);
         store(notification, DeviceNotification.class);
     }
 
+    private static HistoryFilter filter(Collection<String> names, Date start, Date end) {
+        return new HistoryFilter()
+                .names(names)
+                .since(start)
+                .until(end);
+    }
+
     public DeviceNotification convertToMessage(DeviceNotificationWrapper notificationSubmit, DeviceVO device) {
         DeviceNotification message = new DeviceNotification();
-        message.setId(Math.abs(new Random().nextInt()));
+        message.setId(idGenerator.generate());
         message.setDeviceGuid(device.getGuid());
         message.setTimestamp(timestampService.getTimestamp());
         message.setNotification(notificationSubmit.getNotification());
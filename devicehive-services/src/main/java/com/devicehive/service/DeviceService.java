@@ -5,9 +5,11 @@ import com.devicehive.auth.HivePrincipal;
 import com.devicehive.auth.HiveRoles;
 import com.devicehive.configuration.Messages;
 import com.devicehive.dao.DeviceDao;
+import com.devicehive.dao.filter.DeviceListCursor;
 import com.devicehive.exceptions.HiveException;
 import com.devicehive.model.*;
 import com.devicehive.model.updates.DeviceUpdate;
+import com.devicehive.service.helpers.DeviceAccessCache;
 import com.devicehive.util.HiveValidator;
 import com.devicehive.util.ServerResponsesFactory;
 import com.devicehive.vo.*;
@@ -45,6 +47,8 @@ public class DeviceService {
     private HiveValidator hiveValidator;
     @Autowired
     private DeviceDao deviceDao;
+    @Autowired
+    private DeviceAccessCache deviceAccessCache;
 
     @Transactional(propagation = Propagation.REQUIRED)
     public void deviceSaveAndNotify(DeviceUpdate device, Set<DeviceClassEquipmentVO> equipmentSet, HivePrincipal principal) {
@@ -66,6 +70,9 @@ public class DeviceService {
         } else {
             throw new HiveException(Messages.UNAUTHORIZED_REASON_PHRASE, UNAUTHORIZED.getStatusCode());
         }
+        if (device.getNetwork() != null) {
+            deviceAccessCache.invalidateDevice(device.getGuid().orElse(null));
+        }
         deviceNotificationService.submitDeviceNotification(dn, device.getGuid().orElse(null));
         deviceActivityService.update(device.getGuid().orElse(null));
     }
@@ -314,6 +321,7 @@ public class DeviceService {
     @Transactional
     public boolean deleteDevice(@NotNull String guid, HivePrincipal principal) {
         List<DeviceVO> existing = getDeviceList(Arrays.asList(guid), principal);
+        deviceAccessCache.invalidateDevice(guid);
         return existing.isEmpty() || deviceDao.deleteByUUID(guid) != 0;
     }
 
@@ -329,9 +337,10 @@ public class DeviceService {
                                 @NotNull Boolean sortOrderAsc,
                                 Integer take,
                                 Integer skip,
+                                DeviceListCursor after,
                                 HivePrincipal principal) {
         return deviceDao.getList(name, namePattern, status, networkId, networkName, deviceClassId, deviceClassName,
-                sortField, sortOrderAsc, take, skip, principal);
+                sortField, sortOrderAsc, take, skip, after, principal);
     }
 
     @Transactional(propagation = Propagation.SUPPORTS)
@@ -13,6 +13,7 @@ import com.devicehive.exceptions.ActionNotAllowedException;
 import com.devicehive.exceptions.IllegalParametersException;
 import com.devicehive.model.*;
 import com.devicehive.model.updates.NetworkUpdate;
+import com.devicehive.service.helpers.DeviceAccessCache;
 import com.devicehive.util.HiveValidator;
 import com.devicehive.vo.*;
 import org.slf4j.Logger;
@@ -44,6 +45,8 @@ public class NetworkService {
     private HiveValidator hiveValidator;
     @Autowired
     private NetworkDao networkDao;
+    @Autowired
+    private DeviceAccessCache deviceAccessCache;
 
     @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public NetworkWithUsersAndDevicesVO getWithDevicesAndDeviceClasses(@NotNull Long networkId, @NotNull HiveAuthentication hiveAuthentication) {
@@ -69,10 +72,8 @@ public class NetworkService {
                 }).map(network -> {
                     if (principal.getKey() != null) {
                         Set<AccessKeyPermissionVO> permissions = principal.getKey().getPermissions();
-                        Set<AccessKeyPermissionVO> filtered = CheckPermissionsHelper
-                                .filterPermissions(principal.getKey(), permissions, AccessKeyAction.GET_DEVICE,
-                                        details.getClientInetAddress(), details.getOrigin());
-                        if (filtered.isEmpty()) {
+                        if (!CheckPermissionsHelper.hasPermission(principal.getKey(), permissions,
+                                AccessKeyAction.GET_DEVICE, details.getClientInetAddress(), details.getOrigin())) {
                             network.setDevices(Collections.emptySet());
                         }
                     }
@@ -117,6 +118,9 @@ public class NetworkService {
         logger.trace("About to execute named query \"Network.deleteById\" for ");
         int result = networkDao.deleteById(id);
         logger.debug("Deleted {} rows from Network table", result);
+        if (result > 0) {
+            deviceAccessCache.invalidateNetwork(id);
+        }
         return result > 0;
     }
 
@@ -154,6 +158,7 @@ public class NetworkService {
             existing.setDescription(networkUpdate.getDescription().orElse(null));
         }
         hiveValidator.validate(existing);
+        deviceAccessCache.invalidateNetwork(networkId);
 
         return networkDao.merge(existing);
     }
@@ -6,6 +6,7 @@ import com.devicehive.dao.OAuthClientDao;
 import com.devicehive.exceptions.ActionNotAllowedException;
 import com.devicehive.exceptions.IllegalParametersException;
 import com.devicehive.model.updates.OAuthClientUpdate;
+import com.devicehive.service.helpers.AuthenticationCache;
 import com.devicehive.service.helpers.DefaultPasswordProcessor;
 import com.devicehive.service.helpers.PasswordProcessor;
 import com.devicehive.vo.OAuthClientVO;
@@ -27,6 +28,9 @@ public class OAuthClientService {
     @Autowired
     private OAuthClientDao oAuthClientDao;
 
+    @Autowired
+    private AuthenticationCache authenticationCache;
+
     private PasswordProcessor secretGenerator = new DefaultPasswordProcessor();
 
     @Transactional(propagation = Propagation.SUPPORTS)
@@ -102,12 +106,14 @@ public class OAuthClientService {
             existing.setOauthId(client.getOauthId().orElse(null));
         }
         oAuthClientDao.merge(existing);
+        authenticationCache.invalidateOAuthClient(clientId);
         return true;
     }
 
     @Transactional(propagation = Propagation.REQUIRED)
     public boolean delete(@NotNull Long id) {
         int result = oAuthClientDao.deleteById(id);
+        authenticationCache.invalidateOAuthClient(id);
         return result > 0;
     }
 
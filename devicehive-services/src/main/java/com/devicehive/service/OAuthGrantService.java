@@ -183,7 +183,7 @@ public class OAuthGrantService {
         if (redirectUri != null && !grant.getRedirectUri().equals(redirectUri)) {
             throw new HiveException(Messages.INVALID_URI, SC_UNAUTHORIZED);
         }
-        if (grant.getTimestamp().getTime() - timestampService.getTimestamp().getTime() > 600_000) {
+        if (grant.getTimestamp().getTime() - timestampService.getTimestampMillis() > 600_000) {
             throw new HiveException(Messages.EXPIRED_GRANT, SC_UNAUTHORIZED);
         }
         grant.setAuthCode(null);
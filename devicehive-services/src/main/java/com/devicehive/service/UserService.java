@@ -11,6 +11,8 @@ import com.devicehive.exceptions.IllegalParametersException;
 import com.devicehive.model.enums.UserRole;
 import com.devicehive.model.enums.UserStatus;
 import com.devicehive.model.updates.UserUpdate;
+import com.devicehive.service.helpers.AuthenticationCache;
+import com.devicehive.service.helpers.DeviceAccessCache;
 import com.devicehive.service.helpers.PasswordProcessor;
 import com.devicehive.service.time.TimestampService;
 import com.devicehive.util.HiveValidator;
@@ -55,6 +57,10 @@ public class UserService {
     private ConfigurationService configurationService;
     @Autowired
     private HiveValidator hiveValidator;
+    @Autowired
+    private DeviceAccessCache deviceAccessCache;
+    @Autowired
+    private AuthenticationCache authenticationCache;
 
 
     /**
@@ -105,6 +111,9 @@ public class UserService {
                 user.setLoginAttempts(0);
             }
             userDao.merge(user);
+            if (user.getStatus() == UserStatus.LOCKED_OUT) {
+                authenticationCache.invalidateUser(user.getId());
+            }
             return empty();
         }
         return of(user);
@@ -193,11 +202,16 @@ public class UserService {
                 existing.setStatus(userToUpdate.getStatusEnum());
             }
         }
+        if (userToUpdate.getStatus() != null || userToUpdate.getRole() != null) {
+            deviceAccessCache.invalidateUser(id);
+        }
         if (userToUpdate.getData() != null) {
             existing.setData(userToUpdate.getData().orElse(null));
         }
         hiveValidator.validate(existing);
-        return userDao.merge(existing);
+        UserVO updated = userDao.merge(existing);
+        authenticationCache.invalidateUser(id);
+        return updated;
     }
 
     /**
@@ -216,6 +230,7 @@ public class UserService {
         NetworkWithUsersAndDevicesVO existingNetwork = networkDao.findWithUsers(networkId)
                 .orElseThrow(() -> new NoSuchElementException(String.format(Messages.NETWORK_NOT_FOUND, networkId)));
         networkDao.assignToNetwork(existingNetwork, existingUser);
+        deviceAccessCache.invalidateUser(userId);
     }
 
     /**
@@ -232,6 +247,7 @@ public class UserService {
             throw new NoSuchElementException(Messages.USER_NOT_FOUND);
         }
         userDao.unassignNetwork(existingUser, networkId);
+        deviceAccessCache.invalidateUser(userId);
     }
 
     @Transactional(propagation = Propagation.NOT_SUPPORTED)
@@ -309,6 +325,8 @@ public class UserService {
     @Transactional(propagation = Propagation.REQUIRED)
     public boolean deleteUser(long id) {
         int result = userDao.deleteById(id);
+        deviceAccessCache.invalidateUser(id);
+        authenticationCache.invalidateUser(id);
         return result > 0;
     }
 
@@ -0,0 +1,31 @@
+package com.devicehive.service.helpers;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers cache invalidation broadcasts until the current transaction commits. Published earlier, an invalidation
+ * may be applied before the change is visible, and a node reloading in between would cache the old state again.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Runs action after commit of the current transaction, immediately if there is no transaction. Action is dropped
+     * if the transaction rolls back.
+     */
+    static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
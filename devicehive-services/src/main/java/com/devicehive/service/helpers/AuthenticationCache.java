@@ -0,0 +1,255 @@
+package com.devicehive.service.helpers;
+
+import com.devicehive.auth.HivePrincipal;
+import com.devicehive.vo.AccessKeyVO;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.hash.Hashing;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ITopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Short lived cache of REST authentication results keyed by SHA-256 of the access token or basic credentials, so
+ * that repeated requests with the same credentials do not hit the storage. Only successful authentications are
+ * cached. Invalidations are broadcast to all cluster nodes through a hazelcast topic after the transaction changing
+ * the credentials commits.
+ * <p>
+ * Entries are indexed by ids of the user, access key and OAuth client of their principal, so an invalidation removes
+ * the entries it concerns without scanning the cache.
+ */
+@Component
+public class AuthenticationCache implements PublicMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(AuthenticationCache.class);
+
+    public static final String INVALIDATION_TOPIC = "AUTHENTICATION-INVALIDATION";
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Value("${auth.cache.expire.sec:30}")
+    private long expireSec;
+
+    @Value("${auth.cache.max.size:100000}")
+    private long maxSize;
+
+    private Cache<String, HivePrincipal> cache;
+    private ITopic<Invalidation> topic;
+    private final Map<Invalidation.Type, ConcurrentMap<Long, Set<String>>> index = new EnumMap<>(Invalidation.Type.class);
+
+    /**
+     * Incremented by every applied invalidation; a result loaded while an invalidation was applied is not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    protected void init() {
+        for (Invalidation.Type type : Invalidation.Type.values()) {
+            index.put(type, new ConcurrentHashMap<>());
+        }
+        // a replaced entry is indexed again by the put replacing it
+        RemovalListener<String, HivePrincipal> unindex = removal -> {
+            if (removal.getCause() != RemovalCause.REPLACED) {
+                unindex(removal.getKey(), removal.getValue());
+            }
+        };
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireSec, TimeUnit.SECONDS)
+                .recordStats()
+                .removalListener(unindex)
+                .build();
+        topic = hazelcastInstance.getTopic(INVALIDATION_TOPIC);
+        topic.addMessageListener(message -> apply(message.getMessageObject()));
+    }
+
+    public static String tokenKey(String token) {
+        return digest("key:" + token);
+    }
+
+    public static String basicKey(String login, String password) {
+        return digest("basic:" + login + ":" + password);
+    }
+
+    /**
+     * Returns cached principal or authenticates with given loader. Loader returns null if authentication fails.
+     * Every call returns its own copy of the principal, as principals are mutable.
+     */
+    public HivePrincipal get(String key, Supplier<HivePrincipal> loader) {
+        HivePrincipal principal = cache.getIfPresent(key);
+        if (principal == null) {
+            long loadedAt = generation.get();
+            principal = loader.get();
+            if (principal == null) {
+                return null;
+            }
+            cache.put(key, principal);
+            index(key, principal);
+            if (generation.get() != loadedAt) {
+                cache.invalidate(key);
+            }
+        }
+        return copy(principal);
+    }
+
+    public void invalidateAll() {
+        publish(new Invalidation(Invalidation.Type.ALL, null));
+    }
+
+    public void invalidateUser(Long userId) {
+        publish(new Invalidation(Invalidation.Type.USER, userId));
+    }
+
+    public void invalidateAccessKey(Long keyId) {
+        publish(new Invalidation(Invalidation.Type.ACCESS_KEY, keyId));
+    }
+
+    public void invalidateOAuthClient(Long clientId) {
+        publish(new Invalidation(Invalidation.Type.OAUTH_CLIENT, clientId));
+    }
+
+    private void publish(Invalidation invalidation) {
+        AfterCommit.run(() -> topic.publish(invalidation));
+    }
+
+    private void apply(Invalidation invalidation) {
+        logger.debug("Invalidating authentication cache: {}", invalidation);
+        generation.incrementAndGet();
+        if (invalidation.type == Invalidation.Type.ALL) {
+            cache.invalidateAll();
+            return;
+        }
+        Set<String> keys = index.get(invalidation.type).get(invalidation.value);
+        if (keys != null) {
+            cache.invalidateAll(new ArrayList<>(keys));
+        }
+    }
+
+    private void index(String key, HivePrincipal principal) {
+        for (Map.Entry<Invalidation.Type, Long> id : ids(principal).entrySet()) {
+            index.get(id.getKey()).compute(id.getValue(), (k, keys) -> {
+                Set<String> result = keys != null ? keys : Collections.newSetFromMap(new ConcurrentHashMap<>());
+                result.add(key);
+                return result;
+            });
+        }
+    }
+
+    private void unindex(String key, HivePrincipal principal) {
+        for (Map.Entry<Invalidation.Type, Long> id : ids(principal).entrySet()) {
+            index.get(id.getKey()).computeIfPresent(id.getValue(), (k, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private static Map<Invalidation.Type, Long> ids(HivePrincipal principal) {
+        Map<Invalidation.Type, Long> ids = new EnumMap<>(Invalidation.Type.class);
+        Long userId = userId(principal);
+        if (userId != null) {
+            ids.put(Invalidation.Type.USER, userId);
+        }
+        if (principal.getKey() != null && principal.getKey().getId() != null) {
+            ids.put(Invalidation.Type.ACCESS_KEY, principal.getKey().getId());
+        }
+        if (principal.getoAuthClient() != null && principal.getoAuthClient().getId() != null) {
+            ids.put(Invalidation.Type.OAUTH_CLIENT, principal.getoAuthClient().getId());
+        }
+        return ids;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        CacheStats stats = cache.stats();
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("cache.authentication.size", cache.size()));
+        metrics.add(new Metric<>("cache.authentication.hit", stats.hitCount()));
+        metrics.add(new Metric<>("cache.authentication.miss", stats.missCount()));
+        metrics.add(new Metric<>("cache.authentication.eviction", stats.evictionCount()));
+        metrics.add(new Metric<>("cache.authentication.hit.ratio", stats.hitRate()));
+        return metrics;
+    }
+
+    private static Long userId(HivePrincipal principal) {
+        if (principal.getUser() != null) {
+            return principal.getUser().getId();
+        }
+        if (principal.getKey() != null && principal.getKey().getUser() != null) {
+            return principal.getKey().getUser().getId();
+        }
+        return null;
+    }
+
+    private static HivePrincipal copy(HivePrincipal principal) {
+        if (principal.getKey() != null) {
+            AccessKeyVO key = principal.getKey();
+            AccessKeyVO copy = new AccessKeyVO();
+            copy.setId(key.getId());
+            copy.setLabel(key.getLabel());
+            copy.setKey(key.getKey());
+            copy.setUser(key.getUser());
+            copy.setExpirationDate(key.getExpirationDate());
+            copy.setType(key.getType());
+            copy.setPermissions(key.getPermissions() != null ? new HashSet<>(key.getPermissions()) : null);
+            copy.setEntityVersion(key.getEntityVersion());
+            return new HivePrincipal(copy);
+        }
+        if (principal.getUser() != null) {
+            return new HivePrincipal(principal.getUser());
+        }
+        return new HivePrincipal(principal.getoAuthClient());
+    }
+
+    private static String digest(String credentials) {
+        return Hashing.sha256().hashString(credentials, StandardCharsets.UTF_8).toString();
+    }
+
+    private static class Invalidation implements Serializable {
+        private static final long serialVersionUID = 6203158871539475962L;
+
+        private enum Type {ALL, USER, ACCESS_KEY, OAUTH_CLIENT}
+
+        private final Type type;
+        private final Serializable value;
+
+        private Invalidation(Type type, Serializable value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "Invalidation{" +
+                    "type=" + type +
+                    ", value=" + value +
+                    '}';
+        }
+    }
+}
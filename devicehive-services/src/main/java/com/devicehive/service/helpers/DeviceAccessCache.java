@@ -0,0 +1,295 @@
+package com.devicehive.service.helpers;
+
+import com.devicehive.auth.HivePrincipal;
+import com.devicehive.dao.DeviceDao;
+import com.devicehive.vo.DeviceVO;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ITopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of device access decisions keyed by principal identity and device guid. Used by message consumers
+ * to avoid repeating the same permission check for every delivered message. Invalidations are broadcast to all
+ * cluster nodes through a hazelcast topic after the transaction changing permissions commits.
+ * <p>
+ * Entries are indexed by user, access key, device and network of the device, so an invalidation removes the entries
+ * it concerns without scanning the cache. The network of a device is read once and cached along with the decisions.
+ */
+@Component
+public class DeviceAccessCache implements PublicMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceAccessCache.class);
+
+    public static final String INVALIDATION_TOPIC = "DEVICE-ACCESS-INVALIDATION";
+
+    private static final Long NO_NETWORK = -1L;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+    @Autowired
+    private DeviceDao deviceDao;
+
+    @Value("${access.cache.expire.sec:60}")
+    private long expireSec;
+
+    @Value("${access.cache.max.size:100000}")
+    private long maxSize;
+
+    private Cache<AccessKey, Boolean> cache;
+    private Cache<String, Long> deviceNetworks;
+    private ITopic<Invalidation> topic;
+    private final Map<Invalidation.Type, ConcurrentMap<Serializable, Set<AccessKey>>> index =
+            new EnumMap<>(Invalidation.Type.class);
+
+    /**
+     * Incremented by every applied invalidation; a decision loaded while an invalidation was applied is not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    protected void init() {
+        for (Invalidation.Type type : Invalidation.Type.values()) {
+            index.put(type, new ConcurrentHashMap<>());
+        }
+        // a replaced entry keeps its key, which stays indexed
+        RemovalListener<AccessKey, Boolean> unindex = removal -> {
+            if (removal.getCause() != RemovalCause.REPLACED) {
+                unindex(removal.getKey());
+            }
+        };
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireSec, TimeUnit.SECONDS)
+                .recordStats()
+                .removalListener(unindex)
+                .build();
+        deviceNetworks = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireSec, TimeUnit.SECONDS)
+                .build();
+        topic = hazelcastInstance.getTopic(INVALIDATION_TOPIC);
+        topic.addMessageListener(message -> apply(message.getMessageObject()));
+    }
+
+    /**
+     * Returns cached access decision or computes it with given loader. Device principals are never cached as their
+     * check does not hit the storage.
+     */
+    public boolean hasAccess(HivePrincipal principal, String deviceGuid, Supplier<Boolean> loader) {
+        AccessKey key = AccessKey.of(principal, deviceGuid);
+        if (key == null) {
+            return loader.get();
+        }
+        Boolean access = cache.getIfPresent(key);
+        if (access == null) {
+            long loadedAt = generation.get();
+            access = loader.get();
+            key = key.inNetwork(networkOf(deviceGuid));
+            cache.put(key, access);
+            index(key);
+            if (generation.get() != loadedAt) {
+                cache.invalidate(key);
+            }
+        }
+        return access;
+    }
+
+    public void invalidateAll() {
+        publish(new Invalidation(Invalidation.Type.ALL, null));
+    }
+
+    public void invalidateUser(Long userId) {
+        publish(new Invalidation(Invalidation.Type.USER, userId));
+    }
+
+    public void invalidateAccessKey(Long keyId) {
+        publish(new Invalidation(Invalidation.Type.ACCESS_KEY, keyId));
+    }
+
+    public void invalidateDevice(String deviceGuid) {
+        publish(new Invalidation(Invalidation.Type.DEVICE, deviceGuid));
+    }
+
+    public void invalidateNetwork(Long networkId) {
+        publish(new Invalidation(Invalidation.Type.NETWORK, networkId));
+    }
+
+    private void publish(Invalidation invalidation) {
+        AfterCommit.run(() -> topic.publish(invalidation));
+    }
+
+    private void apply(Invalidation invalidation) {
+        logger.debug("Invalidating device access cache: {}", invalidation);
+        generation.incrementAndGet();
+        if (invalidation.type == Invalidation.Type.ALL) {
+            cache.invalidateAll();
+            deviceNetworks.invalidateAll();
+            return;
+        }
+        Set<AccessKey> keys = index.get(invalidation.type).get(invalidation.value);
+        List<AccessKey> toRemove = keys != null ? new ArrayList<>(keys) : Collections.<AccessKey>emptyList();
+        if (invalidation.type == Invalidation.Type.DEVICE) {
+            deviceNetworks.invalidate(invalidation.value);
+        } else if (invalidation.type == Invalidation.Type.NETWORK) {
+            for (AccessKey key : toRemove) {
+                deviceNetworks.invalidate(key.deviceGuid);
+            }
+        }
+        cache.invalidateAll(toRemove);
+    }
+
+    private Long networkOf(String deviceGuid) {
+        Long networkId = deviceNetworks.getIfPresent(deviceGuid);
+        if (networkId == null) {
+            DeviceVO device = deviceDao.findByUUID(deviceGuid);
+            networkId = device != null && device.getNetwork() != null && device.getNetwork().getId() != null
+                    ? device.getNetwork().getId() : NO_NETWORK;
+            deviceNetworks.put(deviceGuid, networkId);
+        }
+        return networkId;
+    }
+
+    private void index(AccessKey key) {
+        for (Map.Entry<Invalidation.Type, Serializable> id : key.ids().entrySet()) {
+            index.get(id.getKey()).compute(id.getValue(), (k, keys) -> {
+                Set<AccessKey> result = keys != null ? keys : Collections.newSetFromMap(new ConcurrentHashMap<>());
+                result.add(key);
+                return result;
+            });
+        }
+    }
+
+    private void unindex(AccessKey key) {
+        for (Map.Entry<Invalidation.Type, Serializable> id : key.ids().entrySet()) {
+            index.get(id.getKey()).computeIfPresent(id.getValue(), (k, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        CacheStats stats = cache.stats();
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("cache.device.access.size", cache.size()));
+        metrics.add(new Metric<>("cache.device.access.hit", stats.hitCount()));
+        metrics.add(new Metric<>("cache.device.access.miss", stats.missCount()));
+        metrics.add(new Metric<>("cache.device.access.eviction", stats.evictionCount()));
+        metrics.add(new Metric<>("cache.device.access.hit.ratio", stats.hitRate()));
+        return metrics;
+    }
+
+    /**
+     * Identity of a decision. The network of the device is only used for indexing and is not a part of the identity.
+     */
+    private static class AccessKey {
+        private final Long userId;
+        private final Long accessKeyId;
+        private final String deviceGuid;
+        private final Long networkId;
+
+        private AccessKey(Long userId, Long accessKeyId, String deviceGuid, Long networkId) {
+            this.userId = userId;
+            this.accessKeyId = accessKeyId;
+            this.deviceGuid = deviceGuid;
+            this.networkId = networkId;
+        }
+
+        static AccessKey of(HivePrincipal principal, String deviceGuid) {
+            if (principal == null || deviceGuid == null || principal.getDevice() != null) {
+                return null;
+            }
+            if (principal.getUser() != null && principal.getUser().getId() != null) {
+                return new AccessKey(principal.getUser().getId(), null, deviceGuid, null);
+            }
+            if (principal.getKey() != null && principal.getKey().getId() != null) {
+                Long userId = principal.getKey().getUser() != null ? principal.getKey().getUser().getId() : null;
+                return new AccessKey(userId, principal.getKey().getId(), deviceGuid, null);
+            }
+            return null;
+        }
+
+        AccessKey inNetwork(Long networkId) {
+            return new AccessKey(userId, accessKeyId, deviceGuid, networkId);
+        }
+
+        Map<Invalidation.Type, Serializable> ids() {
+            Map<Invalidation.Type, Serializable> ids = new EnumMap<>(Invalidation.Type.class);
+            if (userId != null) {
+                ids.put(Invalidation.Type.USER, userId);
+            }
+            if (accessKeyId != null) {
+                ids.put(Invalidation.Type.ACCESS_KEY, accessKeyId);
+            }
+            ids.put(Invalidation.Type.DEVICE, deviceGuid);
+            if (networkId != null && !NO_NETWORK.equals(networkId)) {
+                ids.put(Invalidation.Type.NETWORK, networkId);
+            }
+            return ids;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            AccessKey that = (AccessKey) o;
+            return Objects.equals(userId, that.userId)
+                    && Objects.equals(accessKeyId, that.accessKeyId)
+                    && deviceGuid.equals(that.deviceGuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, accessKeyId, deviceGuid);
+        }
+    }
+
+    private static class Invalidation implements Serializable {
+        private static final long serialVersionUID = -3815465432715327064L;
+
+        private enum Type {ALL, USER, ACCESS_KEY, DEVICE, NETWORK}
+
+        private final Type type;
+        private final Serializable value;
+
+        private Invalidation(Type type, Serializable value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "Invalidation{" +
+                    "type=" + type +
+                    ", value=" + value +
+                    '}';
+        }
+    }
+}
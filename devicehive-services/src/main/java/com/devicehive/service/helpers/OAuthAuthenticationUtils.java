@@ -43,7 +43,7 @@ public class OAuthAuthenticationUtils {
         accessKey.setLabel(String.format(Messages.OAUTH_TOKEN_LABEL, user.getLogin(), System.currentTimeMillis()));
         AccessKeyProcessor keyProcessor = new AccessKeyProcessor();
         accessKey.setKey(keyProcessor.generateKey());
-        Date expirationDate = new Date(timestampService.getTimestamp().getTime() +
+        Date expirationDate = new Date(timestampService.getTimestampMillis() +
                 configurationService.getLong(Constants.SESSION_TIMEOUT, Constants.DEFAULT_SESSION_TIMEOUT));
         accessKey.setExpirationDate(expirationDate);
         accessKey.setType(AccessKeyType.SESSION);
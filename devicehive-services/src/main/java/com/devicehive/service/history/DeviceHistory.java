@@ -0,0 +1,180 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.HazelcastEntity;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages of a single device ordered by timestamp, oldest first. Stored as a value of the history map keyed by
+ * device guid, so all reads and writes of one device are local to the partition owning it.
+ * <p>
+ * An entity expires {@code retention} milliseconds after its timestamp; commands with lifetime expire after their
+ * lifetime instead. Non positive retention means no expiration.
+ */
+public class DeviceHistory<T extends HazelcastEntity> implements Serializable {
+    private static final long serialVersionUID = 5071268340585306129L;
+
+    private final HistoryRing<T> entries = new HistoryRing<>();
+
+    /**
+     * Appends an entity keeping timestamp order and drops the oldest ones above {@code maxSize}. Only an updated
+     * command is looked up by id, to replace its previous version. Expired entities are left to {@link #prune}.
+     */
+    public void put(T entity, int maxSize) {
+        if (isUpdatedCommand(entity) && replace(entity)) {
+            return;
+        }
+        int position = entries.size();
+        while (position > 0 && time(entries.get(position - 1)) > time(entity)) {
+            position--;
+        }
+        entries.add(position, entity);
+        if (maxSize > 0 && entries.size() > maxSize) {
+            entries.removeFirst(entries.size() - maxSize);
+        }
+    }
+
+    /**
+     * Replaces previous version of the entity in place if its timestamp is unchanged, otherwise only removes it.
+     *
+     * @return true if the entity was replaced
+     */
+    private boolean replace(T entity) {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (Objects.equals(entries.get(i).getId(), entity.getId())) {
+                if (time(entries.get(i)) == time(entity)) {
+                    entries.set(i, entity);
+                    return true;
+                }
+                entries.remove(i);
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops expired entities.
+     */
+    public void prune(long now, long retention) {
+        entries.removeIf(entity -> isExpired(entity, now, retention));
+    }
+
+    /**
+     * Returns up to {@code take} matching entities which have not expired, newest first. Scanning stops at the first
+     * entity not newer than the filter timestamp.
+     */
+    public List<T> find(HistoryFilter filter, int take, long now, long retention) {
+        return find(filter, take, false, now, retention);
+    }
+
+    /**
+     * Returns up to {@code take} matching entities which have not expired, oldest or newest first. Only entities in
+     * the timestamp range of the filter are scanned.
+     */
+    public List<T> find(HistoryFilter filter, int take, boolean ascending, long now, long retention) {
+        List<T> result = new ArrayList<>();
+        long since = filter.getSince() != null ? filter.getSince() : Long.MIN_VALUE;
+        long until = filter.getUntil() != null ? filter.getUntil() : Long.MAX_VALUE;
+        int from = firstAfter(since);
+        int to = firstAfter(until);
+        for (int n = from; n < to; n++) {
+            T entity = entries.get(ascending ? n : to - 1 - (n - from));
+            if (!isExpired(entity, now, retention) && filter.matches(entity)) {
+                result.add(entity);
+                if (take > 0 && result.size() >= take) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reduces matching notifications which have not expired to one per grid interval of {@code interval}
+     * milliseconds, intervals are aligned to epoch. Returns up to {@code take} intervals, oldest or newest first.
+     * Entities in the timestamp range of the filter are scanned once in that order, so only the current interval is
+     * kept in memory.
+     */
+    public List<DeviceNotification> aggregate(HistoryFilter filter, long interval, HistoryAggregation aggregation,
+                                              int take, boolean ascending, long now, long retention) {
+        List<DeviceNotification> result = new ArrayList<>();
+        long since = filter.getSince() != null ? filter.getSince() : Long.MIN_VALUE;
+        long until = filter.getUntil() != null ? filter.getUntil() : Long.MAX_VALUE;
+        int from = firstAfter(since);
+        int to = firstAfter(until);
+        NotificationBucket bucket = null;
+        for (int n = from; n < to; n++) {
+            T entity = entries.get(ascending ? n : to - 1 - (n - from));
+            if (!(entity instanceof DeviceNotification) || isExpired(entity, now, retention)
+                    || !filter.matches(entity)) {
+                continue;
+            }
+            long start = Math.floorDiv(time(entity), interval) * interval;
+            if (bucket == null || bucket.getStart() != start) {
+                if (bucket != null) {
+                    result.add(bucket.toNotification());
+                    if (take > 0 && result.size() >= take) {
+                        return result;
+                    }
+                }
+                bucket = new NotificationBucket(start, aggregation, ascending);
+            }
+            bucket.add((DeviceNotification) entity);
+        }
+        if (bucket != null) {
+            result.add(bucket.toNotification());
+        }
+        return result;
+    }
+
+    /**
+     * @return index of the first entity with timestamp after given one
+     */
+    private int firstAfter(long time) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (time(entries.get(middle)) <= time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static boolean isUpdatedCommand(HazelcastEntity entity) {
+        return entity instanceof DeviceCommand && Boolean.TRUE.equals(((DeviceCommand) entity).getIsUpdated());
+    }
+
+    private static boolean isExpired(HazelcastEntity entity, long now, long retention) {
+        long ttl = retention;
+        if (entity instanceof DeviceCommand) {
+            Integer lifetime = ((DeviceCommand) entity).getLifetime();
+            if (lifetime != null && lifetime > 0) {
+                ttl = TimeUnit.SECONDS.toMillis(lifetime);
+            }
+        }
+        return ttl > 0 && time(entity) + ttl < now;
+    }
+
+    private static long time(HazelcastEntity entity) {
+        return entity.getTimestamp() != null ? entity.getTimestamp().getTime() : 0;
+    }
+}
@@ -0,0 +1,220 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.HazelcastEntity;
+import com.devicehive.service.time.TimestampService;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.Member;
+import com.hazelcast.monitor.LocalMapStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory message history partitioned by device guid. Each map entry holds time ordered {@link DeviceHistory} of
+ * one device, so a query for given devices is a partition local range read on the members owning them instead of a
+ * predicate evaluated over every stored message. Retention is taken from {@code notification.expire.sec} and
+ * {@code command.expire.sec} (or command lifetime) and enforced per message: expired messages are skipped by queries
+ * and periodically pruned by every member from the histories it owns, histories left empty are removed. Maps are
+ * therefore not bounded by heap based eviction, which would drop whole device histories regardless of their age.
+ * <p>
+ * Queries not limited to devices are run by every member over the histories it owns, see {@link HistoryScanTask}, and
+ * return at most {@code history.scan.max.size} entities including skipped ones.
+ * <p>
+ * Exposes number of device histories, messages and memory cost of the maps owned by this member as metrics.
+ */
+@Component
+public class DeviceHistoryStore implements PublicMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceHistoryStore.class);
+
+    public static final String NOTIFICATIONS_MAP = "NOTIFICATIONS-MAP";
+    public static final String COMMANDS_MAP = "COMMANDS-MAP";
+    public static final String SCAN_EXECUTOR = "HISTORY-SCAN";
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private TimestampService timestampService;
+
+    @Value("${notification.expire.sec:600}")
+    private long notificationExpireSec;
+
+    @Value("${command.expire.sec:600}")
+    private long commandExpireSec;
+
+    @Value("${history.device.max.size:10000}")
+    private int maxDeviceHistorySize;
+
+    @Value("${history.scan.max.size:1000}")
+    private int maxScanSize;
+
+    private Map<Class, IMap<String, DeviceHistory>> maps;
+    private Map<Class, Long> retentionMillis;
+    private final Map<String, Long> localMessages = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    protected void init() {
+        maps = new HashMap<>(2);
+        maps.put(DeviceNotification.class, hazelcastInstance.getMap(NOTIFICATIONS_MAP));
+        maps.put(DeviceCommand.class, hazelcastInstance.getMap(COMMANDS_MAP));
+
+        retentionMillis = new HashMap<>(2);
+        retentionMillis.put(DeviceNotification.class, TimeUnit.SECONDS.toMillis(notificationExpireSec));
+        retentionMillis.put(DeviceCommand.class, TimeUnit.SECONDS.toMillis(commandExpireSec));
+    }
+
+    public <T extends HazelcastEntity> void store(T entity, Class<T> entityClass) {
+        maps.get(entityClass).executeOnKey(entity.getDeviceGuid(),
+                new HistoryAppendProcessor<>(entity, maxDeviceHistorySize));
+    }
+
+    /**
+     * Returns up to {@code take} (all if not positive) matching entities of given devices, newest first. Empty
+     * device collection means all devices.
+     */
+    public <T extends HazelcastEntity> List<T> find(Collection<String> devices, HistoryFilter filter, int take,
+                                                    Class<T> entityClass) {
+        return find(devices, filter, new HistoryPage(0, take, false), entityClass);
+    }
+
+    /**
+     * Returns requested page of matching entities of given devices ordered by timestamp. Empty device collection
+     * means all devices, the page is then cut to {@code history.scan.max.size} entities. Members return at most
+     * {@link HistoryPage#getLimit()} entities each, so only the page and entities before it are transferred and held.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends HazelcastEntity> List<T> find(Collection<String> devices, HistoryFilter filter, HistoryPage page,
+                                                    Class<T> entityClass) {
+        if (devices == null || devices.isEmpty()) {
+            return scan(filter, page, entityClass);
+        }
+        IMap<String, DeviceHistory> map = maps.get(entityClass);
+        HistoryQueryProcessor<T> processor = new HistoryQueryProcessor<>(filter, page.getLimit(), page.isAscending(),
+                now(), retentionMillis.get(entityClass));
+        Collection<Object> results;
+        if (devices.size() == 1) {
+            results = Collections.singletonList(map.executeOnKey(devices.iterator().next(), processor));
+        } else {
+            results = map.executeOnKeys(new HashSet<>(devices), processor).values();
+        }
+        List<List<T>> lists = new ArrayList<>(results.size());
+        for (Object result : results) {
+            if (result != null) {
+                lists.add((List<T>) result);
+            }
+        }
+        return merge(lists, page);
+    }
+
+    private <T extends HazelcastEntity> List<T> scan(HistoryFilter filter, HistoryPage page, Class<T> entityClass) {
+        if (page.getSkip() >= maxScanSize) {
+            return new ArrayList<>();
+        }
+        int maxTake = maxScanSize - page.getSkip();
+        HistoryPage bounded = new HistoryPage(page.getSkip(),
+                page.getTake() > 0 ? Math.min(page.getTake(), maxTake) : maxTake, page.isAscending());
+        HistoryQueryProcessor<T> processor = new HistoryQueryProcessor<>(filter, bounded.getLimit(),
+                bounded.isAscending(), now(), retentionMillis.get(entityClass));
+        Map<Member, Future<List<T>>> futures = hazelcastInstance.getExecutorService(SCAN_EXECUTOR)
+                .submitToAllMembers(new HistoryScanTask<>(maps.get(entityClass).getName(), processor, bounded));
+        List<List<T>> lists = new ArrayList<>(futures.size());
+        try {
+            for (Future<List<T>> future : futures.values()) {
+                lists.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning device histories", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to scan device histories", e.getCause());
+        }
+        return merge(lists, bounded);
+    }
+
+    private static <T extends HazelcastEntity> List<T> merge(List<List<T>> lists, HistoryPage page) {
+        List<T> entities;
+        if (lists.size() == 1) {
+            entities = lists.get(0);
+        } else {
+            entities = new ArrayList<>();
+            for (List<T> list : lists) {
+                entities.addAll(list);
+            }
+            entities.sort(page.order());
+        }
+        int from = Math.min(page.getSkip(), entities.size());
+        int to = page.getTake() > 0 ? (int) Math.min(entities.size(), (long) from + page.getTake()) : entities.size();
+        return from == 0 && to == entities.size() ? entities : new ArrayList<>(entities.subList(from, to));
+    }
+
+    /**
+     * Reduces matching notifications of the device to one per grid interval on the member owning its history, see
+     * {@link DeviceHistory#aggregate}, and returns requested page of intervals.
+     */
+    @SuppressWarnings("unchecked")
+    public List<DeviceNotification> aggregate(String device, HistoryFilter filter, long interval,
+                                              HistoryAggregation aggregation, HistoryPage page) {
+        HistoryAggregateProcessor<DeviceNotification> processor = new HistoryAggregateProcessor<>(filter, interval,
+                aggregation, page.getLimit(), page.isAscending(), now(), retentionMillis.get(DeviceNotification.class));
+        Object result = maps.get(DeviceNotification.class).executeOnKey(device, processor);
+        List<DeviceNotification> intervals = result != null ? (List<DeviceNotification>) result : new ArrayList<>();
+        int from = Math.min(page.getSkip(), intervals.size());
+        return from == 0 ? intervals : new ArrayList<>(intervals.subList(from, intervals.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${history.prune.interval.ms:60000}")
+    public void prune() {
+        for (Map.Entry<Class, IMap<String, DeviceHistory>> entry : maps.entrySet()) {
+            IMap<String, DeviceHistory> map = entry.getValue();
+            Set<String> localKeys = map.localKeySet();
+            long messages = 0;
+            if (!localKeys.isEmpty()) {
+                logger.debug("Pruning {} device histories of {}", localKeys.size(), map.getName());
+                HistoryPruneProcessor processor = new HistoryPruneProcessor<>(now(),
+                        retentionMillis.get(entry.getKey()));
+                for (Object left : map.executeOnKeys(localKeys, processor).values()) {
+                    if (left != null) {
+                        messages += (Integer) left;
+                    }
+                }
+            }
+            localMessages.put(map.getName(), messages);
+        }
+    }
+
+    /**
+     * Message counts are refreshed by {@link #prune()}, map statistics are taken as reported by Hazelcast.
+     */
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (IMap<String, DeviceHistory> map : maps.values()) {
+            String prefix = "history." + map.getName().toLowerCase();
+            LocalMapStats stats = map.getLocalMapStats();
+            metrics.add(new Metric<>(prefix + ".devices", stats.getOwnedEntryCount()));
+            metrics.add(new Metric<>(prefix + ".messages", localMessages.getOrDefault(map.getName(), 0L)));
+            metrics.add(new Metric<>(prefix + ".bytes", stats.getOwnedEntryMemoryCost()));
+            metrics.add(new Metric<>(prefix + ".heap.bytes", stats.getHeapCost()));
+        }
+        return metrics;
+    }
+
+    private long now() {
+        return timestampService.getTimestampMillis();
+    }
+}
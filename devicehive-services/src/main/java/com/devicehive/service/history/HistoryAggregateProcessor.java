@@ -0,0 +1,43 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.HazelcastEntity;
+import com.hazelcast.map.AbstractEntryProcessor;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Read-only grid interval aggregation over device history, returns one notification per interval, newest (or oldest)
+ * first.
+ */
+public class HistoryAggregateProcessor<T extends HazelcastEntity> extends AbstractEntryProcessor<String, DeviceHistory<T>> {
+    private static final long serialVersionUID = 3307260711527362213L;
+
+    private final HistoryFilter filter;
+    private final long interval;
+    private final HistoryAggregation aggregation;
+    private final int take;
+    private final boolean ascending;
+    private final long now;
+    private final long retention;
+
+    public HistoryAggregateProcessor(HistoryFilter filter, long interval, HistoryAggregation aggregation, int take,
+                                     boolean ascending, long now, long retention) {
+        super(false);
+        this.filter = filter;
+        this.interval = interval;
+        this.aggregation = aggregation;
+        this.take = take;
+        this.ascending = ascending;
+        this.now = now;
+        this.retention = retention;
+    }
+
+    @Override
+    public Object process(Map.Entry<String, DeviceHistory<T>> entry) {
+        DeviceHistory<T> history = entry.getValue();
+        return history != null
+                ? history.aggregate(filter, interval, aggregation, take, ascending, now, retention)
+                : Collections.emptyList();
+    }
+}
@@ -0,0 +1,26 @@
+package com.devicehive.service.history;
+
+import java.util.Locale;
+
+/**
+ * Reduction of notifications falling into one grid interval.
+ */
+public enum HistoryAggregation {
+    /**
+     * Last notification of the interval as it is.
+     */
+    LAST,
+    /**
+     * Notification with interval start as timestamp and count, min, max and avg of every numeric top level field
+     * of parameters.
+     */
+    STATS;
+
+    /**
+     * @return {@link #LAST} if value is empty
+     * @throws IllegalArgumentException if value is not a known aggregation
+     */
+    public static HistoryAggregation fromString(String value) {
+        return value == null || value.isEmpty() ? LAST : valueOf(value.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,30 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.HazelcastEntity;
+import com.hazelcast.map.AbstractEntryProcessor;
+
+import java.util.Map;
+
+/**
+ * Adds an entity to device history, applying size limit. Runs on the partition owning the device and its backups.
+ */
+public class HistoryAppendProcessor<T extends HazelcastEntity> extends AbstractEntryProcessor<String, DeviceHistory<T>> {
+    private static final long serialVersionUID = 3260420129735632517L;
+
+    private final T entity;
+    private final int maxSize;
+
+    public HistoryAppendProcessor(T entity, int maxSize) {
+        super(true);
+        this.entity = entity;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Object process(Map.Entry<String, DeviceHistory<T>> entry) {
+        DeviceHistory<T> history = entry.getValue() != null ? entry.getValue() : new DeviceHistory<>();
+        history.put(entity, maxSize);
+        entry.setValue(history);
+        return null;
+    }
+}
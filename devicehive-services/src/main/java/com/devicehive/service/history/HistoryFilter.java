@@ -0,0 +1,96 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.HazelcastEntity;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+
+/**
+ * Criteria of a device history query, evaluated on the member owning the device history.
+ */
+public class HistoryFilter implements Serializable {
+    private static final long serialVersionUID = 6000447380713427566L;
+
+    private Long id;
+    private HashSet<String> names;
+    private Long since;
+    private Long until;
+    private String status;
+    private Boolean hasResponse;
+
+    public HistoryFilter id(Long id) {
+        this.id = id;
+        return this;
+    }
+
+    public HistoryFilter names(Collection<String> names) {
+        this.names = names != null && !names.isEmpty() ? new HashSet<>(names) : null;
+        return this;
+    }
+
+    /**
+     * Only entities with timestamp strictly after given one match.
+     */
+    public HistoryFilter since(Date timestamp) {
+        this.since = timestamp != null ? timestamp.getTime() : null;
+        return this;
+    }
+
+    /**
+     * Only entities with timestamp not after given one match.
+     */
+    public HistoryFilter until(Date timestamp) {
+        this.until = timestamp != null ? timestamp.getTime() : null;
+        return this;
+    }
+
+    public HistoryFilter status(String status) {
+        this.status = status != null && !status.isEmpty() ? status : null;
+        return this;
+    }
+
+    public HistoryFilter hasResponse(Boolean hasResponse) {
+        this.hasResponse = hasResponse;
+        return this;
+    }
+
+    public Long getSince() {
+        return since;
+    }
+
+    public Long getUntil() {
+        return until;
+    }
+
+    public boolean matches(HazelcastEntity entity) {
+        if (id != null && !id.equals(entity.getId())) {
+            return false;
+        }
+        if (entity instanceof DeviceNotification) {
+            return names == null || names.contains(((DeviceNotification) entity).getNotification());
+        }
+        if (entity instanceof DeviceCommand) {
+            DeviceCommand command = (DeviceCommand) entity;
+            return (names == null || names.contains(command.getCommand()))
+                    && (status == null || status.equals(command.getStatus()))
+                    && (hasResponse == null || hasResponse.equals(command.getIsUpdated()));
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryFilter{" +
+                "id=" + id +
+                ", names=" + names +
+                ", since=" + since +
+                ", until=" + until +
+                ", status='" + status + '\'' +
+                ", hasResponse=" + hasResponse +
+                '}';
+    }
+}
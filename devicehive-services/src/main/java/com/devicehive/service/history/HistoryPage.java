@@ -0,0 +1,65 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.HazelcastEntity;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * Requested page of a device history query ordered by timestamp. Each member returns at most {@code skip + take}
+ * entities in requested order, merged results are cut to the page by {@link DeviceHistoryStore}.
+ */
+public class HistoryPage implements Serializable {
+    private static final long serialVersionUID = -4583941196389476107L;
+
+    private final int skip;
+    private final int take;
+    private final boolean ascending;
+
+    /**
+     * @param skip      number of entities to skip, negative is treated as zero
+     * @param take      number of entities to return, all if not positive
+     * @param ascending oldest first if true, newest first otherwise
+     */
+    public HistoryPage(int skip, int take, boolean ascending) {
+        this.skip = Math.max(skip, 0);
+        this.take = take;
+        this.ascending = ascending;
+    }
+
+    public int getSkip() {
+        return skip;
+    }
+
+    public int getTake() {
+        return take;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * @return number of entities each member has to return for the page, zero if not limited
+     */
+    public int getLimit() {
+        return take > 0 ? (int) Math.min(Integer.MAX_VALUE, (long) skip + take) : 0;
+    }
+
+    /**
+     * @return order of entities in the page
+     */
+    public <T extends HazelcastEntity> Comparator<T> order() {
+        Comparator<T> byTimestamp = (o1, o2) -> o1.getTimestamp().compareTo(o2.getTimestamp());
+        return ascending ? byTimestamp : byTimestamp.reversed();
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryPage{" +
+                "skip=" + skip +
+                ", take=" + take +
+                ", ascending=" + ascending +
+                '}';
+    }
+}
@@ -0,0 +1,38 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.HazelcastEntity;
+import com.hazelcast.map.AbstractEntryProcessor;
+
+import java.util.Map;
+
+/**
+ * Drops expired entities from device history and removes histories left empty. Returns number of entities left.
+ */
+public class HistoryPruneProcessor<T extends HazelcastEntity> extends AbstractEntryProcessor<String, DeviceHistory<T>> {
+    private static final long serialVersionUID = 1871537002455066146L;
+
+    private final long now;
+    private final long retention;
+
+    public HistoryPruneProcessor(long now, long retention) {
+        super(true);
+        this.now = now;
+        this.retention = retention;
+    }
+
+    @Override
+    public Object process(Map.Entry<String, DeviceHistory<T>> entry) {
+        DeviceHistory<T> history = entry.getValue();
+        if (history == null) {
+            return 0;
+        }
+        int before = history.size();
+        history.prune(now, retention);
+        if (history.isEmpty()) {
+            entry.setValue(null);
+        } else if (history.size() != before) {
+            entry.setValue(history);
+        }
+        return history.size();
+    }
+}
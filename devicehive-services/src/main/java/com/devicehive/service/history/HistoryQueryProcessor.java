@@ -0,0 +1,39 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.HazelcastEntity;
+import com.hazelcast.map.AbstractEntryProcessor;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Read-only range query over device history, returns matching entities newest (or oldest) first.
+ */
+public class HistoryQueryProcessor<T extends HazelcastEntity> extends AbstractEntryProcessor<String, DeviceHistory<T>> {
+    private static final long serialVersionUID = -8127393960946617364L;
+
+    private final HistoryFilter filter;
+    private final int take;
+    private final boolean ascending;
+    private final long now;
+    private final long retention;
+
+    public HistoryQueryProcessor(HistoryFilter filter, int take, long now, long retention) {
+        this(filter, take, false, now, retention);
+    }
+
+    public HistoryQueryProcessor(HistoryFilter filter, int take, boolean ascending, long now, long retention) {
+        super(false);
+        this.filter = filter;
+        this.take = take;
+        this.ascending = ascending;
+        this.now = now;
+        this.retention = retention;
+    }
+
+    @Override
+    public Object process(Map.Entry<String, DeviceHistory<T>> entry) {
+        DeviceHistory<T> history = entry.getValue();
+        return history != null ? history.find(filter, take, ascending, now, retention) : Collections.emptyList();
+    }
+}
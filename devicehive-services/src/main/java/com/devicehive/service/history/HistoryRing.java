@@ -0,0 +1,115 @@
+package com.devicehive.service.history;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.function.Predicate;
+
+/**
+ * Indexed ring buffer of device history entries. Appending at the tail and dropping from the head take constant time,
+ * inserting or removing shifts only the entries between the index and the tail. Serialized without spare capacity.
+ */
+class HistoryRing<T> implements Serializable {
+    private static final long serialVersionUID = 7481536529153062941L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private transient Object[] elements = new Object[INITIAL_CAPACITY];
+    private transient int head;
+    private transient int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        return (T) elements[slot(index)];
+    }
+
+    void set(int index, T element) {
+        elements[slot(index)] = element;
+    }
+
+    void add(int index, T element) {
+        if (size == elements.length) {
+            resize(elements.length * 2);
+        }
+        for (int i = size; i > index; i--) {
+            elements[slot(i)] = elements[slot(i - 1)];
+        }
+        elements[slot(index)] = element;
+        size++;
+    }
+
+    void remove(int index) {
+        for (int i = index; i < size - 1; i++) {
+            elements[slot(i)] = elements[slot(i + 1)];
+        }
+        elements[slot(size - 1)] = null;
+        size--;
+    }
+
+    void removeFirst(int count) {
+        for (int i = 0; i < count; i++) {
+            elements[slot(i)] = null;
+        }
+        head = slot(count);
+        size -= count;
+    }
+
+    void removeIf(Predicate<? super T> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            T element = get(i);
+            if (!filter.test(element)) {
+                set(kept++, element);
+            }
+        }
+        for (int i = kept; i < size; i++) {
+            elements[slot(i)] = null;
+        }
+        size = kept;
+    }
+
+    private int slot(int index) {
+        return (head + index) & (elements.length - 1);
+    }
+
+    private void resize(int capacity) {
+        Object[] resized = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+            resized[i] = elements[slot(i)];
+        }
+        elements = resized;
+        head = 0;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeObject(elements[slot(i)]);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = in.readInt();
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < count) {
+            capacity *= 2;
+        }
+        elements = new Object[capacity];
+        head = 0;
+        size = count;
+        for (int i = 0; i < count; i++) {
+            elements[i] = in.readObject();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.HazelcastEntity;
+import com.google.common.collect.Iterables;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.core.IMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Query over all device histories owned by a member, for queries not limited to devices. Histories are queried in
+ * batches of local keys and merged results are cut to the page after each batch, so a member holds and returns at
+ * most {@link HistoryPage#getLimit()} entities however many devices it owns.
+ */
+public class HistoryScanTask<T extends HazelcastEntity> implements Callable<List<T>>, HazelcastInstanceAware,
+        Serializable {
+    private static final long serialVersionUID = 2968452714592034751L;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final String mapName;
+    private final HistoryQueryProcessor<T> processor;
+    private final HistoryPage page;
+
+    private transient HazelcastInstance hazelcastInstance;
+
+    public HistoryScanTask(String mapName, HistoryQueryProcessor<T> processor, HistoryPage page) {
+        this.mapName = mapName;
+        this.processor = processor;
+        this.page = page;
+    }
+
+    @Override
+    public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+        this.hazelcastInstance = hazelcastInstance;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> call() {
+        IMap<String, DeviceHistory<T>> map = hazelcastInstance.getMap(mapName);
+        List<T> entities = new ArrayList<>();
+        for (List<String> keys : Iterables.partition(map.localKeySet(), BATCH_SIZE)) {
+            for (Object result : map.executeOnKeys(new HashSet<>(keys), processor).values()) {
+                if (result != null) {
+                    entities.addAll((List<T>) result);
+                }
+            }
+            entities.sort(page.order());
+            if (page.getLimit() > 0 && entities.size() > page.getLimit()) {
+                entities = new ArrayList<>(entities.subList(0, page.getLimit()));
+            }
+        }
+        return entities;
+    }
+}
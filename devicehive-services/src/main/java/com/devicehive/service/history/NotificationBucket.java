@@ -0,0 +1,105 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.JsonStringWrapper;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Accumulates notifications of one grid interval, they are added in timestamp order, oldest or newest first.
+ */
+class NotificationBucket {
+    private static final JsonParser PARSER = new JsonParser();
+
+    private final long start;
+    private final HistoryAggregation aggregation;
+    private final boolean ascending;
+    private final Map<String, FieldStats> fields = new LinkedHashMap<>();
+    private DeviceNotification last;
+
+    NotificationBucket(long start, HistoryAggregation aggregation, boolean ascending) {
+        this.start = start;
+        this.aggregation = aggregation;
+        this.ascending = ascending;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    void add(DeviceNotification notification) {
+        if (last == null || ascending) {
+            last = notification;
+        }
+        if (aggregation == HistoryAggregation.STATS) {
+            JsonObject parameters = parse(notification.getParameters());
+            if (parameters != null) {
+                for (Map.Entry<String, JsonElement> field : parameters.entrySet()) {
+                    JsonElement value = field.getValue();
+                    if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber()) {
+                        fields.computeIfAbsent(field.getKey(), name -> new FieldStats()).add(value.getAsDouble());
+                    }
+                }
+            }
+        }
+    }
+
+    DeviceNotification toNotification() {
+        if (aggregation == HistoryAggregation.LAST) {
+            return last;
+        }
+        JsonObject parameters = new JsonObject();
+        for (Map.Entry<String, FieldStats> field : fields.entrySet()) {
+            parameters.add(field.getKey(), field.getValue().toJson());
+        }
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(last.getId());
+        notification.setNotification(last.getNotification());
+        notification.setDeviceGuid(last.getDeviceGuid());
+        notification.setTimestamp(new Date(start));
+        notification.setParameters(new JsonStringWrapper(parameters.toString()));
+        return notification;
+    }
+
+    private static JsonObject parse(JsonStringWrapper parameters) {
+        if (parameters == null || parameters.getJsonString() == null) {
+            return null;
+        }
+        try {
+            JsonElement json = PARSER.parse(parameters.getJsonString());
+            return json.isJsonObject() ? json.getAsJsonObject() : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static class FieldStats {
+        private long count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+
+        void add(double value) {
+            count++;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.add("count", new JsonPrimitive(count));
+            json.add("min", new JsonPrimitive(min));
+            json.add("max", new JsonPrimitive(max));
+            json.add("avg", new JsonPrimitive(sum / count));
+            return json;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.devicehive.service.id;
+
+import com.devicehive.service.time.TimestampService;
+import com.hazelcast.core.Cluster;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.MemberAttributeEvent;
+import com.hazelcast.core.MembershipEvent;
+import com.hazelcast.core.MembershipListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates ids of messages that fit in 53 bits, so JavaScript clients parse them from JSON without losing precision:
+ * 40 bits of milliseconds since 2016-01-01 on the cluster clock (enough until 2050), 6 bits of node number and 7 bits
+ * of sequence within the millisecond. Node number is a slot leased in a cluster map when the node starts and the time
+ * comes from the locally cached cluster clock, so generation needs no remote calls.
+ * <p>
+ * A slot is held by the member uuid until the member leaves the cluster, then it is released by the remaining
+ * members; slots of members which are not in the cluster any more are taken over. Start fails if all slots are held
+ * by running members, so two running nodes never share a number.
+ * <p>
+ * Ids of one node grow strictly. When the sequence of a millisecond is exhausted or the clock goes back, ids continue
+ * from the next millisecond of the last id, so they run ahead of the clock until it catches up.
+ */
+@Component
+public class HazelcastIdGenerator implements IdGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(HazelcastIdGenerator.class);
+
+    public static final String NODE_COUNTER = "ID-GENERATOR-NODE";
+    public static final String NODE_SLOTS = "ID-GENERATOR-NODE-SLOTS";
+
+    static final long EPOCH = 1451606400000L; // 2016-01-01T00:00:00Z
+    static final int NODE_BITS = 6;
+    static final int SEQUENCE_BITS = 7;
+    static final int TIME_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    static final long NODE_MASK = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+    @Autowired
+    private TimestampService timestampService;
+
+    private long node;
+
+    private final AtomicLong last = new AtomicLong();
+
+    @PostConstruct
+    protected void init() {
+        IMap<Integer, String> slots = hazelcastInstance.getMap(NODE_SLOTS);
+        Cluster cluster = hazelcastInstance.getCluster();
+        cluster.addMembershipListener(new SlotReleaseListener(slots));
+        node = leaseSlot(slots, cluster);
+        logger.info("Id generator node number is {}", node);
+    }
+
+    /**
+     * Probes slots starting from the one suggested by the cluster counter, so concurrently starting nodes rarely
+     * compete for the same slot.
+     */
+    private long leaseSlot(IMap<Integer, String> slots, Cluster cluster) {
+        String uuid = cluster.getLocalMember().getUuid();
+        long start = hazelcastInstance.getAtomicLong(NODE_COUNTER).getAndIncrement();
+        for (long i = 0; i <= NODE_MASK; i++) {
+            int slot = (int) ((start + i) & NODE_MASK);
+            String holder = slots.putIfAbsent(slot, uuid);
+            if (holder == null || holder.equals(uuid)) {
+                return slot;
+            }
+            if (!isMember(cluster, holder) && slots.replace(slot, holder, uuid)) {
+                logger.info("Id generator node number {} taken over from member {} which has left", slot, holder);
+                return slot;
+            }
+        }
+        throw new IllegalStateException("All " + (NODE_MASK + 1) + " id generator node numbers are taken by running " +
+                "members");
+    }
+
+    private static boolean isMember(Cluster cluster, String uuid) {
+        for (Member member : cluster.getMembers()) {
+            if (uuid.equals(member.getUuid())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long generate() {
+        long now = timestampService.getTimestampMillis() - EPOCH;
+        long prev;
+        long next;
+        do {
+            prev = last.get();
+            long prevTime = prev >>> TIME_SHIFT;
+            if (now > prevTime) {
+                next = (now << TIME_SHIFT) | (node << SEQUENCE_BITS);
+            } else if ((prev & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = prev + 1;
+            } else {
+                next = ((prevTime + 1) << TIME_SHIFT) | (node << SEQUENCE_BITS);
+            }
+        } while (!last.compareAndSet(prev, next));
+        return next;
+    }
+
+    /**
+     * @return time in milliseconds on the cluster clock encoded in the id
+     */
+    public static long getTime(long id) {
+        return (id >>> TIME_SHIFT) + EPOCH;
+    }
+
+    /**
+     * @return node number encoded in the id
+     */
+    public static int getNode(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & NODE_MASK);
+    }
+
+    /**
+     * Releases slots of members which left the cluster. Every member runs it, conditional removal keeps it safe.
+     */
+    static class SlotReleaseListener implements MembershipListener {
+        private final IMap<Integer, String> slots;
+
+        SlotReleaseListener(IMap<Integer, String> slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public void memberRemoved(MembershipEvent membershipEvent) {
+            String uuid = membershipEvent.getMember().getUuid();
+            for (Map.Entry<Integer, String> entry : slots.entrySet()) {
+                if (uuid.equals(entry.getValue()) && slots.remove(entry.getKey(), uuid)) {
+                    logger.info("Id generator node number {} of member {} released", entry.getKey(), uuid);
+                }
+            }
+        }
+
+        @Override
+        public void memberAdded(MembershipEvent membershipEvent) {
+
+        }
+
+        @Override
+        public void memberAttributeChanged(MemberAttributeEvent memberAttributeEvent) {
+
+        }
+    }
+}
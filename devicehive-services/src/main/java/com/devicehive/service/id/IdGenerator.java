@@ -0,0 +1,11 @@
+package com.devicehive.service.id;
+
+
+public interface IdGenerator {
+
+    /**
+     * @return id unique in the cluster; ids generated later have greater values
+     */
+    long generate();
+
+}
@@ -1,18 +1,77 @@
 package com.devicehive.service.time;
 
 import com.hazelcast.core.HazelcastInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Cluster time served from the local clock plus an offset to the Hazelcast cluster clock. The offset is refreshed
+ * every {@code timestamp.offset.refresh.ms}; drift is the change of the offset between two refreshes.
+ */
 @Component
-public class HazelcastTimestampService implements TimestampService {
+public class HazelcastTimestampService implements TimestampService, PublicMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(HazelcastTimestampService.class);
+
     @Autowired
     private HazelcastInstance instance;
 
+    private volatile long offset;
+
+    private final AtomicLong lastDrift = new AtomicLong();
+    private final AtomicLong maxDrift = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    @PostConstruct
+    protected void init() {
+        offset = readOffset();
+    }
+
     @Override
     public Date getTimestamp() {
-        return new Date(instance.getCluster().getClusterTime());
+        return new Date(getTimestampMillis());
+    }
+
+    @Override
+    public long getTimestampMillis() {
+        return System.currentTimeMillis() + offset;
+    }
+
+    @Scheduled(fixedDelayString = "${timestamp.offset.refresh.ms:60000}")
+    public void refreshOffset() {
+        long current = readOffset();
+        long drift = current - offset;
+        offset = current;
+        lastDrift.set(drift);
+        maxDrift.accumulateAndGet(Math.abs(drift), Math::max);
+        refreshes.incrementAndGet();
+        if (drift != 0) {
+            logger.debug("Cluster clock offset changed by {} ms to {} ms", drift, current);
+        }
+    }
+
+    private long readOffset() {
+        return instance.getCluster().getClusterTime() - System.currentTimeMillis();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("cluster.clock.offset.ms", offset));
+        metrics.add(new Metric<>("cluster.clock.drift.ms", lastDrift.get()));
+        metrics.add(new Metric<>("cluster.clock.drift.max.ms", maxDrift.get()));
+        metrics.add(new Metric<>("cluster.clock.refreshes", refreshes.get()));
+        return metrics;
     }
 }
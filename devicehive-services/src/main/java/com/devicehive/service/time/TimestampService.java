@@ -7,4 +7,9 @@ public interface TimestampService {
 
     Date getTimestamp();
 
+    /**
+     * Same as {@code getTimestamp().getTime()}, without allocation.
+     */
+    long getTimestampMillis();
+
 }
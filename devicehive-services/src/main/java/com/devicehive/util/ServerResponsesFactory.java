@@ -20,17 +20,34 @@ import static com.devicehive.json.strategies.JsonPolicyDef.Policy.*;
 public class ServerResponsesFactory {
 
     public static JsonObject createNotificationInsertMessage(DeviceNotification deviceNotification, UUID subId) {
+        JsonObject resultMessage = createNotificationInsertMessage(deviceNotification);
+        resultMessage.addProperty(Constants.SUBSCRIPTION_ID, subId.toString());
+        return resultMessage;
+    }
+
+    /**
+     * Notification insert message without subscription id, which is always the last property of the message.
+     */
+    public static JsonObject createNotificationInsertMessage(DeviceNotification deviceNotification) {
         JsonElement deviceNotificationJson =
             GsonFactory.createGson(NOTIFICATION_TO_CLIENT).toJsonTree(deviceNotification);
         JsonObject resultMessage = new JsonObject();
         resultMessage.addProperty("action", "notification/insert");
         resultMessage.addProperty(Constants.DEVICE_GUID, deviceNotification.getDeviceGuid());
         resultMessage.add(Constants.NOTIFICATION, deviceNotificationJson);
-        resultMessage.addProperty(Constants.SUBSCRIPTION_ID, subId.toString());
         return resultMessage;
     }
 
     public static JsonObject createCommandInsertMessage(DeviceCommand deviceCommand, UUID subId) {
+        JsonObject resultJsonObject = createCommandInsertMessage(deviceCommand);
+        resultJsonObject.addProperty(Constants.SUBSCRIPTION_ID, subId.toString());
+        return resultJsonObject;
+    }
+
+    /**
+     * Command insert message without subscription id, which is always the last property of the message.
+     */
+    public static JsonObject createCommandInsertMessage(DeviceCommand deviceCommand) {
 
         JsonElement deviceCommandJson = GsonFactory.createGson(COMMAND_TO_DEVICE).toJsonTree(deviceCommand,
                                                                                              DeviceCommand.class);
@@ -39,7 +56,6 @@ public class ServerResponsesFactory {
         resultJsonObject.addProperty("action", "command/insert");
         resultJsonObject.addProperty(Constants.DEVICE_GUID, deviceCommand.getDeviceGuid());
         resultJsonObject.add(Constants.COMMAND, deviceCommandJson);
-        resultJsonObject.addProperty(Constants.SUBSCRIPTION_ID, subId.toString());
         return resultJsonObject;
     }
 
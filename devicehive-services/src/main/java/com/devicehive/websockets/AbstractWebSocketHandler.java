@@ -44,7 +44,7 @@ abstract class AbstractWebSocketHandler extends TextWebSocketHandler {
         session.setBinaryMessageSizeLimit(Constants.WEBSOCKET_MAX_BUFFER_SIZE);
         session.setTextMessageSizeLimit(Constants.WEBSOCKET_MAX_BUFFER_SIZE);
 
-        HiveWebsocketSessionState state = new HiveWebsocketSessionState();
+        HiveWebsocketSessionState state = new HiveWebsocketSessionState(asyncMessageSupplier.createQueue());
         session.getAttributes().put(HiveWebsocketSessionState.KEY, state);
         sessionMonitor.registerSession(session);
     }
@@ -60,8 +60,7 @@ abstract class AbstractWebSocketHandler extends TextWebSocketHandler {
             throw new JsonParseException(ex);
         }
         JsonObject response = executor.execute(request, session);
-        HiveWebsocketSessionState.get(session).getQueue().add(response);
-        asyncMessageSupplier.deliverMessages(session);
+        asyncMessageSupplier.send(session, response);
     }
 
     @Override
@@ -6,7 +6,6 @@ import com.devicehive.configuration.Constants;
 import com.devicehive.websockets.util.HiveEndpoint;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.gson.JsonElement;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.util.Collections;
@@ -14,7 +13,6 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -22,8 +20,7 @@ import java.util.concurrent.locks.ReentrantLock;
 public class HiveWebsocketSessionState {
 
     public static final String KEY = HiveWebsocketSessionState.class.getName();
-    private final Lock queueLock = new ReentrantLock(true);
-    private final ConcurrentLinkedQueue<JsonElement> queue = new ConcurrentLinkedQueue<>();
+    private final OutboundMessageQueue queue;
     private final Set<UUID> commandSubscriptions = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<UUID> commandUpdateSubscriptions = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Lock commandSubscriptionsLock = new ReentrantLock(true);
@@ -35,6 +32,14 @@ public class HiveWebsocketSessionState {
     private HiveEndpoint endpoint;
     private HivePrincipal hivePrincipal;
 
+    public HiveWebsocketSessionState() {
+        this(new OutboundMessageQueue());
+    }
+
+    public HiveWebsocketSessionState(OutboundMessageQueue queue) {
+        this.queue = queue;
+    }
+
     public static HiveWebsocketSessionState get(WebSocketSession session) {
         return (HiveWebsocketSessionState) session.getAttributes().get(HiveWebsocketSessionState.KEY);
     }
@@ -47,11 +52,7 @@ public class HiveWebsocketSessionState {
         this.endpoint = endpoint;
     }
 
-    public Lock getQueueLock() {
-        return queueLock;
-    }
-
-    public ConcurrentLinkedQueue<JsonElement> getQueue() {
+    public OutboundMessageQueue getQueue() {
         return queue;
     }
 
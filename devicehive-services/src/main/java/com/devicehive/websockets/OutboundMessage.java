@@ -0,0 +1,59 @@
+package com.devicehive.websockets;
+
+import com.google.common.base.Utf8;
+
+import java.util.UUID;
+
+/**
+ * Message waiting in session outbound queue. Payload is serialized once when the message is queued, so the writer
+ * only has to send it.
+ */
+public class OutboundMessage {
+
+    public static final OutboundMessage PING = new OutboundMessage(null, null);
+
+    private final String payload;
+    private final UUID subscriptionId;
+    private final int size;
+
+    public OutboundMessage(String payload) {
+        this(payload, null);
+    }
+
+    /**
+     * @param subscriptionId subscription the message is delivered for, used to coalesce messages on queue overflow
+     */
+    public OutboundMessage(String payload, UUID subscriptionId) {
+        this(payload, subscriptionId, payload != null ? Utf8.encodedLength(payload) : 0);
+    }
+
+    OutboundMessage(String payload, UUID subscriptionId, int size) {
+        this.payload = payload;
+        this.subscriptionId = subscriptionId;
+        this.size = size;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public UUID getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    /**
+     * @return payload size in bytes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isPing() {
+        return this == PING;
+    }
+
+    @Override
+    public String toString() {
+        return isPing() ? "OutboundMessage{PING}" : "OutboundMessage{" + payload + '}';
+    }
+}
@@ -0,0 +1,210 @@
+package com.devicehive.websockets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue of messages waiting to be written to websocket session. The queue is limited both by number of
+ * messages and by their total size in bytes; {@link OverflowPolicy} decides what happens when a limit is hit.
+ * At most one drain task per session is scheduled at a time, {@link #tryScheduleDrain()} tells the caller whether
+ * it has to schedule one.
+ */
+public class OutboundMessageQueue {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundMessageQueue.class);
+
+    public static final int DEFAULT_MAX_MESSAGES = 10000;
+    public static final long DEFAULT_MAX_BYTES = 10 * 1024 * 1024;
+
+    public enum OverflowPolicy {
+        /**
+         * Evict messages from the head of the queue until the new one fits.
+         */
+        DROP_OLDEST,
+        /**
+         * Reject the new message.
+         */
+        DROP_NEWEST,
+        /**
+         * Evict the oldest queued message of the same subscription, falls back to {@link #DROP_OLDEST}.
+         */
+        COALESCE,
+        /**
+         * Reject the new message and mark the queue as overflowed, the session is expected to be closed.
+         */
+        DISCONNECT
+    }
+
+    private final ConcurrentLinkedQueue<OutboundMessage> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicBoolean disconnecting = new AtomicBoolean();
+    private volatile boolean overflowed;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final OverflowPolicy policy;
+
+    public OutboundMessageQueue() {
+        this(DEFAULT_MAX_MESSAGES, DEFAULT_MAX_BYTES, OverflowPolicy.DROP_OLDEST);
+    }
+
+    public OutboundMessageQueue(int maxMessages, long maxBytes, OverflowPolicy policy) {
+        this.maxMessages = maxMessages > 0 ? maxMessages : Integer.MAX_VALUE;
+        this.maxBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+        this.policy = policy;
+    }
+
+    /**
+     * Adds message to the tail of the queue applying overflow policy if it does not fit. Pings are always accepted.
+     *
+     * @return false if the new message was rejected
+     */
+    public synchronized boolean offer(OutboundMessage message) {
+        if (!message.isPing()) {
+            if (overflowed) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (message.getSize() > maxBytes) {
+                reject();
+                return false;
+            }
+            if (!fits(message)) {
+                if (policy == OverflowPolicy.COALESCE && message.getSubscriptionId() != null) {
+                    evictSubscription(message);
+                }
+                if (!fits(message)) {
+                    if (policy == OverflowPolicy.DROP_OLDEST || policy == OverflowPolicy.COALESCE) {
+                        evictOldest(message);
+                    } else {
+                        reject();
+                        return false;
+                    }
+                }
+            }
+        }
+        queue.offer(message);
+        size.incrementAndGet();
+        bytes.addAndGet(message.getSize());
+        return true;
+    }
+
+    public OutboundMessage poll() {
+        OutboundMessage message = queue.poll();
+        if (message != null) {
+            removed(message);
+        }
+        return message;
+    }
+
+    public OutboundMessage peek() {
+        return queue.peek();
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return true if the queue has hit its limit under {@link OverflowPolicy#DISCONNECT}
+     */
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    /**
+     * @return true if the queue has overflowed and the caller has become responsible for closing the session
+     */
+    public boolean tryDisconnect() {
+        return overflowed && disconnecting.compareAndSet(false, true);
+    }
+
+    public void clear() {
+        while (poll() != null) {
+            // drop everything
+        }
+    }
+
+    /**
+     * @return true if caller has become responsible for scheduling the drain task
+     */
+    public boolean tryScheduleDrain() {
+        return drainScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Called by drain task when it has found the queue empty. Returns true if messages arrived meanwhile and the
+     * task should continue draining.
+     */
+    public boolean finishDrain() {
+        drainScheduled.set(false);
+        return !queue.isEmpty() && tryScheduleDrain();
+    }
+
+    public void cancelDrain() {
+        drainScheduled.set(false);
+    }
+
+    private boolean fits(OutboundMessage message) {
+        return size.get() < maxMessages && bytes.get() + message.getSize() <= maxBytes;
+    }
+
+    private void evictSubscription(OutboundMessage message) {
+        for (OutboundMessage queued : queue) {
+            if (message.getSubscriptionId().equals(queued.getSubscriptionId()) && queue.remove(queued)) {
+                removed(queued);
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void evictOldest(OutboundMessage message) {
+        long evicted = 0;
+        OutboundMessage head;
+        while (!fits(message) && (head = queue.poll()) != null) {
+            removed(head);
+            if (!head.isPing()) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            dropped.addAndGet(evicted);
+            logger.debug("Outbound queue overflow, {} oldest messages dropped", evicted);
+        }
+    }
+
+    private void reject() {
+        dropped.incrementAndGet();
+        if (policy == OverflowPolicy.DISCONNECT) {
+            overflowed = true;
+            logger.warn("Outbound queue overflow ({} messages, {} bytes), session will be disconnected",
+                    size.get(), bytes.get());
+        } else {
+            logger.debug("Outbound queue overflow, new message dropped");
+        }
+    }
+
+    private void removed(OutboundMessage message) {
+        size.decrementAndGet();
+        bytes.addAndGet(-message.getSize());
+    }
+}
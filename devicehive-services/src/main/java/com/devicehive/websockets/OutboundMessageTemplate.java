@@ -0,0 +1,56 @@
+package com.devicehive.websockets;
+
+import com.devicehive.configuration.Constants;
+import com.devicehive.json.GsonFactory;
+import com.google.common.base.Utf8;
+import com.google.gson.JsonObject;
+
+import java.util.UUID;
+
+/**
+ * Message serialized once and delivered to many subscribers. The subscription id, which is the only per subscriber
+ * part of a message, is spliced in as the last property, so rendering a message for a subscriber is a string copy.
+ */
+public class OutboundMessageTemplate {
+
+    private static final int UUID_LENGTH = 36;
+
+    private final String prefix;
+    private final String suffix;
+    private final int size;
+
+    private OutboundMessageTemplate(String prefix, String suffix) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.size = Utf8.encodedLength(prefix) + (suffix != null ? UUID_LENGTH + suffix.length() : 0);
+    }
+
+    /**
+     * Template adding {@code subscriptionId} property to given message.
+     */
+    public static OutboundMessageTemplate withSubscriptionId(JsonObject message) {
+        String json = GsonFactory.createGson().toJson(message);
+        StringBuilder prefix = new StringBuilder(json.length() + 24).append(json, 0, json.length() - 1);
+        if (!message.entrySet().isEmpty()) {
+            prefix.append(',');
+        }
+        prefix.append('"').append(Constants.SUBSCRIPTION_ID).append("\":\"");
+        return new OutboundMessageTemplate(prefix.toString(), "\"}");
+    }
+
+    /**
+     * Template rendering the same message for every subscriber.
+     */
+    public static OutboundMessageTemplate of(JsonObject message) {
+        return new OutboundMessageTemplate(GsonFactory.createGson().toJson(message), null);
+    }
+
+    public OutboundMessage render(UUID subscriptionId) {
+        if (suffix == null) {
+            return new OutboundMessage(prefix, subscriptionId, size);
+        }
+        String payload = new StringBuilder(prefix.length() + UUID_LENGTH + suffix.length())
+                .append(prefix).append(subscriptionId).append(suffix).toString();
+        return new OutboundMessage(payload, subscriptionId, size);
+    }
+}
@@ -0,0 +1,144 @@
+package com.devicehive.websockets.converters;
+
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.JsonStringWrapper;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Binary kafka format of commands, see {@link BinaryMessageCodec}. After the version byte comes a varint of field
+ * presence flags (including the value of isUpdated), then present fields in order: id, timestamp, user id, lifetime,
+ * command, device guid, status, parameters, result. Messages written by {@link DeviceCommandConverter} are read
+ * as well.
+ */
+public class BinaryDeviceCommandConverter implements Serializer<DeviceCommand>, Deserializer<DeviceCommand> {
+
+    private static final int ID = 1;
+    private static final int TIMESTAMP = 1 << 1;
+    private static final int USER_ID = 1 << 2;
+    private static final int LIFETIME = 1 << 3;
+    private static final int COMMAND = 1 << 4;
+    private static final int DEVICE_GUID = 1 << 5;
+    private static final int STATUS = 1 << 6;
+    private static final int PARAMETERS = 1 << 7;
+    private static final int RESULT = 1 << 8;
+    private static final int IS_UPDATED = 1 << 9;
+    private static final int IS_UPDATED_VALUE = 1 << 10;
+
+    private final DeviceCommandConverter jsonConverter = new DeviceCommandConverter();
+
+    public byte[] toBytes(DeviceCommand command) {
+        Long id = command.getId();
+        Date timestamp = command.getTimestamp();
+        Long userId = command.getUserId();
+        Integer lifetime = command.getLifetime();
+        JsonStringWrapper parameters = command.getParameters();
+        JsonStringWrapper result = command.getResult();
+        Boolean isUpdated = command.getIsUpdated();
+        int flags = (id != null ? ID : 0)
+                | (timestamp != null ? TIMESTAMP : 0)
+                | (userId != null ? USER_ID : 0)
+                | (lifetime != null ? LIFETIME : 0)
+                | (command.getCommand() != null ? COMMAND : 0)
+                | (command.getDeviceGuid() != null ? DEVICE_GUID : 0)
+                | (command.getStatus() != null ? STATUS : 0)
+                | (parameters != null ? PARAMETERS : 0)
+                | (result != null ? RESULT : 0)
+                | (isUpdated != null ? IS_UPDATED : 0)
+                | (Boolean.TRUE.equals(isUpdated) ? IS_UPDATED_VALUE : 0);
+        BinaryMessageCodec.Writer writer = new BinaryMessageCodec.Writer(64)
+                .writeByte(BinaryMessageCodec.VERSION)
+                .writeLong(flags);
+        if (id != null) {
+            writer.writeLong(id);
+        }
+        if (timestamp != null) {
+            writer.writeLong(timestamp.getTime());
+        }
+        if (userId != null) {
+            writer.writeLong(userId);
+        }
+        if (lifetime != null) {
+            writer.writeLong(lifetime);
+        }
+        if (command.getCommand() != null) {
+            writer.writeString(command.getCommand());
+        }
+        if (command.getDeviceGuid() != null) {
+            writer.writeString(command.getDeviceGuid());
+        }
+        if (command.getStatus() != null) {
+            writer.writeString(command.getStatus());
+        }
+        if (parameters != null) {
+            writer.writeString(parameters.getJsonString());
+        }
+        if (result != null) {
+            writer.writeString(result.getJsonString());
+        }
+        return writer.toBytes();
+    }
+
+    public DeviceCommand fromBytes(byte[] bytes) {
+        if (bytes.length > 0 && bytes[0] == BinaryMessageCodec.JSON_START) {
+            return jsonConverter.fromBytes(bytes);
+        }
+        BinaryMessageCodec.Reader reader = new BinaryMessageCodec.Reader(bytes).version();
+        long flags = reader.readLong();
+        DeviceCommand command = new DeviceCommand();
+        if ((flags & ID) != 0) {
+            command.setId(reader.readLong());
+        }
+        if ((flags & TIMESTAMP) != 0) {
+            command.setTimestamp(new Date(reader.readLong()));
+        }
+        if ((flags & USER_ID) != 0) {
+            command.setUserId(reader.readLong());
+        }
+        if ((flags & LIFETIME) != 0) {
+            command.setLifetime((int) reader.readLong());
+        }
+        if ((flags & COMMAND) != 0) {
+            command.setCommand(reader.readString());
+        }
+        if ((flags & DEVICE_GUID) != 0) {
+            command.setDeviceGuid(reader.readString());
+        }
+        if ((flags & STATUS) != 0) {
+            command.setStatus(reader.readString());
+        }
+        if ((flags & PARAMETERS) != 0) {
+            command.setParameters(new JsonStringWrapper(reader.readString()));
+        }
+        if ((flags & RESULT) != 0) {
+            command.setResult(new JsonStringWrapper(reader.readString()));
+        }
+        if ((flags & IS_UPDATED) != 0) {
+            command.setIsUpdated((flags & IS_UPDATED_VALUE) != 0);
+        }
+        return command;
+    }
+
+    @Override
+    public DeviceCommand deserialize(String s, byte[] bytes) {
+        return bytes != null ? fromBytes(bytes) : null;
+    }
+
+    @Override
+    public void configure(Map<String, ?> map, boolean b) {
+
+    }
+
+    @Override
+    public byte[] serialize(String s, DeviceCommand deviceCommand) {
+        return deviceCommand != null ? toBytes(deviceCommand) : null;
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
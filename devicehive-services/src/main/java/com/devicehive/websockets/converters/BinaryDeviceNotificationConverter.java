@@ -0,0 +1,100 @@
+package com.devicehive.websockets.converters;
+
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.JsonStringWrapper;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Binary kafka format of notifications, see {@link BinaryMessageCodec}. After the version byte comes a byte of
+ * field presence flags, then present fields in order: id, timestamp, notification, device guid, parameters.
+ * Messages written by {@link DeviceNotificationConverter} are read as well.
+ */
+public class BinaryDeviceNotificationConverter implements Serializer<DeviceNotification>, Deserializer<DeviceNotification> {
+
+    private static final int ID = 1;
+    private static final int TIMESTAMP = 1 << 1;
+    private static final int NOTIFICATION = 1 << 2;
+    private static final int DEVICE_GUID = 1 << 3;
+    private static final int PARAMETERS = 1 << 4;
+
+    private final DeviceNotificationConverter jsonConverter = new DeviceNotificationConverter();
+
+    public byte[] toBytes(DeviceNotification notification) {
+        Long id = notification.getId();
+        Date timestamp = notification.getTimestamp();
+        JsonStringWrapper parameters = notification.getParameters();
+        int flags = (id != null ? ID : 0)
+                | (timestamp != null ? TIMESTAMP : 0)
+                | (notification.getNotification() != null ? NOTIFICATION : 0)
+                | (notification.getDeviceGuid() != null ? DEVICE_GUID : 0)
+                | (parameters != null ? PARAMETERS : 0);
+        BinaryMessageCodec.Writer writer = new BinaryMessageCodec.Writer(64)
+                .writeByte(BinaryMessageCodec.VERSION)
+                .writeByte(flags);
+        if (id != null) {
+            writer.writeLong(id);
+        }
+        if (timestamp != null) {
+            writer.writeLong(timestamp.getTime());
+        }
+        if (notification.getNotification() != null) {
+            writer.writeString(notification.getNotification());
+        }
+        if (notification.getDeviceGuid() != null) {
+            writer.writeString(notification.getDeviceGuid());
+        }
+        if (parameters != null) {
+            writer.writeString(parameters.getJsonString());
+        }
+        return writer.toBytes();
+    }
+
+    public DeviceNotification fromBytes(byte[] bytes) {
+        if (bytes.length > 0 && bytes[0] == BinaryMessageCodec.JSON_START) {
+            return jsonConverter.fromBytes(bytes);
+        }
+        BinaryMessageCodec.Reader reader = new BinaryMessageCodec.Reader(bytes).version();
+        int flags = reader.readByte();
+        DeviceNotification notification = new DeviceNotification();
+        if ((flags & ID) != 0) {
+            notification.setId(reader.readLong());
+        }
+        if ((flags & TIMESTAMP) != 0) {
+            notification.setTimestamp(new Date(reader.readLong()));
+        }
+        if ((flags & NOTIFICATION) != 0) {
+            notification.setNotification(reader.readString());
+        }
+        if ((flags & DEVICE_GUID) != 0) {
+            notification.setDeviceGuid(reader.readString());
+        }
+        if ((flags & PARAMETERS) != 0) {
+            notification.setParameters(new JsonStringWrapper(reader.readString()));
+        }
+        return notification;
+    }
+
+    @Override
+    public DeviceNotification deserialize(String s, byte[] bytes) {
+        return bytes != null ? fromBytes(bytes) : null;
+    }
+
+    @Override
+    public void configure(Map<String, ?> map, boolean b) {
+
+    }
+
+    @Override
+    public byte[] serialize(String s, DeviceNotification deviceNotification) {
+        return deviceNotification != null ? toBytes(deviceNotification) : null;
+    }
+
+    @Override
+    public void close() {
+
+    }
+}
@@ -0,0 +1,124 @@
+package com.devicehive.websockets.converters;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Primitives of the binary message format: a leading format version byte, zigzag varint numbers and strings as
+ * varint length (plus one, zero stands for null) followed by UTF-8 bytes. JSON strings such as parameters are
+ * carried as they are, without parsing.
+ */
+final class BinaryMessageCodec {
+
+    static final byte VERSION = 1;
+
+    /**
+     * First byte of messages written by the JSON converters, used to read them during rolling upgrades.
+     */
+    static final byte JSON_START = '{';
+
+    private BinaryMessageCodec() {
+    }
+
+    static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        Writer writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+            return this;
+        }
+
+        Writer writeLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            ensure(10);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[position++] = (byte) zigzag;
+            return this;
+        }
+
+        Writer writeString(String value) {
+            if (value == null) {
+                return writeLong(0);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeLong(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+            return this;
+        }
+
+        byte[] toBytes() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+
+    static final class Reader {
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Reads and checks format version.
+         */
+        Reader version() {
+            int version = readByte();
+            if (version != VERSION) {
+                throw new SerializationException("Unsupported binary message version " + version);
+            }
+            return this;
+        }
+
+        int readByte() {
+            if (position >= buffer.length) {
+                throw new SerializationException("Unexpected end of binary message");
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        long readLong() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new SerializationException("Malformed varint in binary message");
+        }
+
+        String readString() {
+            long length = readLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buffer.length - position) {
+                throw new SerializationException("Unexpected end of binary message");
+            }
+            String value = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+}
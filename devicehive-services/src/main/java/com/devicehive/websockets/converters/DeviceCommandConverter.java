@@ -7,7 +7,7 @@ import com.google.gson.GsonBuilder;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serializer;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Map;
 
@@ -23,7 +23,7 @@ public class DeviceCommandConverter implements Serializer<DeviceCommand>, Deseri
     }
 
     public byte[] toBytes(DeviceCommand deviceCommand) {
-        return toJsonString(deviceCommand).getBytes();
+        return toJsonString(deviceCommand).getBytes(StandardCharsets.UTF_8);
     }
 
     public String toJsonString(DeviceCommand deviceCommand) {
@@ -31,12 +31,7 @@ public class DeviceCommandConverter implements Serializer<DeviceCommand>, Deseri
     }
 
     public DeviceCommand fromBytes(byte[] bytes) {
-        try {
-            return gson.fromJson(new String(bytes, "UTF-8"), DeviceCommand.class);
-        } catch (UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return gson.fromJson(new String(bytes, StandardCharsets.UTF_8), DeviceCommand.class);
     }
 
     @Override
@@ -7,7 +7,7 @@ import com.google.gson.GsonBuilder;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serializer;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Map;
 
@@ -23,7 +23,7 @@ public class DeviceNotificationConverter implements Serializer<DeviceNotificatio
     }
 
     public byte[] toBytes(DeviceNotification deviceNotification) {
-        return toJsonString(deviceNotification).getBytes();
+        return toJsonString(deviceNotification).getBytes(StandardCharsets.UTF_8);
     }
 
     public String toJsonString(DeviceNotification deviceNotification) {
@@ -31,12 +31,7 @@ public class DeviceNotificationConverter implements Serializer<DeviceNotificatio
     }
 
     public DeviceNotification fromBytes(byte[] bytes) {
-        try {
-            return gson.fromJson(new String(bytes, "UTF-8"), DeviceNotification.class);
-        } catch (UnsupportedEncodingException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return gson.fromJson(new String(bytes, StandardCharsets.UTF_8), DeviceNotification.class);
     }
 
     @Override
@@ -118,11 +118,11 @@ public class CommandHandlers extends WebsocketHandlers {
                 }
                 for (DeviceVO d : actualDevices) {
                     csList.add(new CommandSubscription(principal, d.getGuid(), reqId, namesStr,
-                            WebsocketHandlerCreator.createCommandInsert(session)));
+                            WebsocketHandlerCreator.createCommandInsert(session, asyncMessageDeliverer)));
                 }
             } else {
                 CommandSubscription forAll = new CommandSubscription(principal, Constants.NULL_SUBSTITUTE, reqId, namesStr,
-                                            WebsocketHandlerCreator.createCommandInsert(session));
+                                            WebsocketHandlerCreator.createCommandInsert(session, asyncMessageDeliverer));
                 csList.add(forAll);
             }
             subscriptionSessionMap.put(reqId, session);
@@ -137,7 +137,7 @@ public class CommandHandlers extends WebsocketHandlers {
                         Constants.DEFAULT_TAKE, false, principal);
                 if (!commands.isEmpty()) {
                     for (DeviceCommand deviceCommand : commands) {
-                        state.getQueue().add(ServerResponsesFactory.createCommandInsertMessage(deviceCommand, reqId));
+                        asyncMessageDeliverer.enqueue(session, ServerResponsesFactory.createCommandInsertMessage(deviceCommand, reqId), reqId);
                     }
                 }
             }
@@ -159,7 +159,7 @@ public class CommandHandlers extends WebsocketHandlers {
             logger.debug("commandUpdate/subscribe action. Session {}", session.getId());
             UUID reqId = UUID.randomUUID();
             CommandUpdateSubscription subscription = new CommandUpdateSubscription(commandId, reqId,
-                    WebsocketHandlerCreator.createCommandUpdate(session));
+                    WebsocketHandlerCreator.createCommandUpdate(session, asyncMessageDeliverer));
             subscriptionSessionMap.put(reqId, session);
             state.getCommandUpdateSubscriptions().add(reqId);
             subscriptionManager.getCommandUpdateSubscriptionStorage().insert(subscription);
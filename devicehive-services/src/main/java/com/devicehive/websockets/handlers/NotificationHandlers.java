@@ -114,14 +114,14 @@ public class NotificationHandlers extends WebsocketHandlers {
             if (devices != null) {
                 List<DeviceVO> actualDevices = deviceService.findByGuidWithPermissionsCheck(devices, principal);
                 for (DeviceVO d : actualDevices) {
-                    WebsocketHandlerCreator<DeviceNotification> notificationInsert = WebsocketHandlerCreator.createNotificationInsert(session);
+                    WebsocketHandlerCreator<DeviceNotification> notificationInsert = WebsocketHandlerCreator.createNotificationInsert(session, asyncMessageDeliverer);
                     NotificationSubscription notificationSubscription = new NotificationSubscription(principal, d.getGuid(), reqId, StringUtils.join(names, ","), notificationInsert);
                     nsList.add(notificationSubscription);
                 }
             } else {
                 NotificationSubscription forAll =
                     new NotificationSubscription(principal, Constants.NULL_SUBSTITUTE, reqId, StringUtils.join(names, ","),
-                                                 WebsocketHandlerCreator.createNotificationInsert(session));
+                                                 WebsocketHandlerCreator.createNotificationInsert(session, asyncMessageDeliverer));
                 nsList.add(forAll);
             }
             subscriptionSessionMap.put(reqId, session);
@@ -136,7 +136,7 @@ public class NotificationHandlers extends WebsocketHandlers {
                         devices, names, timestamp, Constants.DEFAULT_TAKE, principal);
                 if (!notifications.isEmpty()) {
                     for (DeviceNotification deviceNotification : notifications) {
-                        state.getQueue().add(ServerResponsesFactory.createNotificationInsertMessage(deviceNotification, reqId));
+                        asyncMessageDeliverer.enqueue(session, ServerResponsesFactory.createNotificationInsertMessage(deviceNotification, reqId), reqId);
                     }
                 }
             }
@@ -4,67 +4,168 @@ import com.devicehive.application.DeviceHiveApplication;
 import com.devicehive.configuration.Constants;
 import com.devicehive.json.GsonFactory;
 import com.devicehive.websockets.HiveWebsocketSessionState;
-import com.google.gson.JsonArray;
+import com.devicehive.websockets.OutboundMessage;
+import com.devicehive.websockets.OutboundMessageQueue;
 import com.google.gson.JsonElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Outbound writer of websocket sessions. Messages are serialized once when queued; a single drain task per session
+ * is scheduled on the message executor and writes everything queued so far. With {@code websocket.batch.size}
+ * greater than one, consecutive messages are packed into one frame as a json array.
+ * <p>
+ * Queues are bounded by {@code websocket.queue.max.messages} and {@code websocket.queue.max.bytes}, what happens
+ * to a slow consumer at the limit is chosen by {@code websocket.queue.overflow.policy}. Limits are checked when a
+ * message is queued; under {@code DISCONNECT} the session is closed by the next delivery request, without waiting
+ * for the drain task to reach the queue.
+ */
 @Component
 public class AsyncMessageSupplier {
 
     private static final Logger logger = LoggerFactory.getLogger(AsyncMessageSupplier.class);
 
-    public static final JsonElement PING_JSON_MSG = new JsonArray();
+    @Autowired
+    @Qualifier(DeviceHiveApplication.MESSAGE_EXECUTOR)
+    private ExecutorService executor;
+
+    @Value("${websocket.queue.max.messages:10000}")
+    private int maxQueuedMessages;
+
+    @Value("${websocket.queue.max.bytes:10485760}")
+    private long maxQueuedBytes;
+
+    @Value("${websocket.queue.overflow.policy:DROP_OLDEST}")
+    private OutboundMessageQueue.OverflowPolicy overflowPolicy;
+
+    @Value("${websocket.batch.size:1}")
+    private int batchSize;
+
+    public OutboundMessageQueue createQueue() {
+        return new OutboundMessageQueue(maxQueuedMessages, maxQueuedBytes, overflowPolicy);
+    }
+
+    /**
+     * Queues message without scheduling delivery, {@link #deliverMessages(WebSocketSession)} should follow.
+     */
+    public void enqueue(WebSocketSession session, JsonElement message) {
+        enqueue(session, message, null);
+    }
+
+    /**
+     * Queues message delivered for given subscription without scheduling delivery.
+     */
+    public void enqueue(WebSocketSession session, JsonElement message, UUID subscriptionId) {
+        enqueue(session, new OutboundMessage(GsonFactory.createGson().toJson(message), subscriptionId));
+    }
+
+    /**
+     * Queues already serialized message without scheduling delivery.
+     */
+    public void enqueue(WebSocketSession session, OutboundMessage message) {
+        if (!HiveWebsocketSessionState.get(session).getQueue().offer(message)) {
+            logger.debug("Message for session {} was dropped", session.getId());
+        }
+    }
+
+    public void send(WebSocketSession session, JsonElement message) {
+        enqueue(session, message);
+        deliverMessages(session);
+    }
+
+    public void ping(WebSocketSession session) {
+        HiveWebsocketSessionState.get(session).getQueue().offer(OutboundMessage.PING);
+        deliverMessages(session);
+    }
 
-    @Async(DeviceHiveApplication.MESSAGE_EXECUTOR)
+    /**
+     * Schedules drain task unless one is already scheduled or running for the session.
+     */
     public void deliverMessages(WebSocketSession session) {
-        ConcurrentLinkedQueue<JsonElement> queue = HiveWebsocketSessionState.get(session).getQueue();
-        boolean acquired = false;
+        OutboundMessageQueue queue = HiveWebsocketSessionState.get(session).getQueue();
+        if (closeIfOverflowed(session, queue) || queue.isEmpty() || !queue.tryScheduleDrain()) {
+            return;
+        }
+        try {
+            executor.execute(() -> drain(session, queue));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Unable to schedule delivery for session {}", session.getId());
+            queue.cancelDrain();
+        }
+    }
+
+    private void drain(WebSocketSession session, OutboundMessageQueue queue) {
         try {
-            acquired = HiveWebsocketSessionState.get(session).getQueueLock().tryLock();
-            if (acquired) {
-                while (!queue.isEmpty()) {
-                    JsonElement jsonElement = queue.peek();
-                    if (jsonElement == null) {
-                        queue.poll();
-                        continue;
+            do {
+                OutboundMessage message;
+                while ((message = queue.poll()) != null) {
+                    if (closeIfOverflowed(session, queue)) {
+                        break;
                     }
-                    if (session.isOpen()) {
-                        WebSocketMessage<?> webSocketMessage = null;
-                        if (jsonElement == PING_JSON_MSG) {
-                            webSocketMessage = new PingMessage(Constants.PING);
-                        } else {
-                            String data = GsonFactory.createGson().toJson(jsonElement);
-                            webSocketMessage = new TextMessage(data);
-                        }
-                        session.sendMessage(webSocketMessage);
-                        queue.poll();
-                    } else {
+                    if (!session.isOpen()) {
                         logger.error("Session is closed. Unable to deliver message");
                         queue.clear();
-                        return;
+                        break;
                     }
+                    session.sendMessage(toFrame(message, queue));
                     logger.debug("Session {}: {} messages left", session.getId(), queue.size());
                 }
-            }
-        } catch (IOException e) {
-            logger.error("Unexpected exception", e);
-            throw new RuntimeException(e);
-        } finally {
-            if (acquired) {
-                HiveWebsocketSessionState.get(session).getQueueLock().unlock();
+            } while (queue.finishDrain());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to deliver messages to session {}", session.getId(), e);
+            queue.clear();
+            queue.cancelDrain();
+        }
+    }
+
+    /**
+     * Drops queued messages and closes the session once if its queue has overflowed.
+     *
+     * @return true if the queue has overflowed
+     */
+    private boolean closeIfOverflowed(WebSocketSession session, OutboundMessageQueue queue) {
+        if (!queue.isOverflowed()) {
+            return false;
+        }
+        queue.clear();
+        if (queue.tryDisconnect()) {
+            logger.warn("Session {} does not keep up with outbound messages, {} dropped. Closing", session.getId(),
+                    queue.dropped());
+            try {
+                if (session.isOpen()) {
+                    session.close(CloseStatus.SERVICE_OVERLOAD.withReason("Outbound message queue overflow"));
+                }
+            } catch (IOException e) {
+                logger.error("Unable to close session {}", session.getId(), e);
             }
         }
+        return true;
     }
 
+    private WebSocketMessage<?> toFrame(OutboundMessage first, OutboundMessageQueue queue) {
+        if (first.isPing()) {
+            return new PingMessage(Constants.PING);
+        }
+        if (batchSize <= 1) {
+            return new TextMessage(first.getPayload());
+        }
+        StringBuilder frame = new StringBuilder("[").append(first.getPayload());
+        int count = 1;
+        OutboundMessage next;
+        while (count < batchSize && (next = queue.peek()) != null && !next.isPing()) {
+            frame.append(',').append(queue.poll().getPayload());
+            count++;
+        }
+        return new TextMessage(frame.append(']'));
+    }
 }
-
-
-
@@ -8,9 +8,12 @@ import com.devicehive.messages.subscriptions.SubscriptionManager;
 import com.devicehive.service.DeviceActivityService;
 import com.devicehive.vo.DeviceVO;
 import com.devicehive.websockets.HiveWebsocketSessionState;
+import com.devicehive.websockets.OutboundMessageQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
@@ -19,13 +22,17 @@ import org.springframework.web.socket.WebSocketSession;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 @Component
-public class SessionMonitor {
+public class SessionMonitor implements PublicMetrics {
     private static final Logger logger = LoggerFactory.getLogger(SessionMonitor.class);
 
     private ConcurrentMap<String, WebSocketSession> sessionMap;
@@ -46,6 +53,10 @@ public class SessionMonitor {
         return session != null && session.isOpen() ? session : null;
     }
 
+    public Collection<WebSocketSession> getSessions() {
+        return Collections.unmodifiableCollection(sessionMap.values());
+    }
+
     public void updateDeviceSession(WebSocketSession session) {
         HivePrincipal hivePrincipal = HiveWebsocketSessionState.get(session).getHivePrincipal();
         DeviceVO authorizedDevice = hivePrincipal != null ? hivePrincipal.getDevice() : null;
@@ -68,8 +79,7 @@ public class SessionMonitor {
         for (WebSocketSession session : sessionMap.values()) {
             if (session.isOpen()) {
                 logger.debug("Pinging session {}", session.getId());
-                HiveWebsocketSessionState.get(session).getQueue().offer(AsyncMessageSupplier.PING_JSON_MSG);
-                asyncMessageSupplier.deliverMessages(session);
+                asyncMessageSupplier.ping(session);
             } else {
                 logger.debug("Session {} is closed.", session.getId());
                 sessionMap.remove(session.getId());
@@ -77,6 +87,32 @@ public class SessionMonitor {
         }
     }
 
+    @Override
+    public Collection<Metric<?>> metrics() {
+        long messages = 0;
+        long bytes = 0;
+        long dropped = 0;
+        int maxMessages = 0;
+        for (WebSocketSession session : sessionMap.values()) {
+            HiveWebsocketSessionState state = HiveWebsocketSessionState.get(session);
+            if (state == null) {
+                continue;
+            }
+            OutboundMessageQueue queue = state.getQueue();
+            messages += queue.size();
+            bytes += queue.bytes();
+            dropped += queue.dropped();
+            maxMessages = Math.max(maxMessages, queue.size());
+        }
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("websocket.sessions", sessionMap.size()));
+        metrics.add(new Metric<>("websocket.queue.messages", messages));
+        metrics.add(new Metric<>("websocket.queue.messages.max", maxMessages));
+        metrics.add(new Metric<>("websocket.queue.bytes", bytes));
+        metrics.add(new Metric<>("websocket.queue.dropped", dropped));
+        return metrics;
+    }
+
     @PostConstruct
     public void init() {
         sessionMap = new ConcurrentHashMap<>();
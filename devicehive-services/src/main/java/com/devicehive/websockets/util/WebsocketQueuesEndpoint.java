@@ -0,0 +1,49 @@
+package com.devicehive.websockets.util;
+
+import com.devicehive.websockets.HiveWebsocketSessionState;
+import com.devicehive.websockets.OutboundMessageQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management endpoint listing outbound queue depth of websocket sessions, deepest first, to spot slow consumers.
+ */
+@Component
+public class WebsocketQueuesEndpoint extends AbstractEndpoint<List<Map<String, Object>>> {
+
+    @Autowired
+    private SessionMonitor sessionMonitor;
+
+    public WebsocketQueuesEndpoint() {
+        super("websocketqueues");
+    }
+
+    @Override
+    public List<Map<String, Object>> invoke() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (WebSocketSession session : sessionMonitor.getSessions()) {
+            HiveWebsocketSessionState state = HiveWebsocketSessionState.get(session);
+            if (state == null) {
+                continue;
+            }
+            OutboundMessageQueue queue = state.getQueue();
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("session", session.getId());
+            info.put("principal", state.getHivePrincipal() != null ? state.getHivePrincipal().getName() : null);
+            info.put("messages", queue.size());
+            info.put("bytes", queue.bytes());
+            info.put("dropped", queue.dropped());
+            result.add(info);
+        }
+        result.sort(Comparator.comparing((Map<String, Object> info) -> (Integer) info.get("messages")).reversed());
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package com.devicehive.auth;
+
+import com.devicehive.model.enums.UserRole;
+import com.devicehive.vo.AccessKeyPermissionVO;
+import com.devicehive.vo.AccessKeyVO;
+import com.devicehive.vo.UserVO;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class AccessKeyPermissionEvaluatorTest {
+
+    private final AccessKeyPermissionEvaluator evaluator = new AccessKeyPermissionEvaluator();
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void should_not_change_principal_of_authentication() throws Exception {
+        AccessKeyPermissionVO getDevice = new AccessKeyPermissionVO();
+        getDevice.setActionsArray("GetDevice");
+        AccessKeyPermissionVO getNetwork = new AccessKeyPermissionVO();
+        getNetwork.setActionsArray("GetNetwork");
+        HiveAuthentication authentication = authentication(getDevice, getNetwork);
+
+        assertThat(evaluator.hasPermission(authentication, null, "GET_DEVICE"), is(true));
+        HivePrincipal filtered = (HivePrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        assertThat(filtered.getKey().getPermissions(), contains(getDevice));
+
+        assertThat(evaluator.hasPermission(authentication, null, "GET_NETWORK"), is(true));
+        assertThat(((HivePrincipal) authentication.getPrincipal()).getKey().getPermissions(),
+                containsInAnyOrder(getDevice, getNetwork));
+        assertThat(evaluator.hasPermission(authentication, null, "MANAGE_NETWORK"), is(false));
+    }
+
+    @Test
+    public void should_memoize_permission_check() throws Exception {
+        AccessKeyPermissionVO getDevice = new AccessKeyPermissionVO();
+        getDevice.setActionsArray("GetDevice");
+        HiveAuthentication authentication = authentication(getDevice);
+
+        assertThat(evaluator.hasPermission(authentication, null, "GET_DEVICE"), is(true));
+        Object first = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(evaluator.hasPermission(authentication, null, "GET_DEVICE"), is(true));
+        assertThat(SecurityContextHolder.getContext().getAuthentication(), is(sameInstance(first)));
+
+        authentication.setDetails(new HiveAuthentication.HiveAuthDetails(InetAddress.getByName("127.0.0.1"), null, null));
+        assertThat(evaluator.hasPermission(authentication, null, "GET_DEVICE"), is(true));
+        assertThat(SecurityContextHolder.getContext().getAuthentication(), is(not(sameInstance(first))));
+    }
+
+    @Test
+    public void should_check_permission_of_deserialized_authentication() throws Exception {
+        AccessKeyPermissionVO getDevice = new AccessKeyPermissionVO();
+        getDevice.setActionsArray("GetDevice");
+        HiveAuthentication authentication = authentication(getDevice);
+        assertThat(evaluator.hasPermission(authentication, null, "GET_DEVICE"), is(true));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(authentication);
+        }
+        HiveAuthentication deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (HiveAuthentication) in.readObject();
+        }
+
+        assertThat(evaluator.hasPermission(deserialized, null, "GET_DEVICE"), is(true));
+        assertThat(evaluator.hasPermission(deserialized, null, "MANAGE_NETWORK"), is(false));
+    }
+
+    private static HiveAuthentication authentication(AccessKeyPermissionVO... permissions) throws Exception {
+        UserVO user = new UserVO();
+        user.setRole(UserRole.CLIENT);
+        AccessKeyVO key = new AccessKeyVO();
+        key.setUser(user);
+        key.setPermissions(new HashSet<>(Arrays.asList(permissions)));
+        HiveAuthentication authentication = new HiveAuthentication(new HivePrincipal(key),
+                AuthorityUtils.createAuthorityList(HiveRoles.KEY));
+        authentication.setDetails(new HiveAuthentication.HiveAuthDetails(InetAddress.getByName("127.0.0.1"), null, null));
+        return authentication;
+    }
+}
@@ -0,0 +1,136 @@
+package com.devicehive.auth;
+
+import com.devicehive.model.enums.UserRole;
+import com.devicehive.vo.AccessKeyPermissionVO;
+import com.devicehive.vo.AccessKeyVO;
+import com.devicehive.vo.DeviceVO;
+import com.devicehive.vo.NetworkVO;
+import com.devicehive.vo.UserVO;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class CheckPermissionsHelperTest {
+
+    @Test
+    public void should_filter_permissions_by_action_ignoring_case() throws Exception {
+        AccessKeyPermissionVO getDevice = new AccessKeyPermissionVO();
+        getDevice.setActionsArray("getdevice");
+        AccessKeyPermissionVO notification = new AccessKeyPermissionVO();
+        notification.setActionsArray("GetDeviceNotification");
+        AccessKeyPermissionVO any = new AccessKeyPermissionVO();
+
+        Set<AccessKeyPermissionVO> filtered = CheckPermissionsHelper.filterPermissions(key(UserRole.CLIENT),
+                permissions(getDevice, notification, any), AccessKeyAction.GET_DEVICE, localhost(), null);
+
+        assertThat(filtered, containsInAnyOrder(getDevice, any));
+    }
+
+    @Test
+    public void should_deny_admin_actions_to_client() throws Exception {
+        AccessKeyPermissionVO manageUser = new AccessKeyPermissionVO();
+        manageUser.setActionsArray("ManageUser");
+        AccessKeyPermissionVO any = new AccessKeyPermissionVO();
+
+        assertThat(CheckPermissionsHelper.filterPermissions(key(UserRole.CLIENT), permissions(manageUser, any),
+                AccessKeyAction.MANAGE_USER, localhost(), null), is(empty()));
+        assertThat(CheckPermissionsHelper.filterPermissions(key(UserRole.ADMIN), permissions(manageUser, any),
+                AccessKeyAction.MANAGE_USER, localhost(), null), containsInAnyOrder(manageUser, any));
+    }
+
+    @Test
+    public void should_filter_permissions_by_subnet_and_domain() throws Exception {
+        AccessKeyPermissionVO subnet = new AccessKeyPermissionVO();
+        subnet.setSubnetsArray("192.168.1.0/24");
+        AccessKeyPermissionVO host = new AccessKeyPermissionVO();
+        host.setSubnetsArray("10.0.0.5");
+        AccessKeyPermissionVO domain = new AccessKeyPermissionVO();
+        domain.setDomainArray(".devicehive.com");
+
+        Set<AccessKeyPermissionVO> filtered = CheckPermissionsHelper.filterPermissions(key(UserRole.CLIENT),
+                permissions(subnet, host, domain), AccessKeyAction.GET_DEVICE,
+                InetAddress.getByName("192.168.1.17"), "api.example.com");
+        assertThat(filtered, contains(subnet));
+
+        filtered = CheckPermissionsHelper.filterPermissions(key(UserRole.CLIENT),
+                permissions(subnet, host, domain), AccessKeyAction.GET_DEVICE,
+                InetAddress.getByName("10.0.0.5"), "api.devicehive.com");
+        assertThat(filtered, containsInAnyOrder(host, domain));
+    }
+
+    @Test
+    public void should_drop_permissions_with_empty_networks_or_devices() throws Exception {
+        AccessKeyPermissionVO noNetworks = new AccessKeyPermissionVO();
+        noNetworks.setNetworkIdsCollection(Collections.emptySet());
+        AccessKeyPermissionVO noDevices = new AccessKeyPermissionVO();
+        noDevices.setDeviceGuidsCollection(Collections.emptySet());
+
+        assertThat(CheckPermissionsHelper.filterPermissions(key(UserRole.CLIENT), permissions(noNetworks, noDevices),
+                AccessKeyAction.GET_DEVICE, localhost(), null), is(empty()));
+    }
+
+    @Test
+    public void should_check_device_against_networks_and_guids() throws Exception {
+        NetworkVO network = new NetworkVO();
+        network.setId(2L);
+        DeviceVO device = new DeviceVO();
+        device.setGuid("guid");
+        device.setNetwork(network);
+
+        AccessKeyPermissionVO networks = new AccessKeyPermissionVO();
+        networks.setNetworkIdsCollection(Arrays.asList(5L, 1L, 2L));
+        AccessKeyPermissionVO otherNetworks = new AccessKeyPermissionVO();
+        otherNetworks.setNetworkIdsCollection(Arrays.asList(3L, 4L));
+        AccessKeyPermissionVO otherDevice = new AccessKeyPermissionVO();
+        otherDevice.setDeviceGuidsCollection(Collections.singleton("other"));
+
+        assertThat(CheckPermissionsHelper.checkFilteredPermissions(permissions(networks), device), is(true));
+        assertThat(CheckPermissionsHelper.checkFilteredPermissions(permissions(otherNetworks, otherDevice), device),
+                is(false));
+    }
+
+    @Test
+    public void should_recompile_permission_after_change() throws Exception {
+        AccessKeyPermissionVO permission = new AccessKeyPermissionVO();
+        permission.setActionsArray("GetNetwork");
+        assertThat(permission.compile().hasAction(AccessKeyAction.GET_DEVICE.getBit()), is(false));
+
+        permission.setActionsArray("GetNetwork", "GetDevice");
+        assertThat(permission.compile().hasAction(AccessKeyAction.GET_DEVICE.getBit()), is(true));
+    }
+
+    @Test
+    public void should_not_assign_bits_to_unknown_actions() throws Exception {
+        assertThat(CompiledPermission.actionBit("getdevice"), is(AccessKeyAction.GET_DEVICE.getBit()));
+        assertThat(CompiledPermission.actionBit("SomethingElse"), is(-1));
+
+        AccessKeyPermissionVO permission = new AccessKeyPermissionVO();
+        permission.setActionsArray("SomethingElse");
+        CompiledPermission compiled = permission.compile();
+        assertThat(compiled.isActionRestricted(), is(true));
+        assertThat(compiled.hasAction(AccessKeyAction.GET_DEVICE.getBit()), is(false));
+    }
+
+    private static AccessKeyVO key(UserRole role) {
+        UserVO user = new UserVO();
+        user.setRole(role);
+        AccessKeyVO key = new AccessKeyVO();
+        key.setUser(user);
+        return key;
+    }
+
+    private static Set<AccessKeyPermissionVO> permissions(AccessKeyPermissionVO... permissions) {
+        return new HashSet<>(Arrays.asList(permissions));
+    }
+
+    private static InetAddress localhost() throws Exception {
+        return InetAddress.getByName("127.0.0.1");
+    }
+}
@@ -27,6 +27,8 @@ import java.security.Principal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * This class is not thread safe!
@@ -35,6 +37,8 @@ public abstract class AbstractWebSocketMethodTest extends AbstractResourceTest {
 
     protected HiveWebsocketSessionState state;
 
+    protected BlockingQueue<WebSocketMessage<?>> sentMessages;
+
     @Autowired
     private WebsocketExecutor executor;
 
@@ -50,6 +54,7 @@ public abstract class AbstractWebSocketMethodTest extends AbstractResourceTest {
     @Before
     public void createState() {
         state = new HiveWebsocketSessionState();
+        sentMessages = new LinkedBlockingQueue<>();
     }
 
     public HiveAuthentication auth(String login, String password) {
@@ -83,7 +88,7 @@ public abstract class AbstractWebSocketMethodTest extends AbstractResourceTest {
         Map<String, Object> sessionDetails = new HashMap<>();
         sessionDetails.put(WebSocketAuthenticationManager.SESSION_ATTR_AUTHENTICATION, auth);
         sessionDetails.put(HiveWebsocketSessionState.KEY, state);
-        JsonObject result = executor.execute(jsonTree, new MyWebSocketSession(sessionDetails));
+        JsonObject result = executor.execute(jsonTree, new MyWebSocketSession(sessionDetails, sentMessages));
         return GsonFactory.createGson().toJson(result);
     }
 
@@ -91,9 +96,11 @@ public abstract class AbstractWebSocketMethodTest extends AbstractResourceTest {
     static class MyWebSocketSession implements WebSocketSession {
 
         private Map<String, Object> sessionAttributes;
+        private BlockingQueue<WebSocketMessage<?>> sentMessages;
 
-        public MyWebSocketSession(Map<String, Object> sessionAttributes) {
+        public MyWebSocketSession(Map<String, Object> sessionAttributes, BlockingQueue<WebSocketMessage<?>> sentMessages) {
             this.sessionAttributes = sessionAttributes;
+            this.sentMessages = sentMessages;
         }
 
         @Override
@@ -162,7 +169,7 @@ public abstract class AbstractWebSocketMethodTest extends AbstractResourceTest {
 
         @Override
         public void sendMessage(WebSocketMessage<?> message) throws IOException {
-
+            sentMessages.offer(message);
         }
 
         @Override
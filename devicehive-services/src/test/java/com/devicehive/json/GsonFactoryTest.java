@@ -0,0 +1,46 @@
+package com.devicehive.json;
+
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.JsonStringWrapper;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static com.devicehive.json.strategies.JsonPolicyDef.Policy.NOTIFICATION_TO_CLIENT;
+import static com.devicehive.json.strategies.JsonPolicyDef.Policy.NOTIFICATION_TO_DEVICE;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class GsonFactoryTest {
+
+    @Test
+    public void should_write_compact_json() throws Exception {
+        String json = GsonFactory.createGson(NOTIFICATION_TO_CLIENT).toJson(notification());
+
+        assertThat(json, not(containsString("\n")));
+        assertThat(json, startsWith("{\"id\":1,\"notification\":\"temp\",\"deviceGuid\":\"guid\""));
+        assertThat(json, endsWith("\"parameters\":{\"value\":24.5}}"));
+    }
+
+    @Test
+    public void should_write_only_fields_of_policy() throws Exception {
+        GsonFactory.prepare(DeviceNotification.class);
+
+        String json = GsonFactory.createGson(NOTIFICATION_TO_DEVICE).toJson(notification());
+
+        assertThat(json, containsString("\"notification\":\"temp\""));
+        assertThat(json, not(containsString("parameters")));
+        assertThat(GsonFactory.createGson(NOTIFICATION_TO_DEVICE), is(sameInstance(
+                GsonFactory.createGson(NOTIFICATION_TO_DEVICE))));
+    }
+
+    private static DeviceNotification notification() {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(1L);
+        notification.setNotification("temp");
+        notification.setDeviceGuid("guid");
+        notification.setTimestamp(new Date(1476784800123L));
+        notification.setParameters(new JsonStringWrapper("{\"value\":24.5}"));
+        return notification;
+    }
+}
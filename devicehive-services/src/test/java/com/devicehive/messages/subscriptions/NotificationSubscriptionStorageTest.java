@@ -0,0 +1,93 @@
+package com.devicehive.messages.subscriptions;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class NotificationSubscriptionStorageTest {
+
+    @Test
+    public void should_match_names_exactly() throws Exception {
+        NotificationSubscriptionStorage storage = new NotificationSubscriptionStorage();
+        NotificationSubscription temp = new NotificationSubscription(null, "guid", UUID.randomUUID(), "temp, humidity", null);
+        NotificationSubscription any = new NotificationSubscription(null, "guid", UUID.randomUUID(), null, null);
+        NotificationSubscription other = new NotificationSubscription(null, "other", UUID.randomUUID(), "temperature", null);
+        storage.insert(temp);
+        storage.insert(any);
+        storage.insert(other);
+
+        assertThat(list(storage.getByDeviceGuidAndName("guid", "temp")), containsInAnyOrder(temp, any));
+        assertThat(list(storage.getByDeviceGuidAndName("guid", "humidity")), containsInAnyOrder(temp, any));
+        assertThat(list(storage.getByDeviceGuidAndName("guid", "temperature")), contains(any));
+        assertThat(list(storage.getByDeviceGuidAndName("other", "temp")), is(empty()));
+        assertThat(list(storage.getByDeviceGuidAndName("other", "temperature")), contains(other));
+    }
+
+    @Test
+    public void should_remove_subscription_from_name_index() throws Exception {
+        NotificationSubscriptionStorage storage = new NotificationSubscriptionStorage();
+        UUID id = UUID.randomUUID();
+        storage.insert(new NotificationSubscription(null, "guid", id, "temp", null));
+        storage.insert(new NotificationSubscription(null, "guid-2", id, null, null));
+
+        storage.removeBySubscriptionId(id);
+
+        assertThat(list(storage.getByDeviceGuidAndName("guid", "temp")), is(empty()));
+        assertThat(list(storage.getByDeviceGuidAndName("guid-2", "temp")), is(empty()));
+        assertThat(storage.get(id), is(empty()));
+    }
+
+    @Test
+    public void should_remove_all_subscriptions_of_device() throws Exception {
+        NotificationSubscriptionStorage storage = new NotificationSubscriptionStorage();
+        storage.insert(new NotificationSubscription(null, "guid", UUID.randomUUID(), "temp", null));
+        storage.insert(new NotificationSubscription(null, "guid", UUID.randomUUID(), null, null));
+
+        storage.removeByDevice("guid");
+
+        assertThat(storage.getByDeviceGuid("guid"), is(empty()));
+        assertThat(list(storage.getByDeviceGuidAndName("guid", "temp")), is(empty()));
+    }
+
+    @Test
+    public void should_stay_consistent_under_concurrent_subscribe_and_unsubscribe() throws Exception {
+        NotificationSubscriptionStorage storage = new NotificationSubscriptionStorage();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final String guid = "guid-" + (i % 2);
+            futures.add(executor.submit(() -> {
+                barrier.await();
+                for (int j = 0; j < 1000; j++) {
+                    UUID id = UUID.randomUUID();
+                    storage.insert(new NotificationSubscription(null, guid, id, j % 2 == 0 ? "temp" : null, null));
+                    storage.insert(new NotificationSubscription(null, "shared", id, "temp", null));
+                    storage.removeBySubscriptionId(id);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        for (String guid : new String[]{"guid-0", "guid-1", "shared"}) {
+            assertThat(storage.getByDeviceGuid(guid), is(empty()));
+            assertThat(list(storage.getByDeviceGuidAndName(guid, "temp")), is(empty()));
+        }
+    }
+
+    private static <T> List<T> list(Iterable<T> iterable) {
+        return Lists.newArrayList(iterable);
+    }
+}
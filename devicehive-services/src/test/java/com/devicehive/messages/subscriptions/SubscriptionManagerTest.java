@@ -0,0 +1,41 @@
+package com.devicehive.messages.subscriptions;
+
+import com.devicehive.configuration.Constants;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SubscriptionManagerTest {
+
+    @Test
+    public void should_track_devices_with_notification_subscriptions() throws Exception {
+        SubscriptionManager manager = new SubscriptionManager();
+        UUID id = UUID.randomUUID();
+        manager.getNotificationSubscriptionStorage().insert(new NotificationSubscription(null, "guid", id, "temp", null));
+
+        assertThat(manager.hasNotificationSubscriptions("guid"), is(true));
+        assertThat(manager.hasNotificationSubscriptions("other"), is(false));
+        assertThat(manager.hasNotificationSubscriptions(null), is(false));
+
+        manager.getNotificationSubscriptionStorage().removeBySubscriptionId(id);
+        assertThat(manager.hasNotificationSubscriptions("guid"), is(false));
+    }
+
+    @Test
+    public void should_be_interested_in_all_devices_with_subscription_for_all() throws Exception {
+        SubscriptionManager manager = new SubscriptionManager();
+        UUID id = UUID.randomUUID();
+        manager.getCommandSubscriptionStorage().insert(
+                new CommandSubscription(null, Constants.NULL_SUBSTITUTE, id, null, null));
+
+        assertThat(manager.hasCommandSubscriptions("guid"), is(true));
+        assertThat(manager.hasCommandSubscriptions(null), is(true));
+        assertThat(manager.hasNotificationSubscriptions("guid"), is(false));
+
+        manager.getCommandSubscriptionStorage().remove(Constants.NULL_SUBSTITUTE, id);
+        assertThat(manager.hasCommandSubscriptions("guid"), is(false));
+    }
+}
@@ -0,0 +1,43 @@
+package com.devicehive.resource.util;
+
+import org.junit.Test;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class LongPollTest {
+
+    @Test
+    public void should_resume_only_once() throws Exception {
+        AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        LongPoll poll = new LongPoll(asyncResponse);
+        Response first = Response.ok("first").build();
+
+        assertThat(poll.resume(() -> first), is(true));
+        assertThat(poll.resume(() -> Response.ok("second").build()), is(false));
+        assertThat(poll.resume(new IllegalStateException()), is(false));
+
+        assertThat(poll.isCompleted(), is(true));
+        verify(asyncResponse).resume(first);
+        verifyNoMoreInteractions(asyncResponse);
+    }
+
+    @Test
+    public void should_run_completion_tasks_once() throws Exception {
+        LongPoll poll = new LongPoll(mock(AsyncResponse.class));
+        AtomicInteger runs = new AtomicInteger();
+        poll.onComplete(runs::incrementAndGet);
+
+        poll.resume(() -> Response.ok().build());
+        poll.resume(() -> Response.ok().build());
+        assertThat(runs.get(), is(1));
+
+        poll.onComplete(runs::incrementAndGet);
+        assertThat(runs.get(), is(2));
+    }
+}
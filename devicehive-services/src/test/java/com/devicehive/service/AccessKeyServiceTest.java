@@ -221,6 +221,31 @@ public class AccessKeyServiceTest extends AbstractResourceTest {
         assertTrue(initialDate.isBefore(changedDate));
     }
 
+    @Test
+    public void should_store_extended_session_expiration_in_background() throws Exception {
+        configurationService.save(Constants.SESSION_TIMEOUT, Constants.DEFAULT_SESSION_TIMEOUT);
+
+        UserVO user = new UserVO();
+        user.setLogin(RandomStringUtils.randomAlphabetic(10));
+        user = userService.createUser(user, "123");
+
+        AccessKeyVO accessKey = new AccessKeyVO();
+        accessKey.setKey(RandomStringUtils.random(20));
+        accessKey.setLabel(RandomStringUtils.randomAlphabetic(10));
+        accessKey.setPermissions(singleton(new AccessKeyPermissionVO()));
+        accessKey.setType(AccessKeyType.SESSION);
+        accessKey.setExpirationDate(Date.from(LocalDateTime.now().plusMinutes(1).atZone(ZoneId.systemDefault()).toInstant()));
+        accessKey = accessKeyService.create(user, accessKey);
+
+        AccessKeyVO authenticated = accessKeyService.authenticate(accessKey.getKey());
+        AccessKeyVO again = accessKeyService.authenticate(accessKey.getKey());
+        assertThat(again.getExpirationDate(), equalTo(authenticated.getExpirationDate()));
+
+        accessKeyService.flushSessionExtensions();
+        AccessKeyVO stored = accessKeyService.find(accessKey.getId(), user.getId());
+        assertThat(stored.getExpirationDate().getTime(), equalTo(authenticated.getExpirationDate().getTime()));
+    }
+
     @Test
     public void should_not_expire_key_of_session_type__if_period_not_reached_when_authenticate_by_key() throws Exception {
         configurationService.save(Constants.SESSION_TIMEOUT, 0);
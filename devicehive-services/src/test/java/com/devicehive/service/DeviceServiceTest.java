@@ -6,6 +6,7 @@ import com.devicehive.auth.HivePrincipal;
 import com.devicehive.base.AbstractResourceTest;
 import com.devicehive.base.fixture.DeviceFixture;
 import com.devicehive.configuration.Messages;
+import com.devicehive.dao.filter.DeviceListCursor;
 import com.devicehive.exceptions.HiveException;
 import com.devicehive.model.*;
 import com.devicehive.model.enums.AccessKeyType;
@@ -379,7 +380,7 @@ public class DeviceServiceTest extends AbstractResourceTest {
         deviceService.deviceSave(deviceUpdate1, emptyEquipmentSet);
         deviceService.deviceSave(deviceUpdate2, emptyEquipmentSet);
 
-        final List<DeviceVO> devices = deviceService.getList(deviceName1, null, null, null, null, null, null, null, false, null, null, null);
+        final List<DeviceVO> devices = deviceService.getList(deviceName1, null, null, null, null, null, null, null, false, null, null, null, null);
         assertNotNull(devices);
         assertEquals(devices.size(), 1);
         assertEquals(device.getGuid(), devices.get(0).getGuid());
@@ -407,7 +408,7 @@ public class DeviceServiceTest extends AbstractResourceTest {
         deviceService.deviceSave(deviceUpdate1, emptyEquipmentSet);
         deviceService.deviceSave(deviceUpdate2, emptyEquipmentSet);
 
-        final List<DeviceVO> devices = deviceService.getList(null, null, status1, null, null, null, null, null, false, null, null, null);
+        final List<DeviceVO> devices = deviceService.getList(null, null, status1, null, null, null, null, null, false, null, null, null, null);
         Collections.sort(devices, (DeviceVO a, DeviceVO b) -> a.getId().compareTo(b.getId()));
         assertNotNull(devices);
         assertEquals(2, devices.size());
@@ -415,6 +416,30 @@ public class DeviceServiceTest extends AbstractResourceTest {
         assertEquals(device2.getGuid(), devices.get(1).getGuid());
     }
 
+    @Test
+    public void should_continue_device_list_after_cursor() {
+        String status = RandomStringUtils.randomAlphabetic(10);
+        final DeviceClassUpdate dc = DeviceFixture.createDeviceClass();
+        final List<String> guids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final DeviceVO device = DeviceFixture.createDeviceVO();
+            device.setStatus(status);
+            deviceService.deviceSave(DeviceFixture.createDevice(device, dc), emptyEquipmentSet);
+            guids.add(device.getGuid());
+        }
+        Collections.sort(guids);
+
+        final List<DeviceVO> first = deviceService.getList(null, null, status, null, null, null, null, "status", true, 2, null, null, null);
+        assertEquals(2, first.size());
+        assertEquals(guids.get(0), first.get(0).getGuid());
+        assertEquals(guids.get(1), first.get(1).getGuid());
+
+        DeviceListCursor after = DeviceListCursor.decode(DeviceListCursor.after(first.get(1), "status").encode());
+        final List<DeviceVO> next = deviceService.getList(null, null, status, null, null, null, null, "status", true, 2, null, after, null);
+        assertEquals(1, next.size());
+        assertEquals(guids.get(2), next.get(0).getGuid());
+    }
+
     @Test
     public void should_save_and_find_by_network_id() {
         final DeviceVO device = DeviceFixture.createDeviceVO();
@@ -457,7 +482,7 @@ public class DeviceServiceTest extends AbstractResourceTest {
         deviceService.deviceSave(deviceUpdate, emptyEquipmentSet);
         deviceService.deviceSave(deviceUpdate1, emptyEquipmentSet);
 
-        final List<DeviceVO> devices = deviceService.getList(null, null, null, network1.getId(), null, null, null, null, false, null, null, null);
+        final List<DeviceVO> devices = deviceService.getList(null, null, null, network1.getId(), null, null, null, null, false, null, null, null, null);
         assertNotNull(devices);
         assertNotEquals(0, devices.size());
         assertEquals(device1.getGuid(), devices.get(0).getGuid());
@@ -482,7 +507,7 @@ public class DeviceServiceTest extends AbstractResourceTest {
         deviceService.deviceSave(deviceUpdate, emptyEquipmentSet);
         deviceService.deviceSave(deviceUpdate1, emptyEquipmentSet);
 
-        final List<DeviceVO> devices = deviceService.getList(null, null, null, null, null, dc.getId(), null, null, false, null, null, null);
+        final List<DeviceVO> devices = deviceService.getList(null, null, null, null, null, dc.getId(), null, null, false, null, null, null, null);
         assertNotNull(devices);
         assertEquals(device.getGuid(), devices.get(0).getGuid());
     }
@@ -504,7 +529,7 @@ public class DeviceServiceTest extends AbstractResourceTest {
         deviceService.deviceSave(deviceUpdate, emptyEquipmentSet);
         deviceService.deviceSave(deviceUpdate1, emptyEquipmentSet);
 
-        final List<DeviceVO> devices = deviceService.getList(null, null, null, null, null, null, dc.getName(), null, false, null, null, null);
+        final List<DeviceVO> devices = deviceService.getList(null, null, null, null, null, null, dc.getName(), null, false, null, null, null, null);
         assertNotNull(devices);
         assertEquals(device.getGuid(), devices.get(0).getGuid());
     }
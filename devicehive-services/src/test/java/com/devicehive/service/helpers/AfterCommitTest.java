@@ -0,0 +1,53 @@
+package com.devicehive.service.helpers;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AfterCommitTest {
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void should_run_immediately_without_transaction() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        AfterCommit.run(runs::incrementAndGet);
+        assertThat(runs.get(), is(1));
+    }
+
+    @Test
+    public void should_run_only_after_commit() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+        AfterCommit.run(runs::incrementAndGet);
+        assertThat(runs.get(), is(0));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertThat(runs.get(), is(1));
+    }
+
+    @Test
+    public void should_not_run_after_rollback() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TransactionSynchronizationManager.initSynchronization();
+        AfterCommit.run(runs::incrementAndGet);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        assertThat(runs.get(), is(0));
+    }
+}
@@ -0,0 +1,211 @@
+package com.devicehive.service.history;
+
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.HazelcastEntity;
+import com.devicehive.model.JsonStringWrapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DeviceHistoryTest {
+
+    @Test
+    public void should_return_newest_matching_entities_after_timestamp() throws Exception {
+        DeviceHistory<DeviceNotification> history = new DeviceHistory<>();
+        history.put(notification(1, "temp", 1000), 0);
+        history.put(notification(3, "temp", 3000), 0);
+        history.put(notification(2, "humidity", 2000), 0);
+        history.put(notification(4, "temp", 4000), 0);
+
+        assertThat(ids(history.find(new HistoryFilter(), 0, 0, 0)), contains(4L, 3L, 2L, 1L));
+        assertThat(ids(history.find(new HistoryFilter().since(new Date(1000)), 0, 0, 0)), contains(4L, 3L, 2L));
+        assertThat(ids(history.find(new HistoryFilter().names(Collections.singleton("temp")), 2, 0, 0)),
+                contains(4L, 3L));
+        assertThat(ids(history.find(new HistoryFilter().id(2L), 1, 0, 0)), contains(2L));
+    }
+
+    @Test
+    public void should_replace_entity_with_same_id() throws Exception {
+        DeviceHistory<DeviceCommand> history = new DeviceHistory<>();
+        history.put(command(1, "on", 1000, false), 0);
+        history.put(command(2, "off", 2000, false), 0);
+        history.put(command(1, "on", 1000, true), 0);
+
+        assertThat(history.size(), is(2));
+        assertThat(ids(history.find(new HistoryFilter().hasResponse(true), 0, 0, 0)), contains(1L));
+        assertThat(ids(history.find(new HistoryFilter().hasResponse(false), 0, 0, 0)), contains(2L));
+    }
+
+    @Test
+    public void should_apply_retention_and_size_limit() throws Exception {
+        DeviceHistory<DeviceNotification> history = new DeviceHistory<>();
+        for (int i = 1; i <= 5; i++) {
+            history.put(notification(i, "temp", i * 1000), 3);
+        }
+        assertThat(ids(history.find(new HistoryFilter(), 0, 0, 0)), contains(5L, 4L, 3L));
+
+        assertThat(ids(history.find(new HistoryFilter(), 0, 5000, 1000)), contains(5L, 4L));
+
+        history.prune(6000, 1000);
+        assertThat(ids(history.find(new HistoryFilter(), 0, 0, 0)), contains(5L));
+        history.prune(7000, 1000);
+        assertThat(history.isEmpty(), is(true));
+    }
+
+    @Test
+    public void should_keep_order_when_ring_wraps() throws Exception {
+        DeviceHistory<DeviceNotification> history = new DeviceHistory<>();
+        for (int i = 1; i <= 100; i++) {
+            history.put(notification(i, "temp", i * 1000), 10);
+        }
+        history.put(notification(101, "temp", 95500), 10);
+
+        assertThat(history.size(), is(10));
+        assertThat(ids(history.find(new HistoryFilter(), 3, true, 0, 0)), contains(92L, 93L, 94L));
+        assertThat(ids(history.find(new HistoryFilter(), 3, false, 0, 0)), contains(100L, 99L, 98L));
+        assertThat(ids(history.find(new HistoryFilter().since(new Date(95000)), 2, true, 0, 0)), contains(101L, 96L));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(history);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            @SuppressWarnings("unchecked")
+            DeviceHistory<DeviceNotification> copy = (DeviceHistory<DeviceNotification>) in.readObject();
+            assertThat(ids(copy.find(new HistoryFilter(), 0, true, 0, 0)),
+                    contains(92L, 93L, 94L, 95L, 101L, 96L, 97L, 98L, 99L, 100L));
+            copy.put(notification(102, "temp", 101000), 10);
+            assertThat(ids(copy.find(new HistoryFilter(), 1, true, 0, 0)), contains(93L));
+        }
+    }
+
+    @Test
+    public void should_expire_command_after_its_lifetime() throws Exception {
+        DeviceHistory<DeviceCommand> history = new DeviceHistory<>();
+        DeviceCommand shortLived = command(1, "on", 1000, false);
+        shortLived.setLifetime(1);
+        DeviceCommand longLived = command(2, "off", 1000, false);
+        longLived.setLifetime(60);
+        history.put(shortLived, 0);
+        history.put(longLived, 0);
+        history.put(command(3, "on", 1000, false), 0);
+
+        assertThat(ids(history.find(new HistoryFilter(), 0, 5000, 10000)), contains(3L, 2L));
+        history.prune(20000, 10000);
+        assertThat(ids(history.find(new HistoryFilter(), 0, 20000, 10000)), contains(2L));
+    }
+
+    @Test
+    public void should_return_entities_until_timestamp() throws Exception {
+        DeviceHistory<DeviceNotification> history = new DeviceHistory<>();
+        for (int i = 1; i <= 4; i++) {
+            history.put(notification(i, "temp", i * 1000), 0);
+        }
+
+        assertThat(ids(history.find(new HistoryFilter().since(new Date(1000)).until(new Date(3000)), 0, 0, 0)),
+                contains(3L, 2L));
+    }
+
+    @Test
+    public void should_return_oldest_entities_first_in_ascending_order() throws Exception {
+        DeviceHistory<DeviceNotification> history = new DeviceHistory<>();
+        for (int i = 1; i <= 5; i++) {
+            history.put(notification(i, i % 2 == 0 ? "humidity" : "temp", i * 1000), 0);
+        }
+
+        assertThat(ids(history.find(new HistoryFilter(), 2, true, 0, 0)), contains(1L, 2L));
+        assertThat(ids(history.find(new HistoryFilter().since(new Date(1000)).names(Collections.singleton("temp")),
+                0, true, 0, 0)), contains(3L, 5L));
+        assertThat(ids(history.find(new HistoryFilter().until(new Date(4000)), 2, false, 0, 0)), contains(4L, 3L));
+    }
+
+    @Test
+    public void should_return_last_notification_per_interval() throws Exception {
+        DeviceHistory<DeviceNotification> history = new DeviceHistory<>();
+        for (int i = 0; i < 25; i++) {
+            history.put(notification(i + 1, "temp", i * 1000), 0);
+        }
+
+        assertThat(ids(history.aggregate(new HistoryFilter(), 10000, HistoryAggregation.LAST, 0, false, 0, 0)),
+                contains(25L, 20L, 10L));
+        assertThat(ids(history.aggregate(new HistoryFilter(), 10000, HistoryAggregation.LAST, 2, false, 0, 0)),
+                contains(25L, 20L));
+        assertThat(ids(history.aggregate(new HistoryFilter().until(new Date(15000)), 10000,
+                HistoryAggregation.LAST, 0, false, 0, 0)), contains(16L, 10L));
+    }
+
+    @Test
+    public void should_return_first_intervals_after_start_in_ascending_order() throws Exception {
+        DeviceHistory<DeviceNotification> history = new DeviceHistory<>();
+        for (int i = 0; i < 35; i++) {
+            history.put(notification(i + 1, "temp", i * 1000), 0);
+        }
+
+        assertThat(ids(history.aggregate(new HistoryFilter(), 10000, HistoryAggregation.LAST, 2, true, 0, 0)),
+                contains(10L, 20L));
+        assertThat(ids(history.aggregate(new HistoryFilter().since(new Date(12000)), 10000,
+                HistoryAggregation.LAST, 0, true, 0, 0)), contains(20L, 30L, 35L));
+    }
+
+    @Test
+    public void should_compute_stats_of_numeric_parameters_per_interval() throws Exception {
+        DeviceHistory<DeviceNotification> history = new DeviceHistory<>();
+        history.put(notification(1, "temp", 1000, "{\"value\":10,\"unit\":\"C\"}"), 0);
+        history.put(notification(2, "temp", 2000, "{\"value\":20}"), 0);
+        history.put(notification(3, "temp", 3000, "not json"), 0);
+        history.put(notification(4, "temp", 12000, "{\"value\":5}"), 0);
+
+        List<DeviceNotification> result = history.aggregate(new HistoryFilter(), 10000, HistoryAggregation.STATS, 0,
+                false, 0, 0);
+
+        assertThat(result.size(), is(2));
+        assertThat(result.get(0).getTimestamp(), is(new Date(10000)));
+        assertThat(result.get(0).getParameters().getJsonString(),
+                is("{\"value\":{\"count\":1,\"min\":5.0,\"max\":5.0,\"avg\":5.0}}"));
+        assertThat(result.get(1).getId(), is(3L));
+        assertThat(result.get(1).getTimestamp(), is(new Date(0)));
+        assertThat(result.get(1).getParameters().getJsonString(),
+                is("{\"value\":{\"count\":2,\"min\":10.0,\"max\":20.0,\"avg\":15.0}}"));
+    }
+
+    private static DeviceNotification notification(long id, String name, long timestamp, String parameters) {
+        DeviceNotification notification = notification(id, name, timestamp);
+        notification.setParameters(new JsonStringWrapper(parameters));
+        return notification;
+    }
+
+    private static DeviceNotification notification(long id, String name, long timestamp) {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(id);
+        notification.setNotification(name);
+        notification.setDeviceGuid("guid");
+        notification.setTimestamp(new Date(timestamp));
+        return notification;
+    }
+
+    private static DeviceCommand command(long id, String name, long timestamp, boolean updated) {
+        DeviceCommand command = new DeviceCommand();
+        command.setId(id);
+        command.setCommand(name);
+        command.setDeviceGuid("guid");
+        command.setTimestamp(new Date(timestamp));
+        command.setIsUpdated(updated);
+        return command;
+    }
+
+    private static List<Long> ids(List<? extends HazelcastEntity> entities) {
+        return entities.stream().map(HazelcastEntity::getId).collect(Collectors.toList());
+    }
+}
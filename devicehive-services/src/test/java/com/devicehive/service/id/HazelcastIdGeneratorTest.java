@@ -0,0 +1,149 @@
+package com.devicehive.service.id;
+
+import com.devicehive.service.time.TimestampService;
+import com.hazelcast.core.Cluster;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IAtomicLong;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.Member;
+import com.hazelcast.core.MembershipEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class HazelcastIdGeneratorTest {
+
+    @Mock
+    private HazelcastInstance hazelcastInstance;
+
+    @Mock
+    private IAtomicLong nodeCounter;
+
+    @Mock
+    private IMap<Integer, String> slots;
+
+    @Mock
+    private Cluster cluster;
+
+    @Mock
+    private Member localMember;
+
+    @Mock
+    private Member otherMember;
+
+    @Mock
+    private TimestampService timestampService;
+
+    @InjectMocks
+    private HazelcastIdGenerator idGenerator;
+
+    @Before
+    public void setUp() {
+        when(hazelcastInstance.getAtomicLong(HazelcastIdGenerator.NODE_COUNTER)).thenReturn(nodeCounter);
+        when(hazelcastInstance.<Integer, String>getMap(HazelcastIdGenerator.NODE_SLOTS)).thenReturn(slots);
+        when(hazelcastInstance.getCluster()).thenReturn(cluster);
+        when(cluster.getLocalMember()).thenReturn(localMember);
+        when(cluster.getMembers()).thenReturn(new HashSet<>(Arrays.asList(localMember, otherMember)));
+        when(localMember.getUuid()).thenReturn("local");
+        when(otherMember.getUuid()).thenReturn("other");
+        when(nodeCounter.getAndIncrement()).thenReturn(5L);
+        when(timestampService.getTimestampMillis()).thenAnswer(invocation -> System.currentTimeMillis());
+    }
+
+    @Test
+    public void should_skip_slot_held_by_running_member() throws Exception {
+        when(slots.putIfAbsent(5, "local")).thenReturn("other");
+        idGenerator.init();
+
+        assertThat(HazelcastIdGenerator.getNode(idGenerator.generate()), is(6));
+        verify(slots, never()).replace(anyInt(), anyString(), anyString());
+    }
+
+    @Test
+    public void should_take_over_slot_of_member_which_has_left() throws Exception {
+        when(slots.putIfAbsent(5, "local")).thenReturn("gone");
+        when(slots.replace(5, "gone", "local")).thenReturn(true);
+        idGenerator.init();
+
+        assertThat(HazelcastIdGenerator.getNode(idGenerator.generate()), is(5));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void should_fail_when_all_slots_are_taken() throws Exception {
+        when(slots.putIfAbsent(anyInt(), anyString())).thenReturn("other");
+        idGenerator.init();
+    }
+
+    @Test
+    public void should_release_slots_of_removed_member() throws Exception {
+        when(slots.entrySet()).thenReturn(new HashSet<>(Arrays.asList(
+                new AbstractMap.SimpleEntry<>(1, "other"), new AbstractMap.SimpleEntry<>(2, "local"))));
+        MembershipEvent event = mock(MembershipEvent.class);
+        when(event.getMember()).thenReturn(otherMember);
+
+        new HazelcastIdGenerator.SlotReleaseListener(slots).memberRemoved(event);
+
+        verify(slots).remove(1, "other");
+        verify(slots, never()).remove(2, "local");
+    }
+
+    @Test
+    public void should_generate_growing_ids_with_node_and_time() throws Exception {
+        idGenerator.init();
+        long start = System.currentTimeMillis();
+        long prev = 0;
+        for (int i = 0; i < 100000; i++) {
+            long id = idGenerator.generate();
+            assertThat(id, greaterThan(prev));
+            assertThat(HazelcastIdGenerator.getNode(id), is(5));
+            prev = id;
+        }
+        assertThat(HazelcastIdGenerator.getTime(prev), greaterThanOrEqualTo(start - 1000));
+    }
+
+    @Test
+    public void should_generate_ids_exactly_representable_in_javascript() throws Exception {
+        idGenerator.init();
+        long id = idGenerator.generate();
+        assertThat(id, lessThan(1L << 53));
+        assertThat((long) (double) id, is(id));
+    }
+
+    @Test
+    public void should_generate_unique_ids_concurrently() throws Exception {
+        idGenerator.init();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50000; i++) {
+                    ids.add(idGenerator.generate());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(ids.size(), is(200000));
+    }
+}
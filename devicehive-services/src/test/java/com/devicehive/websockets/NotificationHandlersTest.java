@@ -11,11 +11,13 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Test;
+import org.springframework.web.socket.WebSocketMessage;
 
 import javax.ws.rs.core.Response;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonMap;
@@ -190,27 +192,14 @@ public class NotificationHandlersTest extends AbstractWebSocketMethodTest {
             put("notification", gson.toJsonTree(notification));
         }});
 
-        HiveWebsocketSessionState storedState = this.state;
-
         result = runMethod(notificationInsert, auth(ACCESS_KEY));
         jsonResp = gson.fromJson(result, JsonObject.class);
         assertThat(jsonResp.get("requestId").getAsString(), is(request));
         assertThat(jsonResp.get("status").getAsString(), is("success"));
 
-        while (true) {
-            try {
-                storedState.getQueueLock().lock();
-                if (!storedState.getQueue().isEmpty()) {
-                    break;
-                }
-                Thread.sleep(100);
-            } finally {
-                storedState.getQueueLock().unlock();
-            }
-        }
-
-        assertThat(storedState.getQueue().peek(), notNullValue());
-        jsonResp = gson.fromJson(storedState.getQueue().poll(), JsonObject.class);
+        WebSocketMessage<?> sent = sentMessages.poll(10, TimeUnit.SECONDS);
+        assertThat(sent, notNullValue());
+        jsonResp = gson.fromJson((String) sent.getPayload(), JsonObject.class);
         assertThat(jsonResp.get("action").getAsString(), is("notification/insert"));
         assertThat(jsonResp.get("deviceGuid").getAsString(), is(DEVICE_ID));
         assertThat(jsonResp.get("subscriptionId").getAsString(), is(subscriptionId));
@@ -0,0 +1,91 @@
+package com.devicehive.websockets;
+
+import com.devicehive.websockets.OutboundMessageQueue.OverflowPolicy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OutboundMessageQueueTest {
+
+    @Test
+    public void should_drop_oldest_messages_on_overflow() throws Exception {
+        OutboundMessageQueue queue = new OutboundMessageQueue(2, 0, OverflowPolicy.DROP_OLDEST);
+        queue.offer(new OutboundMessage("1"));
+        queue.offer(new OutboundMessage("2"));
+        assertThat(queue.offer(new OutboundMessage("3")), is(true));
+
+        assertThat(drain(queue), contains("2", "3"));
+        assertThat(queue.dropped(), is(1L));
+    }
+
+    @Test
+    public void should_drop_newest_message_on_overflow() throws Exception {
+        OutboundMessageQueue queue = new OutboundMessageQueue(2, 0, OverflowPolicy.DROP_NEWEST);
+        queue.offer(new OutboundMessage("1"));
+        queue.offer(new OutboundMessage("2"));
+        assertThat(queue.offer(new OutboundMessage("3")), is(false));
+
+        assertThat(drain(queue), contains("1", "2"));
+        assertThat(queue.dropped(), is(1L));
+    }
+
+    @Test
+    public void should_limit_queue_by_bytes() throws Exception {
+        OutboundMessageQueue queue = new OutboundMessageQueue(0, 10, OverflowPolicy.DROP_OLDEST);
+        queue.offer(new OutboundMessage("12345"));
+        queue.offer(new OutboundMessage("67890"));
+        queue.offer(new OutboundMessage("abc"));
+
+        assertThat(queue.bytes(), is(8L));
+        assertThat(drain(queue), contains("67890", "abc"));
+        assertThat(queue.bytes(), is(0L));
+    }
+
+    @Test
+    public void should_coalesce_messages_of_same_subscription() throws Exception {
+        UUID busy = UUID.randomUUID();
+        UUID quiet = UUID.randomUUID();
+        OutboundMessageQueue queue = new OutboundMessageQueue(3, 0, OverflowPolicy.COALESCE);
+        queue.offer(new OutboundMessage("quiet-1", quiet));
+        queue.offer(new OutboundMessage("busy-1", busy));
+        queue.offer(new OutboundMessage("busy-2", busy));
+        queue.offer(new OutboundMessage("busy-3", busy));
+
+        assertThat(drain(queue), contains("quiet-1", "busy-2", "busy-3"));
+    }
+
+    @Test
+    public void should_mark_queue_overflowed_for_disconnect_policy() throws Exception {
+        OutboundMessageQueue queue = new OutboundMessageQueue(1, 0, OverflowPolicy.DISCONNECT);
+        queue.offer(new OutboundMessage("1"));
+        assertThat(queue.isOverflowed(), is(false));
+        assertThat(queue.offer(new OutboundMessage("2")), is(false));
+        assertThat(queue.isOverflowed(), is(true));
+        assertThat(queue.offer(OutboundMessage.PING), is(true));
+    }
+
+    @Test
+    public void should_let_only_one_caller_disconnect_overflowed_queue() throws Exception {
+        OutboundMessageQueue queue = new OutboundMessageQueue(0, 4, OverflowPolicy.DISCONNECT);
+        assertThat(queue.tryDisconnect(), is(false));
+        queue.offer(new OutboundMessage("1234"));
+        assertThat(queue.offer(new OutboundMessage("5")), is(false));
+        assertThat(queue.tryDisconnect(), is(true));
+        assertThat(queue.tryDisconnect(), is(false));
+    }
+
+    private static List<String> drain(OutboundMessageQueue queue) {
+        List<String> result = new ArrayList<>();
+        OutboundMessage message;
+        while ((message = queue.poll()) != null) {
+            result.add(message.getPayload());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,59 @@
+package com.devicehive.websockets;
+
+import com.devicehive.json.GsonFactory;
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.JsonStringWrapper;
+import com.devicehive.util.ServerResponsesFactory;
+import com.google.common.base.Utf8;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OutboundMessageTemplateTest {
+
+    @Test
+    public void should_render_same_notification_as_server_response() throws Exception {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(1L);
+        notification.setNotification("temperature");
+        notification.setDeviceGuid(UUID.randomUUID().toString());
+        notification.setTimestamp(new Date());
+        notification.setParameters(new JsonStringWrapper("{\"value\": \"\\u00b0C\"}"));
+
+        OutboundMessageTemplate template =
+                OutboundMessageTemplate.withSubscriptionId(ServerResponsesFactory.createNotificationInsertMessage(notification));
+        for (int i = 0; i < 3; i++) {
+            UUID subId = UUID.randomUUID();
+            assertRendered(template.render(subId), ServerResponsesFactory.createNotificationInsertMessage(notification, subId));
+        }
+    }
+
+    @Test
+    public void should_render_same_command_as_server_response() throws Exception {
+        DeviceCommand command = new DeviceCommand();
+        command.setId(2L);
+        command.setCommand("switch");
+        command.setDeviceGuid(UUID.randomUUID().toString());
+        command.setTimestamp(new Date());
+
+        OutboundMessageTemplate template =
+                OutboundMessageTemplate.withSubscriptionId(ServerResponsesFactory.createCommandInsertMessage(command));
+        UUID subId = UUID.randomUUID();
+        assertRendered(template.render(subId), ServerResponsesFactory.createCommandInsertMessage(command, subId));
+
+        template = OutboundMessageTemplate.of(ServerResponsesFactory.createCommandUpdateMessage(command));
+        assertRendered(template.render(subId), ServerResponsesFactory.createCommandUpdateMessage(command));
+    }
+
+    private static void assertRendered(OutboundMessage rendered, JsonObject expected) {
+        String json = GsonFactory.createGson().toJson(expected);
+        assertThat(rendered.getPayload(), is(json));
+        assertThat(rendered.getSize(), is(Utf8.encodedLength(json)));
+    }
+}
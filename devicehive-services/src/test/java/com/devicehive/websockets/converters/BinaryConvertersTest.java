@@ -0,0 +1,99 @@
+package com.devicehive.websockets.converters;
+
+import com.devicehive.model.DeviceCommand;
+import com.devicehive.model.DeviceNotification;
+import com.devicehive.model.JsonStringWrapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class BinaryConvertersTest {
+
+    private final BinaryDeviceNotificationConverter notificationConverter = new BinaryDeviceNotificationConverter();
+    private final BinaryDeviceCommandConverter commandConverter = new BinaryDeviceCommandConverter();
+
+    @Test
+    public void should_write_and_read_notification() throws Exception {
+        DeviceNotification notification = notification();
+
+        DeviceNotification read = notificationConverter.fromBytes(notificationConverter.toBytes(notification));
+
+        assertThat(read.getId(), is(notification.getId()));
+        assertThat(read.getTimestamp(), is(notification.getTimestamp()));
+        assertThat(read.getNotification(), is(notification.getNotification()));
+        assertThat(read.getDeviceGuid(), is(notification.getDeviceGuid()));
+        assertThat(read.getParameters().getJsonString(), is(notification.getParameters().getJsonString()));
+    }
+
+    @Test
+    public void should_write_and_read_command() throws Exception {
+        DeviceCommand command = command();
+
+        DeviceCommand read = commandConverter.fromBytes(commandConverter.toBytes(command));
+
+        assertThat(read.getId(), is(command.getId()));
+        assertThat(read.getTimestamp(), is(command.getTimestamp()));
+        assertThat(read.getUserId(), is(command.getUserId()));
+        assertThat(read.getLifetime(), is(command.getLifetime()));
+        assertThat(read.getCommand(), is(command.getCommand()));
+        assertThat(read.getDeviceGuid(), is(command.getDeviceGuid()));
+        assertThat(read.getStatus(), is(nullValue()));
+        assertThat(read.getParameters().getJsonString(), is(command.getParameters().getJsonString()));
+        assertThat(read.getResult(), is(nullValue()));
+        assertThat(read.getIsUpdated(), is(false));
+    }
+
+    @Test
+    public void should_read_json_messages() throws Exception {
+        DeviceNotification notification = notification();
+        byte[] json = new DeviceNotificationConverter().toBytes(notification);
+        assertThat(notificationConverter.fromBytes(json).getParameters().getJsonString(),
+                is(notification.getParameters().getJsonString()));
+
+        DeviceCommand command = command();
+        byte[] commandJson = new DeviceCommandConverter().toBytes(command);
+        assertThat(commandConverter.fromBytes(commandJson).getCommand(), is(command.getCommand()));
+    }
+
+    @Test
+    public void should_be_smaller_than_json() throws Exception {
+        assertThat(notificationConverter.toBytes(notification()).length,
+                lessThan(new DeviceNotificationConverter().toBytes(notification()).length));
+        assertThat(commandConverter.toBytes(command()).length,
+                lessThan(new DeviceCommandConverter().toBytes(command()).length));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void should_reject_unknown_version() throws Exception {
+        byte[] bytes = notificationConverter.toBytes(notification());
+        bytes[0] = 42;
+        notificationConverter.fromBytes(bytes);
+    }
+
+    private static DeviceNotification notification() {
+        DeviceNotification notification = new DeviceNotification();
+        notification.setId(-1234567890123L);
+        notification.setTimestamp(new Date(1476784800123L));
+        notification.setNotification("temperature");
+        notification.setDeviceGuid("e50d6085-2aba-48e9-b1c3-73c673e414be");
+        notification.setParameters(new JsonStringWrapper("{\"value\":\"°C – 24.5\"}"));
+        return notification;
+    }
+
+    private static DeviceCommand command() {
+        DeviceCommand command = new DeviceCommand();
+        command.setId(9876543210L);
+        command.setTimestamp(new Date(1476784800123L));
+        command.setUserId(1L);
+        command.setLifetime(0);
+        command.setCommand("switch");
+        command.setDeviceGuid("e50d6085-2aba-48e9-b1c3-73c673e414be");
+        command.setParameters(new JsonStringWrapper("{\"on\":true}"));
+        command.setIsUpdated(false);
+        return command;
+    }
+}